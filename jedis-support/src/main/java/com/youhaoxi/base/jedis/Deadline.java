@@ -0,0 +1,257 @@
+package com.youhaoxi.base.jedis;
+
+import com.youhaoxi.base.jedis.provider.AdaptivePoolController;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 调用截止时间
+ *
+ * within范围内（当前线程）的redis命令使用同一个截止时间：等待许可、从连接池借用连接的等待时间和socket读超时
+ * 都不超过剩余时间，读超时可以长于全局timeout（如批量扫描）；已过截止时间的命令不再发送，直接抛出DeadlineExceededException。
+ * 嵌套时取较早的截止时间。未设置截止时间的命令仍使用全局timeout。
+ *
+ * <pre>
+ * String value = Deadline.within(5, () -&gt; redis.get(key));
+ * Deadline.setOperationTimeout("scan", 500);
+ * Deadline.within("scan", () -&gt; ...);
+ * </pre>
+ */
+public final class Deadline {
+
+	//当前线程的截止时间（System.nanoTime）
+	private static final ThreadLocal<long[]> current = new ThreadLocal<>();
+
+	//操作类别 -> 超时毫秒数
+	private static final Map<String, Long> operationTimeouts = new ConcurrentHashMap<>();
+
+	private static final LongAdder cancelled = new LongAdder();
+
+	private static final LongAdder overruns = new LongAdder();
+
+	private Deadline() {}
+
+	/**
+	 * 在截止时间内执行
+	 * @param timeoutMillis 超时毫秒数
+	 * @param action
+	 * @return action的返回值
+	 */
+	public static <T> T within(long timeoutMillis, Supplier<T> action) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long[] previous = current.get();
+		if(previous != null && previous[0] - deadline < 0){
+			deadline = previous[0];
+		}
+		current.set(new long[]{deadline});
+		try {
+			return action.get();
+		} finally {
+			if(System.nanoTime() - deadline > 0)overruns.increment();
+			if(previous == null){
+				current.remove();
+			}else{
+				current.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * 按操作类别的超时在截止时间内执行，未配置该类别时不设置截止时间
+	 * @param operation 操作类别，如cache、scan
+	 * @param action
+	 * @return action的返回值
+	 */
+	public static <T> T within(String operation, Supplier<T> action) {
+		Long timeoutMillis = operationTimeouts.get(operation);
+		return timeoutMillis == null ? action.get() : within(timeoutMillis, action);
+	}
+
+	/**
+	 * 配置操作类别的超时
+	 * @param operation
+	 * @param timeoutMillis
+	 */
+	public static void setOperationTimeout(String operation, long timeoutMillis) {
+		operationTimeouts.put(operation, timeoutMillis);
+	}
+
+	public static boolean isSet() {
+		return current.get() != null;
+	}
+
+	/**
+	 * 当前线程是否已过截止时间，未设置截止时间返回false
+	 * @return
+	 */
+	public static boolean isExpired() {
+		long[] deadline = current.get();
+		return deadline != null && System.nanoTime() - deadline[0] >= 0;
+	}
+
+	/**
+	 * 剩余毫秒数（向上取整），未设置截止时间返回-1
+	 * @return
+	 * @throws DeadlineExceededException 已过截止时间
+	 */
+	public static long remainingMillis() {
+		long[] deadline = current.get();
+		if(deadline == null)return -1;
+		long remaining = deadline[0] - System.nanoTime();
+		if(remaining <= 0){
+			throw exceeded();
+		}
+		return (remaining + 999999) / 1000000;
+	}
+
+	/**
+	 * 已过截止时间时抛出DeadlineExceededException
+	 */
+	public static void check() {
+		if(isExpired())throw exceeded();
+	}
+
+	/**
+	 * 因过截止时间取消的命令数
+	 * @return
+	 */
+	public static long getCancelledCount() {
+		return cancelled.sum();
+	}
+
+	/**
+	 * 结束时已过截止时间的within调用数
+	 * @return
+	 */
+	public static long getOverrunCount() {
+		return overruns.sum();
+	}
+
+	/**
+	 * 从连接池借用连接，等待时间不超过剩余时间。
+	 * 连接损坏（如读超时）时，归还前先断开，避免连接池销毁连接时发送QUIT再等待一次读超时
+	 * @param pool JedisPool或ShardedJedisPool
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T getResource(Pool<T> pool) {
+		T connection = borrow(pool);
+		if(connection instanceof Jedis){
+			((Jedis) connection).setDataSource((Pool<Jedis>) new DisconnectBrokenPool<>(pool));
+		}else if(connection instanceof ShardedJedis){
+			((ShardedJedis) connection).setDataSource((Pool<ShardedJedis>) new DisconnectBrokenPool<>(pool));
+		}
+		return connection;
+	}
+
+	private static <T> T borrow(Pool<T> pool) {
+		long remaining = remainingMillis();
+		if(remaining < 0)return pool.getResource();
+		@SuppressWarnings("unchecked")
+		GenericObjectPool<T> internalPool = (GenericObjectPool<T>) AdaptivePoolController.internalPool(pool);
+		long maxWait = internalPool.getMaxWaitMillis();
+		boolean limited = maxWait < 0 || remaining < maxWait;
+		try {
+			return internalPool.borrowObject(limited ? remaining : maxWait);
+		} catch (NoSuchElementException e) {
+			if(limited)throw exceeded();
+			throw new JedisException("Could not get a resource from the pool", e);
+		} catch (JedisException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new JedisConnectionException("Could not get a resource from the pool", e);
+		}
+	}
+
+	/**
+	 * 按剩余时间设置连接的读超时，未设置截止时间时恢复为默认读超时
+	 * @param jedis
+	 * @param defaultTimeout 默认读超时（毫秒）
+	 */
+	public static void apply(Jedis jedis, int defaultTimeout) {
+		long remaining = remainingMillis();
+		setSoTimeout(jedis, remaining < 0 ? defaultTimeout : (int) Math.min(remaining, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * 按剩余时间设置分片连接的读超时
+	 * @param shardedJedis
+	 * @param defaultTimeout 默认读超时（毫秒）
+	 */
+	public static void apply(ShardedJedis shardedJedis, int defaultTimeout) {
+		long remaining = remainingMillis();
+		int timeout = remaining < 0 ? defaultTimeout : (int) Math.min(remaining, Integer.MAX_VALUE);
+		for (Jedis jedis : shardedJedis.getAllShards()) {
+			setSoTimeout(jedis, timeout);
+		}
+	}
+
+	private static void disconnectIfBroken(Jedis jedis) {
+		Client client = jedis.getClient();
+		if(client.isBroken() && client.isConnected()){
+			try {
+				client.disconnect();
+			} catch (JedisConnectionException ignore) {
+				//连接已不可用
+			}
+		}
+	}
+
+	private static void setSoTimeout(Jedis jedis, int timeout) {
+		Client client = jedis.getClient();
+		if(client.getSoTimeout() == timeout)return;
+		client.setSoTimeout(timeout);
+		if(client.isConnected()){
+			client.rollbackTimeout();
+		}
+	}
+
+	private static DeadlineExceededException exceeded() {
+		cancelled.increment();
+		return new DeadlineExceededException();
+	}
+
+	/**
+	 * 连接的归还入口，损坏的连接先断开再交给连接池销毁
+	 */
+	private static final class DisconnectBrokenPool<T> extends Pool<T> {
+
+		private final Pool<T> pool;
+
+		DisconnectBrokenPool(Pool<T> pool) {
+			this.pool = pool;
+		}
+
+		//jedis通过setDataSource的连接池归还连接，只能覆盖已废弃的方法
+		@Deprecated
+		@Override
+		public void returnResource(T resource) {
+			pool.returnResource(resource);
+		}
+
+		@Deprecated
+		@Override
+		public void returnBrokenResource(T resource) {
+			if(resource instanceof Jedis){
+				disconnectIfBroken((Jedis) resource);
+			}else if(resource instanceof ShardedJedis){
+				for (Jedis jedis : ((ShardedJedis) resource).getAllShards()) {
+					disconnectIfBroken(jedis);
+				}
+			}
+			pool.returnBrokenResource(resource);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.youhaoxi.base.jedis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 已过调用截止时间，命令没有发送
+ *
+ * 不继承JedisConnectionException，避免JedisCluster换节点重试和刷新slot
+ */
+public class DeadlineExceededException extends JedisException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DeadlineExceededException() {
+		super("redis call deadline exceeded");
+	}
+
+	@Override
+	public Throwable fillInStackTrace() {
+		//快速失败不需要堆栈
+		return this;
+	}
+}
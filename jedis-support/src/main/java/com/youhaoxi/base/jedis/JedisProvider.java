@@ -3,19 +3,133 @@
  */
 package com.youhaoxi.base.jedis;
 
+import com.youhaoxi.base.jedis.provider.AdaptivePoolController;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.springframework.beans.factory.DisposableBean;
+import redis.clients.util.Pool;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @description <br>
  */
 public interface JedisProvider<S,B> extends DisposableBean{
 
+	/**
+	 * 获取客户端。连接池模式下连接绑定到当前线程，必须在finally中调用release，建议改用execute
+	 * @return
+	 */
 	public S get();
 	
 	public B getBinary();
+
+	/**
+	 * 获取用于读命令的客户端（按组配置的ReadMode路由），默认与get()相同
+	 * @return
+	 * @deprecated 连接绑定当前线程，改用executeRead
+	 */
+	@Deprecated
+	default S getRead() {
+		return get();
+	}
+
+	/**
+	 * 获取用于读命令的二进制客户端，默认与getBinary()相同
+	 * @return
+	 * @deprecated 连接绑定当前线程，改用executeBinaryRead
+	 */
+	@Deprecated
+	default B getBinaryRead() {
+		return getBinary();
+	}
 	
+	/**
+	 * 归还当前线程通过get获取的连接
+	 * @deprecated 改用execute，不需要release
+	 */
+	@Deprecated
 	public void release();
+
+	/**
+	 * 借用连接执行操作，执行完归还，不需要调用release
+	 * @param action
+	 * @return action的返回值
+	 */
+	default <T> T execute(Function<S, T> action) {
+		try {
+			return action.apply(get());
+		} finally {
+			release();
+		}
+	}
+
+	default <T> T executeBinary(Function<B, T> action) {
+		try {
+			return action.apply(getBinary());
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * 借用用于读命令的连接（按组配置的ReadMode路由）执行操作，执行完归还
+	 * @param action
+	 * @return action的返回值
+	 */
+	default <T> T executeRead(Function<S, T> action) {
+		try {
+			return action.apply(getRead());
+		} finally {
+			release();
+		}
+	}
+
+	default <T> T executeBinaryRead(Function<B, T> action) {
+		try {
+			return action.apply(getBinaryRead());
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * 在当前线程上以同一连接执行多条命令：范围内的get/execute共用一个连接，release不归还，范围结束时归还
+	 * @param action
+	 * @return action的返回值
+	 */
+	default <T> T withAffinity(Supplier<T> action) {
+		return action.get();
+	}
+	
+	/**
+	 * 组内的连接池（包括从节点），用于监控和调整连接池大小
+	 * @return
+	 */
+	default Collection<? extends Pool<?>> pools() {
+		return Collections.emptyList();
+	}
 	
+	/**
+	 * 预热：按连接池minIdle（至少1个）预先建立连接，集群同时等待slot分布加载完成
+	 * @throws Exception
+	 */
+	default void warmUp() throws Exception {
+		for (Pool<?> pool : pools()) {
+			if(pool.isClosed())continue;
+			GenericObjectPool<?> internalPool = AdaptivePoolController.internalPool(pool);
+			internalPool.preparePool();
+			if(internalPool.getNumIdle() == 0)internalPool.addObject();
+		}
+	}
+
+	/**
+	 * 关闭连接池，不执行组销毁回调（配置变更替换provider后关闭旧的provider）
+	 */
+	default void close() throws Exception {}
+
 	public String mode();
 	
 	public String groupName();
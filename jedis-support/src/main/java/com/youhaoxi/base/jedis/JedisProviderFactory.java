@@ -3,7 +3,13 @@
  */
 package com.youhaoxi.base.jedis;
 
+import com.youhaoxi.base.jedis.local.BinaryLocalCache;
+import com.youhaoxi.base.jedis.local.StaleCache;
+import com.youhaoxi.base.jedis.provider.AutoBatcher;
+import com.youhaoxi.base.jedis.provider.HedgedReader;
+import com.youhaoxi.base.jedis.provider.PooledJedisProvider;
 import com.youhaoxi.base.jedis.provider.cluster.JedisClusterProvider;
+import com.youhaoxi.base.jedis.provider.sharded.JedisShardProvider;
 import com.youhaoxi.base.jedis.provider.standard.JedisStandardProvider;
 import com.youhaoxi.base.spring.InstanceFactory;
 import org.apache.commons.lang3.StringUtils;
@@ -13,30 +19,68 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import redis.clients.jedis.*;
+import redis.clients.util.Pool;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * redis实例工厂
  *
  * 从spring容器中获取redisProvider 并放入map中管理
+ * spring容器刷新完成后并行预热所有provider（建立拓扑、预先创建连接），最多等待warmUpTimeoutMillis，未完成的在后台继续
  * 
  * @description <br>
  */
 @Service
-public class JedisProviderFactory implements ApplicationContextAware,DisposableBean {
+public class JedisProviderFactory implements ApplicationContextAware,DisposableBean,ApplicationListener<ContextRefreshedEvent> {
 
 	protected static final Logger logger = LoggerFactory.getLogger(JedisProviderFactory.class);
 
-	private static JedisProvider<?, ?> defaultJedisProvider;
+	private static volatile JedisProvider<?, ?> defaultJedisProvider;
+
+	private static final ReentrantLock initLock = new ReentrantLock();
 
 	private static Map<String, JedisProvider> jedisProviders = new ConcurrentHashMap<>();
 
+	private static Map<String, List<Runnable>> destroyHooks = new ConcurrentHashMap<>();
+
+	private static Map<String, BinaryLocalCache> localCaches = new ConcurrentHashMap<>();
+
+	private static Map<String, HedgedReader> hedgedReaders = new ConcurrentHashMap<>();
+
+	private static Map<String, AutoBatcher> autoBatchers = new ConcurrentHashMap<>();
+
+	private static Map<String, StaleCache> staleCaches = new ConcurrentHashMap<>();
+
+	//检查被替换的provider是否还有借出的连接的间隔
+	private static final long RETIRE_CHECK_MILLIS = 100;
+
+	private static volatile ScheduledExecutorService retireScheduler;
+
+	//spring容器刷新后等待预热完成的最长毫秒数，0为不等待
+	private static volatile long warmUpTimeoutMillis = 10000;
+
+	//并行预热的最大线程数
+	private static final int WARM_UP_THREADS = 8;
+
     private static ApplicationContext applicationContext = null;
     @Override
     public void destroy() throws Exception {
@@ -48,6 +92,63 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
         this.applicationContext = applicationContext;
     }
 
+	public void setWarmUpTimeoutMillis(long warmUpTimeoutMillis) {
+		JedisProviderFactory.warmUpTimeoutMillis = warmUpTimeoutMillis;
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		//忽略子容器的事件
+		if(event.getApplicationContext() != applicationContext)return;
+		if(applicationContext.getBeanNamesForType(JedisProvider.class).length == 0)return;
+		warmUp(warmUpTimeoutMillis);
+	}
+
+	/**
+	 * 并行预热所有组的provider（最多WARM_UP_THREADS个线程），最多等待timeoutMillis，超时未完成的在后台继续。
+	 * provider由spring按单例依次创建，只有预热并行
+	 * @param timeoutMillis
+	 */
+	public static void warmUp(long timeoutMillis) {
+		if(defaultJedisProvider == null){
+			initFactoryFromSpring();
+		}
+		List<JedisProvider<?, ?>> providers = new ArrayList<>();
+		for (JedisProvider<?, ?> provider : jedisProviders.values()) {
+			providers.add(provider);
+		}
+		if(providers.isEmpty())return;
+		CountDownLatch latch = new CountDownLatch(providers.size());
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(providers.size(), WARM_UP_THREADS), r -> {
+			Thread thread = new Thread(r, "redis-warm-up-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long start = System.currentTimeMillis();
+		for (JedisProvider<?, ?> provider : providers) {
+			executor.execute(() -> {
+				try {
+					provider.warmUp();
+					logger.info("redis provider of group[{}] warmed up in {}ms", provider.groupName(), System.currentTimeMillis() - start);
+				} catch (Exception e) {
+					logger.warn("warm up redis provider of group[" + provider.groupName() + "] falid", e);
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+		//已提交的预热执行完后线程退出
+		executor.shutdown();
+		try {
+			if(!latch.await(timeoutMillis, TimeUnit.MILLISECONDS)){
+				logger.warn("redis providers not warmed up in {}ms,continue in background", timeoutMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 
     public static JedisProvider<?, ?> getJedisProvider(String groupName) {
 		if(defaultJedisProvider == null){			
@@ -63,23 +164,29 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
 		return defaultJedisProvider;
 	}
 
-    private synchronized static void initFactoryFromSpring() {
-		if(defaultJedisProvider == null){
-			//阻塞，直到spring初始化完成
-			//InstanceFactory.waitUtilInitialized();
-
-			Map<String, JedisProvider> interfaces = applicationContext.getBeansOfType(JedisProvider.class);
-			Iterator<JedisProvider> iterator = interfaces.values().iterator();
-			while(iterator.hasNext()){
-				JedisProvider jp = iterator.next();
-				jedisProviders.put(jp.groupName(), jp);
-			}
-			defaultJedisProvider = jedisProviders.get(JedisProviderFactoryBean.DEFAULT_GROUP_NAME);
-			if(defaultJedisProvider == null && jedisProviders.size() == 1){
-				defaultJedisProvider = InstanceFactory.getInstance(JedisProvider.class);
-			}
+    private static void initFactoryFromSpring() {
+		initLock.lock();
+		try {
+			if(defaultJedisProvider == null){
+				//阻塞，直到spring初始化完成
+				//InstanceFactory.waitUtilInitialized();
+
+				Map<String, JedisProvider> interfaces = applicationContext.getBeansOfType(JedisProvider.class);
+				Iterator<JedisProvider> iterator = interfaces.values().iterator();
+				while(iterator.hasNext()){
+					JedisProvider jp = iterator.next();
+					jedisProviders.put(jp.groupName(), jp);
+				}
+				JedisProvider<?, ?> provider = jedisProviders.get(JedisProviderFactoryBean.DEFAULT_GROUP_NAME);
+				if(provider == null && jedisProviders.size() == 1){
+					provider = InstanceFactory.getInstance(JedisProvider.class);
+				}
 
-			Assert.notNull(defaultJedisProvider,"无默认缓存配置，请指定一组缓存配置group为default");
+				Assert.notNull(provider,"无默认缓存配置，请指定一组缓存配置group为default");
+				defaultJedisProvider = provider;
+			}
+		} finally {
+			initLock.unlock();
 		}
 	}
 
@@ -103,10 +210,170 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
 //		}
 //	}
 
+	/**
+	 * 替换组的provider（配置变更后），之后的命令使用新provider。
+	 * 旧provider在借出的连接全部归还后（最多等待graceMillis）关闭连接池，不执行组销毁回调
+	 * @param groupName
+	 * @param provider
+	 * @param graceMillis
+	 */
+	public static void replaceJedisProvider(String groupName, JedisProvider<?, ?> provider, long graceMillis) {
+		replaceJedisProvider(groupName, provider, graceMillis, null);
+	}
+
+	/**
+	 * 替换组的provider
+	 * @param groupName
+	 * @param provider
+	 * @param graceMillis
+	 * @param closer 关闭旧provider（如移除其bean定义），为null时直接关闭
+	 */
+	public static void replaceJedisProvider(String groupName, JedisProvider<?, ?> provider, long graceMillis, Runnable closer) {
+		//确保已从spring加载
+		getJedisProvider(groupName);
+		String group = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		JedisProvider<?, ?> previous = jedisProviders.put(group, provider);
+		if(defaultJedisProvider == previous)defaultJedisProvider = provider;
+		if(previous == null || previous == provider)return;
+		if(provider instanceof PooledJedisProvider && previous instanceof PooledJedisProvider){
+			((PooledJedisProvider<?, ?>) provider).setPrevious((PooledJedisProvider<?, ?>) previous);
+		}
+		retire(group, previous, provider, closer, System.currentTimeMillis() + graceMillis);
+		logger.info("redis provider of group[{}] replaced", group);
+	}
+
+	private static void retire(String group, JedisProvider<?, ?> previous, JedisProvider<?, ?> provider, Runnable closer, long deadline) {
+		ScheduledExecutorService scheduler = retireScheduler();
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				if(hasActive(previous) && System.currentTimeMillis() < deadline){
+					scheduler.schedule(this, RETIRE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+					return;
+				}
+				if(provider instanceof PooledJedisProvider && ((PooledJedisProvider<?, ?>) provider).getPrevious() == previous){
+					((PooledJedisProvider<?, ?>) provider).setPrevious(null);
+				}
+				try {
+					if(closer == null){
+						previous.close();
+					}else{
+						closer.run();
+					}
+					logger.info("replaced redis provider of group[{}] closed", group);
+				} catch (Exception e) {
+					logger.warn("close replaced redis provider of group[" + group + "] error", e);
+				}
+			}
+		};
+		scheduler.schedule(task, RETIRE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private static boolean hasActive(JedisProvider<?, ?> provider) {
+		for (Pool<?> pool : provider.pools()) {
+			if(!pool.isClosed() && pool.getNumActive() > 0)return true;
+		}
+		return false;
+	}
+
+	private static ScheduledExecutorService retireScheduler() {
+		ScheduledExecutorService scheduler = retireScheduler;
+		if(scheduler != null)return scheduler;
+		initLock.lock();
+		try {
+			if(retireScheduler == null){
+				retireScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+					Thread thread = new Thread(r, "redis-provider-retire");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return retireScheduler;
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	/**
+	 * 借用连接执行命令，执行完归还，不需要release（集群模式为JedisCluster）
+	 * @param groupName
+	 * @param command
+	 * @return command的返回值
+	 */
+	public static <T> T execute(String groupName, Function<JedisCommands, T> command) {
+		return getJedisProvider(groupName).execute(client -> command.apply((JedisCommands) client));
+	}
+
+	/**
+	 * 读命令使用，按组配置的ReadMode可能路由到从节点
+	 */
+	public static <T> T executeRead(String groupName, Function<JedisCommands, T> command) {
+		return getJedisProvider(groupName).executeRead(client -> command.apply((JedisCommands) client));
+	}
+
+	/**
+	 * 二进制命令（非集群模式）
+	 */
+	public static <T> T executeBinary(String groupName, Function<BinaryJedisCommands, T> command) {
+		return getJedisProvider(groupName).executeBinary(client -> command.apply((BinaryJedisCommands) client));
+	}
+
+	public static <T> T executeBinaryRead(String groupName, Function<BinaryJedisCommands, T> command) {
+		return getJedisProvider(groupName).executeBinaryRead(client -> command.apply((BinaryJedisCommands) client));
+	}
+
+	/**
+	 * 二进制命令（集群模式）
+	 */
+	public static <T> T executeBinaryCluster(String groupName, Function<BinaryJedisClusterCommands, T> command) {
+		return getJedisProvider(groupName).executeBinary(client -> command.apply((BinaryJedisClusterCommands) client));
+	}
+
+	public static <T> T executeBinaryClusterRead(String groupName, Function<BinaryJedisClusterCommands, T> command) {
+		return getJedisProvider(groupName).executeBinaryRead(client -> command.apply((BinaryJedisClusterCommands) client));
+	}
+
+	/**
+	 * 多key命令（非集群模式）
+	 */
+	public static <T> T executeMultiKey(String groupName, Function<MultiKeyCommands, T> command) {
+		return getJedisProvider(groupName).execute(client -> command.apply((MultiKeyCommands) client));
+	}
+
+	/**
+	 * 多key命令（集群模式）
+	 */
+	public static <T> T executeMultiKeyCluster(String groupName, Function<MultiKeyJedisClusterCommands, T> command) {
+		return getJedisProvider(groupName).execute(client -> command.apply((MultiKeyJedisClusterCommands) client));
+	}
+
+	/**
+	 * 分片模式下在key所在分片上执行命令
+	 * @param groupName
+	 * @param key
+	 * @param command
+	 * @return command的返回值
+	 */
+	public static <T> T executeOnShard(String groupName, String key, Function<Jedis, T> command) {
+		return getJedisProvider(groupName).execute(client -> command.apply(((ShardedJedis) client).getShard(key)));
+	}
+
+	public static <T> T executeOnShard(String groupName, byte[] key, Function<Jedis, T> command) {
+		return getJedisProvider(groupName).execute(client -> command.apply(((ShardedJedis) client).getShard(key)));
+	}
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用execute
+	 */
+	@Deprecated
 	public static JedisCommands getJedisCommands(String groupName) {
 		return (JedisCommands) getJedisProvider(groupName).get();
 	}
 
+	/**
+	 * @deprecated 连接绑定当前线程，改用executeBinary
+	 */
+	@Deprecated
 	public static BinaryJedisCommands getBinaryJedisCommands(String groupName) {
 		return (BinaryJedisCommands) getJedisProvider(groupName).getBinary();
 	}
@@ -119,10 +386,51 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
 		return (JedisCommands) getJedisProvider(groupName).get();
 	}
 	
+	/**
+	 * 读命令使用，按组配置的ReadMode可能路由到从节点
+	 * @deprecated 连接绑定当前线程，改用executeRead
+	 */
+	@Deprecated
+	public static JedisCommands getReadJedisCommands(String groupName) {
+		return (JedisCommands) getJedisProvider(groupName).getRead();
+	}
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用executeBinaryRead
+	 */
+	@Deprecated
+	public static BinaryJedisCommands getReadBinaryJedisCommands(String groupName) {
+		return (BinaryJedisCommands) getJedisProvider(groupName).getBinaryRead();
+	}
+
+	/**
+	 * @deprecated 改用executeRead
+	 */
+	@Deprecated
+	public static JedisCommands getReadJedisClusterCommands(String groupName) {
+		return (JedisCommands) getJedisProvider(groupName).getRead();
+	}
+
+	/**
+	 * @deprecated 改用executeBinaryClusterRead
+	 */
+	@Deprecated
+	public static BinaryJedisClusterCommands getReadBinaryJedisClusterCommands(String groupName) {
+		return (BinaryJedisClusterCommands) getJedisProvider(groupName).getBinaryRead();
+	}
+	
+	/**
+	 * @deprecated 连接绑定当前线程，改用executeMultiKey
+	 */
+	@Deprecated
 	public static MultiKeyCommands getMultiKeyCommands(String groupName) {
 		return (MultiKeyCommands) getJedisProvider(groupName).get();
 	}
 	
+	/**
+	 * @deprecated 连接绑定当前线程，改用execute
+	 */
+	@Deprecated
 	public static MultiKeyBinaryCommands getMultiKeyBinaryCommands(String groupName) {
 		return (MultiKeyBinaryCommands) getJedisProvider(groupName).get();
 	}
@@ -135,6 +443,180 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
 		return (MultiKeyBinaryJedisClusterCommands) getJedisProvider(groupName).get();
 	}
 	
+	/**
+	 * @deprecated 连接绑定当前线程，改用execute
+	 */
+	@Deprecated
+	public static ScriptingCommands getScriptingCommands(String groupName) {
+		return (ScriptingCommands) getJedisProvider(groupName).get();
+	}
+
+	public static JedisClusterScriptingCommands getJedisClusterScriptingCommands(String groupName) {
+		return (JedisClusterScriptingCommands) getJedisProvider(groupName).get();
+	}
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用execute
+	 */
+	@Deprecated
+	public static BinaryScriptingCommands getBinaryScriptingCommands(String groupName) {
+		return (BinaryScriptingCommands) getJedisProvider(groupName).getBinary();
+	}
+
+	public static JedisClusterBinaryScriptingCommands getJedisClusterBinaryScriptingCommands(String groupName) {
+		return (JedisClusterBinaryScriptingCommands) getJedisProvider(groupName).getBinary();
+	}
+
+	/**
+	 * 分片模式下获取key所在分片的连接，随组的连接一起释放
+	 * @param groupName
+	 * @param key
+	 * @return
+	 * @deprecated 连接绑定当前线程，改用executeOnShard
+	 */
+	@Deprecated
+	public static Jedis getShard(String groupName, String key) {
+		return ((ShardedJedis) getJedisProvider(groupName).get()).getShard(key);
+	}
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用executeOnShard
+	 */
+	@Deprecated
+	public static Jedis getShard(String groupName, byte[] key) {
+		return ((ShardedJedis) getJedisProvider(groupName).get()).getShard(key);
+	}
+
+	/**
+	 * 注册组销毁回调，在provider关闭连接池之前执行（如写回本地缓冲的数据）
+	 * @param groupName
+	 * @param hook
+	 */
+	public static void addDestroyHook(String groupName, Runnable hook) {
+		if(StringUtils.isBlank(groupName))groupName = JedisProviderFactoryBean.DEFAULT_GROUP_NAME;
+		destroyHooks.computeIfAbsent(groupName, k -> new CopyOnWriteArrayList<>()).add(hook);
+	}
+
+	/**
+	 * 执行并移除组销毁回调，由provider在destroy时调用；provider已被替换时不执行
+	 * @param groupName
+	 * @param provider
+	 */
+	public static void runDestroyHooks(String groupName, JedisProvider<?, ?> provider) {
+		JedisProvider<?, ?> current = jedisProviders.get(StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName);
+		if(current != null && current != provider)return;
+		runDestroyHooks(groupName);
+	}
+
+	/**
+	 * 执行并移除组销毁回调
+	 * @param groupName
+	 */
+	public static void runDestroyHooks(String groupName) {
+		List<Runnable> hooks = destroyHooks.remove(groupName);
+		if(hooks == null)return;
+		for (Runnable hook : hooks) {
+			try {
+				hook.run();
+			} catch (Exception e) {
+				logger.error("run destroy hook of group["+groupName+"] error", e);
+			}
+		}
+	}
+
+	/**
+	 * 设置组的本地缓存（一级缓存），组销毁时移除
+	 * @param groupName
+	 * @param localCache
+	 */
+	public static void setLocalCache(String groupName, BinaryLocalCache localCache) {
+		final String group = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		localCaches.put(group, localCache);
+		addDestroyHook(group, () -> localCaches.remove(group, localCache));
+	}
+
+	/**
+	 * 获取组的本地缓存，未开启返回null
+	 * @param groupName
+	 * @return
+	 */
+	public static BinaryLocalCache getLocalCache(String groupName) {
+		if(localCaches.isEmpty())return null;
+		return localCaches.get(StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName);
+	}
+
+	/**
+	 * 设置组的过期数据兜底缓存，组销毁时移除并关闭
+	 * @param groupName
+	 * @param staleCache
+	 */
+	public static void setStaleCache(String groupName, StaleCache staleCache) {
+		final String group = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		staleCaches.put(group, staleCache);
+		addDestroyHook(group, () -> {
+			staleCaches.remove(group, staleCache);
+			staleCache.close();
+		});
+	}
+
+	/**
+	 * 获取组的过期数据兜底缓存，未开启返回null
+	 * @param groupName
+	 * @return
+	 */
+	public static StaleCache getStaleCache(String groupName) {
+		if(staleCaches.isEmpty())return null;
+		return staleCaches.get(StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName);
+	}
+
+	/**
+	 * 设置组的对冲读，组销毁时移除并关闭
+	 * @param groupName
+	 * @param hedgedReader
+	 */
+	public static void setHedgedReader(String groupName, HedgedReader hedgedReader) {
+		final String group = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		hedgedReaders.put(group, hedgedReader);
+		addDestroyHook(group, () -> {
+			hedgedReaders.remove(group, hedgedReader);
+			hedgedReader.close();
+		});
+	}
+
+	/**
+	 * 获取组的对冲读，未开启返回null
+	 * @param groupName
+	 * @return
+	 */
+	public static HedgedReader getHedgedReader(String groupName) {
+		if(hedgedReaders.isEmpty())return null;
+		return hedgedReaders.get(StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName);
+	}
+
+	/**
+	 * 设置组的自动批量，组销毁时移除并关闭
+	 * @param groupName
+	 * @param autoBatcher
+	 */
+	public static void setAutoBatcher(String groupName, AutoBatcher autoBatcher) {
+		final String group = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		autoBatchers.put(group, autoBatcher);
+		addDestroyHook(group, () -> {
+			autoBatchers.remove(group, autoBatcher);
+			autoBatcher.close();
+		});
+	}
+
+	/**
+	 * 获取组的自动批量，未开启返回null
+	 * @param groupName
+	 * @return
+	 */
+	public static AutoBatcher getAutoBatcher(String groupName) {
+		if(autoBatchers.isEmpty())return null;
+		return autoBatchers.get(StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName);
+	}
+
 	public static String currentMode(String groupName){
 		return getJedisProvider(groupName).mode();
 	}
@@ -147,5 +629,9 @@ public class JedisProviderFactory implements ApplicationContextAware,DisposableB
 		return JedisClusterProvider.MODE.equals(currentMode(groupName));
 	}
 
+	public static boolean isSharded(String groupName){
+		return JedisShardProvider.MODE.equals(currentMode(groupName));
+	}
+
 
 }
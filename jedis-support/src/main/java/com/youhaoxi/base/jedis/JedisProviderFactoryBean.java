@@ -3,9 +3,22 @@
  */
 package com.youhaoxi.base.jedis;
 
+import com.youhaoxi.base.jedis.local.BinaryLocalCache;
+import com.youhaoxi.base.jedis.local.OffHeapLocalCache;
+import com.youhaoxi.base.jedis.local.PersistentLocalCache;
+import com.youhaoxi.base.jedis.local.StaleCache;
+import com.youhaoxi.base.jedis.provider.AdaptivePoolController;
+import com.youhaoxi.base.jedis.provider.AutoBatcher;
+import com.youhaoxi.base.jedis.provider.CircuitBreaker;
+import com.youhaoxi.base.jedis.provider.HedgedReader;
+import com.youhaoxi.base.jedis.provider.PooledJedisProvider;
 import com.youhaoxi.base.jedis.provider.cluster.JedisClusterProvider;
+import com.youhaoxi.base.jedis.provider.sentinel.JedisSentinelProvider;
+import com.youhaoxi.base.jedis.provider.sharded.JedisShardProvider;
 import com.youhaoxi.base.jedis.provider.standard.JedisStandardProvider;
+import com.youhaoxi.base.jedis.util.ResourceUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -16,9 +29,17 @@ import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -39,6 +60,8 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 	public static final String DEFAULT_GROUP_NAME = "default";
 	
 	private static final String REDIS_PROVIDER_SUFFIX = "RedisProvider";
+
+	private static final String POOL_CONTROLLER_SUFFIX = "RedisPoolController";
 	
 	private Pattern pattern = Pattern.compile("^.+[:]\\d{1,5}\\s*$");
 
@@ -48,8 +71,53 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 	
 	//用来区分不同组的缓存
 	private String group;
+	//host:port，多个用逗号分隔；sharded模式可配置权重host:port:weight
 	private String servers;
 	private Integer timeout;
+	//读命令路由方式
+	private ReadMode readMode = ReadMode.MASTER_ONLY;
+	//哨兵模式监控的主节点名称
+	private String masterName;
+	//同时使用连接的最大线程数（信号量限制），连接池大小按此设置，0为按连接池大小限制；大量虚拟线程时使用，
+	//线程排队在信号量上而不是连接池上，吞吐量仍受这些连接限制
+	private int maxConcurrency;
+	//连接池自适应调整的上下限（每个节点），poolMaxTotal大于0时开启，运行时按负载调整maxTotal/minIdle
+	private int poolMinTotal = 1;
+	private int poolMaxTotal;
+	//按节点熔断的失败率阈值(0,1]，0为不开启；熔断后快速失败的毫秒数
+	private double circuitBreakerFailureRate;
+	private long circuitBreakerOpenMillis = 5000;
+	//对冲读占读命令的最大比例(0,1]，0为不开启；需配置从节点且readMode不是MASTER_ONLY
+	private double hedgedReadBudget;
+	private int hedgedReadMaxThreads = 256;
+	//自动批量：多个线程同时发出的读命令按节点合并为pipeline，收集一批的窗口（微秒），0为不开启；一批最多命令数
+	private long autoBatchWindowMicros;
+	private int autoBatchMaxSize = 128;
+	//按操作类别的调用超时（毫秒），配合Deadline.within(operation, ...)使用，对所有组生效
+	private Map<String, Long> operationTimeouts;
+
+	//本地缓存（堆外）容量，单位MB，0为不开启
+	private int localCacheCapacityMb;
+	private long localCacheExpireSeconds = CacheExpires.IN_1MIN;
+	//本地缓存快照文件，配置后重启时从快照预热本地缓存
+	private String localCacheSnapshotFile;
+	//过期数据兜底缓存（堆外）容量，单位MB，0为不开启；redis出错时返回保留期内的旧值
+	private int staleCacheCapacityMb;
+	private long staleCacheExpireSeconds = CacheExpires.IN_1HOUR;
+	//配置文件中本组配置的key前缀（如redis.default），配置后读取<前缀>.mode/servers/timeout/readMode/masterName
+	//及连接池参数<前缀>.maxTotal/maxIdle/minIdle/maxWaitMillis（覆盖spring中的配置），并监听配置文件变更：
+	//连接池参数直接调整，servers/timeout/readMode/masterName变更时创建新provider替换，mode不支持运行时变更
+	private String configPrefix;
+	//替换provider后，旧provider等待借出连接归还的最长毫秒数
+	private long reloadGraceMillis = 10000;
+	//已替换provider的次数
+	private int generation;
+	//当前provider的bean名
+	private String providerBeanName;
+	//配置文件变更监听，销毁后为null
+	private Consumer<Set<String>> changeListener;
+	//应用配置变更（替换provider）与销毁互斥
+	private final ReentrantLock configLock = new ReentrantLock();
 	
 	private ApplicationContext context;
 
@@ -77,7 +145,83 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 	public void setTimeout(Integer timeout) {
 		this.timeout = timeout;
 	}
+
+	public void setReadMode(ReadMode readMode) {
+		this.readMode = readMode;
+	}
+
+	public void setMasterName(String masterName) {
+		this.masterName = masterName;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public void setPoolMinTotal(int poolMinTotal) {
+		this.poolMinTotal = poolMinTotal;
+	}
+
+	public void setPoolMaxTotal(int poolMaxTotal) {
+		this.poolMaxTotal = poolMaxTotal;
+	}
+
+	public void setCircuitBreakerFailureRate(double circuitBreakerFailureRate) {
+		this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+	}
+
+	public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+		this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+	}
+
+	public void setHedgedReadBudget(double hedgedReadBudget) {
+		this.hedgedReadBudget = hedgedReadBudget;
+	}
+
+	public void setHedgedReadMaxThreads(int hedgedReadMaxThreads) {
+		this.hedgedReadMaxThreads = hedgedReadMaxThreads;
+	}
+
+	public void setAutoBatchWindowMicros(long autoBatchWindowMicros) {
+		this.autoBatchWindowMicros = autoBatchWindowMicros;
+	}
+
+	public void setAutoBatchMaxSize(int autoBatchMaxSize) {
+		this.autoBatchMaxSize = autoBatchMaxSize;
+	}
+
+	public void setOperationTimeouts(Map<String, Long> operationTimeouts) {
+		this.operationTimeouts = operationTimeouts;
+	}
+
+	public void setLocalCacheCapacityMb(int localCacheCapacityMb) {
+		this.localCacheCapacityMb = localCacheCapacityMb;
+	}
+
+	public void setLocalCacheExpireSeconds(long localCacheExpireSeconds) {
+		this.localCacheExpireSeconds = localCacheExpireSeconds;
+	}
+
+	public void setLocalCacheSnapshotFile(String localCacheSnapshotFile) {
+		this.localCacheSnapshotFile = localCacheSnapshotFile;
+	}
 	
+	public void setStaleCacheCapacityMb(int staleCacheCapacityMb) {
+		this.staleCacheCapacityMb = staleCacheCapacityMb;
+	}
+
+	public void setStaleCacheExpireSeconds(long staleCacheExpireSeconds) {
+		this.staleCacheExpireSeconds = staleCacheExpireSeconds;
+	}
+
+	public void setConfigPrefix(String configPrefix) {
+		this.configPrefix = configPrefix;
+	}
+
+	public void setReloadGraceMillis(long reloadGraceMillis) {
+		this.reloadGraceMillis = reloadGraceMillis;
+	}
+
 	@Override
 	public void setApplicationContext(ApplicationContext context) throws BeansException {
 		this.context = context;
@@ -88,6 +232,7 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
      */
     @Override
     public void destroy() throws Exception {
+        removeChangeListener();
         applicationContext = null;
     }
 
@@ -99,10 +244,253 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		if(jedisPoolConfig == null)throw new Exception("jedisPoolConfig Not config ??");
+		if(org.apache.commons.lang3.StringUtils.isNotBlank(configPrefix)){
+			//连接池配置可能被多个组共用，运行时调整只修改本组的副本
+			jedisPoolConfig = (JedisPoolConfig) jedisPoolConfig.clone();
+			loadConfig();
+		}
 		if(org.apache.commons.lang3.StringUtils.isAnyBlank(mode,servers)){
 			throw new Exception("type or servers is empty??");
 		}
 		registerRedisProvier(); 
+		registerPoolController();
+		registerHedgedReader();
+		registerAutoBatcher();
+		registerLocalCache();
+		registerStaleCache();
+		if(operationTimeouts != null){
+			operationTimeouts.forEach(Deadline::setOperationTimeout);
+		}
+		if(org.apache.commons.lang3.StringUtils.isNotBlank(configPrefix)){
+			changeListener = this::onConfigChanged;
+			ResourceUtils.addChangeListener(changeListener);
+			ResourceUtils.watch();
+		}
+	}
+
+	/**
+	 * 从配置文件读取本组配置，未配置的项保留原值
+	 */
+	private void loadConfig() {
+		String prefix = configPrefix + ".";
+		//先全部解析，格式错误时不修改
+		String value = ResourceUtils.get(prefix + "timeout");
+		Integer timeout = value == null ? this.timeout : Integer.valueOf(value.trim());
+		value = ResourceUtils.get(prefix + "readMode");
+		ReadMode readMode = value == null ? this.readMode : ReadMode.valueOf(value.trim().toUpperCase());
+		int maxTotal = intConfig(prefix + "maxTotal", jedisPoolConfig.getMaxTotal());
+		int maxIdle = intConfig(prefix + "maxIdle", jedisPoolConfig.getMaxIdle());
+		int minIdle = intConfig(prefix + "minIdle", jedisPoolConfig.getMinIdle());
+		value = ResourceUtils.get(prefix + "maxWaitMillis");
+		long maxWaitMillis = value == null ? jedisPoolConfig.getMaxWaitMillis() : Long.parseLong(value.trim());
+
+		this.mode = ResourceUtils.get(prefix + "mode", mode);
+		this.servers = ResourceUtils.get(prefix + "servers", servers);
+		this.masterName = ResourceUtils.get(prefix + "masterName", masterName);
+		this.timeout = timeout;
+		this.readMode = readMode;
+		jedisPoolConfig.setMaxTotal(maxTotal);
+		jedisPoolConfig.setMaxIdle(maxIdle);
+		jedisPoolConfig.setMinIdle(minIdle);
+		jedisPoolConfig.setMaxWaitMillis(maxWaitMillis);
+	}
+
+	private int intConfig(String key, int defaultValue) {
+		String value = ResourceUtils.get(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * 配置文件变更后应用本组配置
+	 * @param keys 变更的key
+	 */
+	private void onConfigChanged(Set<String> keys) {
+		configLock.lock();
+		try {
+			//已销毁
+			if(changeListener == null)return;
+			applyConfig(keys);
+		} finally {
+			configLock.unlock();
+		}
+	}
+
+	private void applyConfig(Set<String> keys) {
+		String prefix = configPrefix + ".";
+		if(keys.stream().noneMatch(k -> k.startsWith(prefix)))return;
+		//确保替换前已从spring加载全部provider
+		JedisProvider<?, ?> provider = JedisProviderFactory.getJedisProvider(getGroup());
+		String mode = this.mode, servers = this.servers, masterName = this.masterName;
+		Integer timeout = this.timeout;
+		ReadMode readMode = this.readMode;
+		try {
+			loadConfig();
+		} catch (Exception e) {
+			logger.warn("invalid redis config of group[" + getGroup() + "],ignored", e);
+			return;
+		}
+		if(!this.mode.equalsIgnoreCase(mode)){
+			logger.warn("mode不支持运行时变更，忽略group[{}]的mode:{}", getGroup(), this.mode);
+			this.mode = mode;
+		}
+		if(this.servers.equals(servers) && Objects.equals(this.timeout, timeout)
+				&& this.readMode == readMode && Objects.equals(this.masterName, masterName)){
+			resizePools(provider);
+			return;
+		}
+		try {
+			replaceProvider();
+			//对冲读的worker使用调用线程的截止时间，不依赖timeout
+			AutoBatcher autoBatcher = JedisProviderFactory.getAutoBatcher(getGroup());
+			if(autoBatcher != null)autoBatcher.setTimeoutMillis(this.timeout);
+		} catch (Exception e) {
+			logger.error("replace redis provider of group[" + getGroup() + "] falid,keep using " + servers, e);
+			this.servers = servers;
+			this.timeout = timeout;
+			this.readMode = readMode;
+			this.masterName = masterName;
+			resizePools(provider);
+		}
+	}
+
+	private void removeChangeListener() {
+		configLock.lock();
+		try {
+			if(changeListener == null)return;
+			ResourceUtils.removeChangeListener(changeListener);
+			changeListener = null;
+		} finally {
+			configLock.unlock();
+		}
+	}
+
+	/**
+	 * 按当前配置调整已有连接池；开启了自适应调整或maxConcurrency时连接池大小不由配置决定，只调整等待时长
+	 * @param provider
+	 */
+	private void resizePools(JedisProvider<?, ?> provider) {
+		boolean sizeFixed = poolMaxTotal > 0 || maxConcurrency > 0;
+		for (Pool<?> pool : provider.pools()) {
+			if(pool.isClosed())continue;
+			GenericObjectPool<?> internalPool = AdaptivePoolController.internalPool(pool);
+			if(!sizeFixed){
+				internalPool.setMaxTotal(jedisPoolConfig.getMaxTotal());
+				internalPool.setMaxIdle(jedisPoolConfig.getMaxIdle());
+				internalPool.setMinIdle(jedisPoolConfig.getMinIdle());
+			}
+			internalPool.setMaxWaitMillis(jedisPoolConfig.getMaxWaitMillis());
+		}
+		logger.info("redis pools of group[{}] reconfigured,maxTotal:{},maxIdle:{},minIdle:{},maxWaitMillis:{}", getGroup(),
+				jedisPoolConfig.getMaxTotal(), jedisPoolConfig.getMaxIdle(), jedisPoolConfig.getMinIdle(), jedisPoolConfig.getMaxWaitMillis());
+	}
+
+	/**
+	 * 按当前配置创建新provider并替换，旧provider在借出的连接归还后关闭
+	 */
+	private void replaceProvider() throws Exception {
+		String beanName = getGroup() + REDIS_PROVIDER_SUFFIX + "#" + (++generation);
+		DefaultListableBeanFactory acf = (DefaultListableBeanFactory) context.getAutowireCapableBeanFactory();
+		acf.registerBeanDefinition(beanName, providerDefinition().getRawBeanDefinition());
+		JedisProvider<?, ?> provider;
+		try {
+			provider = context.getBean(beanName, JedisProvider.class);
+		} catch (BeansException e) {
+			acf.removeBeanDefinition(beanName);
+			throw e;
+		}
+		try {
+			//新provider可用后再替换
+			provider.warmUp();
+		} catch (Exception e) {
+			//未替换的provider销毁时不执行组销毁回调
+			acf.removeBeanDefinition(beanName);
+			throw e;
+		}
+		String previousBeanName = providerBeanName;
+		providerBeanName = beanName;
+		//初始provider被连接池自适应调整等bean引用，移除定义会连带销毁它们，只关闭连接池
+		Runnable closer = previousBeanName.equals(getGroup() + REDIS_PROVIDER_SUFFIX) ? null : () -> removeProviderDefinition(previousBeanName);
+		JedisProviderFactory.replaceJedisProvider(getGroup(), provider, reloadGraceMillis, closer);
+		String controllerName = getGroup() + POOL_CONTROLLER_SUFFIX;
+		if(context.containsBean(controllerName)){
+			context.getBean(controllerName, AdaptivePoolController.class).setProvider(provider);
+		}
+		logger.info("redis provider of group[{}] replaced by {},servers:{}", getGroup(), beanName, servers);
+	}
+
+	/**
+	 * 移除被替换的provider的bean定义，由spring销毁；容器已关闭时由容器销毁
+	 * @param beanName
+	 */
+	private void removeProviderDefinition(String beanName) {
+		if(context instanceof ConfigurableApplicationContext && !((ConfigurableApplicationContext) context).isActive())return;
+		DefaultListableBeanFactory acf = (DefaultListableBeanFactory) context.getAutowireCapableBeanFactory();
+		if(acf.containsBeanDefinition(beanName)){
+			acf.removeBeanDefinition(beanName);
+		}
+	}
+
+	private void registerHedgedReader() {
+		if(hedgedReadBudget <= 0)return;
+		if(readMode == ReadMode.MASTER_ONLY || JedisShardProvider.MODE.equalsIgnoreCase(mode)){
+			logger.warn("对冲读需要配置从节点且readMode不是MASTER_ONLY，忽略hedgedReadBudget:{}", hedgedReadBudget);
+			return;
+		}
+		JedisProviderFactory.setHedgedReader(getGroup(), new HedgedReader(getGroup(), hedgedReadBudget, hedgedReadMaxThreads));
+		logger.info("register hedged reader OK,group:{},budget:{}", getGroup(), hedgedReadBudget);
+	}
+
+	private void registerAutoBatcher() {
+		if(autoBatchWindowMicros <= 0)return;
+		if(JedisShardProvider.MODE.equalsIgnoreCase(mode)){
+			logger.warn("sharded模式不支持自动批量，忽略autoBatchWindowMicros:{}", autoBatchWindowMicros);
+			return;
+		}
+		JedisProviderFactory.setAutoBatcher(getGroup(), new AutoBatcher(getGroup(), autoBatchWindowMicros, autoBatchMaxSize, timeout));
+		logger.info("register auto batcher OK,group:{},window:{}us,maxBatchSize:{}", getGroup(), autoBatchWindowMicros, autoBatchMaxSize);
+	}
+
+	private void registerLocalCache() {
+		if(localCacheCapacityMb <= 0)return;
+		long capacity = localCacheCapacityMb * 1024L * 1024L;
+		BinaryLocalCache localCache = new OffHeapLocalCache(capacity, localCacheExpireSeconds * 1000);
+		if(org.apache.commons.lang3.StringUtils.isNotBlank(localCacheSnapshotFile)){
+			//快照文件最大为缓存容量的2倍（含已删除/覆盖的记录）
+			PersistentLocalCache persistentLocalCache = new PersistentLocalCache(localCache, localCacheSnapshotFile,
+					Math.min(capacity * 2, Integer.MAX_VALUE), localCacheExpireSeconds * 1000);
+			JedisProviderFactory.addDestroyHook(getGroup(), persistentLocalCache::shutdown);
+			localCache = persistentLocalCache;
+		}
+		JedisProviderFactory.setLocalCache(getGroup(), localCache);
+		logger.info("register local cache OK,group:{},capacity:{}MB", getGroup(), localCacheCapacityMb);
+	}
+
+	private void registerStaleCache() {
+		if(staleCacheCapacityMb <= 0)return;
+		final String group = getGroup();
+		BinaryLocalCache store = new OffHeapLocalCache(staleCacheCapacityMb * 1024L * 1024L, staleCacheExpireSeconds * 1000);
+		JedisProviderFactory.setStaleCache(group, new StaleCache(group, store, key -> {
+			if(JedisProviderFactory.isCluster(group)){
+				return JedisProviderFactory.executeBinaryCluster(group, c -> c.get(SafeEncoder.encode(key)));
+			}
+			return JedisProviderFactory.executeBinary(group, c -> c.get(SafeEncoder.encode(key)));
+		}, 1000));
+		logger.info("register stale cache OK,group:{},capacity:{}MB,expire:{}s", group, staleCacheCapacityMb, staleCacheExpireSeconds);
+	}
+
+	private void registerPoolController() {
+		if(poolMaxTotal <= 0)return;
+		if(maxConcurrency > 0){
+			logger.warn("已配置maxConcurrency，连接池大小固定，忽略poolMaxTotal:{}", poolMaxTotal);
+			return;
+		}
+		DefaultListableBeanFactory acf = (DefaultListableBeanFactory) context.getAutowireCapableBeanFactory();
+		BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(AdaptivePoolController.class)
+				.addConstructorArgReference(getGroup() + REDIS_PROVIDER_SUFFIX)
+				.addConstructorArgValue(poolMinTotal).addConstructorArgValue(poolMaxTotal)
+				.setInitMethodName("start").setDestroyMethodName("close");
+		acf.registerBeanDefinition(getGroup() + POOL_CONTROLLER_SUFFIX, beanDefinitionBuilder.getRawBeanDefinition());
+		logger.info("register AdaptivePoolController OK,group:{},bounds:[{},{}]", getGroup(), poolMinTotal, poolMaxTotal);
 	}
 
 	/**
@@ -113,7 +501,20 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 		if(context.containsBean(beanName)){
 			throw new RuntimeException("已包含group为［"+this.group+"］的缓存实例");
 		}
-		
+		BeanDefinitionBuilder beanDefinitionBuilder = providerDefinition();
+		DefaultListableBeanFactory acf = (DefaultListableBeanFactory) context.getAutowireCapableBeanFactory();
+		acf.registerBeanDefinition(beanName, beanDefinitionBuilder.getRawBeanDefinition());
+		providerBeanName = beanName;
+		//
+		logger.info("register JedisProvider OK,Class:{},beanName:{},readMode:{}",
+				ClassUtils.getShortName(beanDefinitionBuilder.getRawBeanDefinition().getBeanClassName()),beanName,readMode);
+	}
+
+	/**
+	 * 按当前配置创建provider的bean定义
+	 * @return
+	 */
+	private BeanDefinitionBuilder providerDefinition() {
 		String[] servers = StringUtils.tokenizeToStringArray(this.servers, ConfigurableApplicationContext.CONFIG_LOCATION_DELIMITERS);
 		
 		//检查ip和port格式
@@ -128,17 +529,49 @@ public class JedisProviderFactoryBean implements ApplicationContextAware,Initial
 			beanClass = JedisStandardProvider.class;
 		}else if(JedisClusterProvider.MODE.equalsIgnoreCase(mode)){
 			beanClass = JedisClusterProvider.class;
+		}else if(JedisSentinelProvider.MODE.equalsIgnoreCase(mode)){
+			if(org.apache.commons.lang3.StringUtils.isBlank(masterName)){
+				throw new RuntimeException("sentinel模式需要配置参数masterName");
+			}
+			beanClass = JedisSentinelProvider.class;
+		}else if(JedisShardProvider.MODE.equalsIgnoreCase(mode)){
+			beanClass = JedisShardProvider.class;
 		}else{
 			throw new RuntimeException("参数mode："+this.mode+"不支持");
 		}
 		
-		//注册prov
-		DefaultListableBeanFactory acf = (DefaultListableBeanFactory) context.getAutowireCapableBeanFactory();  
 		BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(beanClass);
-		beanDefinitionBuilder.addConstructorArgValue(getGroup()).addConstructorArgValue(jedisPoolConfig).addConstructorArgValue(servers).addConstructorArgValue(timeout);
-		acf.registerBeanDefinition(beanName, beanDefinitionBuilder.getRawBeanDefinition());
-		//
-		logger.info("register JedisProvider OK,Class:{},beanName:{}",beanClass.getSimpleName(),beanName);
+		JedisPoolConfig poolConfig = jedisPoolConfig;
+		if(maxConcurrency > 0){
+			if(PooledJedisProvider.class.isAssignableFrom(beanClass)){
+				//由信号量排队，连接池不再等待
+				poolConfig = (JedisPoolConfig) jedisPoolConfig.clone();
+				poolConfig.setMaxTotal(maxConcurrency);
+				beanDefinitionBuilder.addPropertyValue("maxConcurrency", maxConcurrency);
+				beanDefinitionBuilder.addPropertyValue("acquireTimeoutMillis", jedisPoolConfig.getMaxWaitMillis());
+			}else{
+				logger.warn("{}模式不支持maxConcurrency，忽略:{}", mode, maxConcurrency);
+			}
+		}
+		beanDefinitionBuilder.addConstructorArgValue(getGroup()).addConstructorArgValue(poolConfig).addConstructorArgValue(servers).addConstructorArgValue(timeout);
+		if(beanClass == JedisShardProvider.class){
+			if(readMode != ReadMode.MASTER_ONLY){
+				logger.warn("sharded模式不支持读从节点，忽略readMode:{}", readMode);
+			}
+		}else{
+			beanDefinitionBuilder.addConstructorArgValue(readMode);
+		}
+		if(beanClass == JedisSentinelProvider.class){
+			beanDefinitionBuilder.addConstructorArgValue(masterName);
+		}
+		if(circuitBreakerFailureRate > 0){
+			if(beanClass == JedisShardProvider.class){
+				logger.warn("sharded模式不支持熔断，忽略circuitBreakerFailureRate:{}", circuitBreakerFailureRate);
+			}else{
+				beanDefinitionBuilder.addPropertyValue("circuitBreaker", new CircuitBreaker(getGroup(), circuitBreakerFailureRate, circuitBreakerOpenMillis));
+			}
+		}
+		return beanDefinitionBuilder;
 	}
 
 
@@ -0,0 +1,29 @@
+package com.youhaoxi.base.jedis;
+
+/**
+ * 读命令路由方式
+ *
+ * 只作用于RedisCluster中的读命令，写命令始终发往主节点。从节点的数据可能短暂落后于主节点。
+ */
+public enum ReadMode {
+
+	/**
+	 * 只读主节点（默认）
+	 */
+	MASTER_ONLY,
+
+	/**
+	 * 随机读一个可用的从节点，没有可用从节点时读主节点
+	 */
+	REPLICA_PREFERRED,
+
+	/**
+	 * 读探测延迟最低的节点（含主节点）
+	 */
+	NEAREST,
+
+	/**
+	 * 在可用的从节点之间轮询，没有可用从节点时读主节点
+	 */
+	ROUND_ROBIN
+}
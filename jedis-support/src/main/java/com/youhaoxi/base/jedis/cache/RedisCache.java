@@ -0,0 +1,306 @@
+package com.youhaoxi.base.jedis.cache;
+
+import com.youhaoxi.base.jedis.client.RedisBase;
+import com.youhaoxi.base.jedis.local.LocalCache;
+import com.youhaoxi.base.jedis.serializer.Serializer;
+import org.apache.commons.lang3.RandomUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.util.SafeEncoder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getJedisProvider;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+/**
+ * 基于redis的spring Cache实现
+ *
+ * key格式：[组的key前缀]缓存名:key；null值以空字节数组保存（allowNullValues为true时）。
+ * 开启本地缓存时先读本地缓存，本地缓存仅在当前进程内失效，其他节点依赖本地过期时间。
+ * get(key, valueLoader)在进程内对同一key只有一个线程执行加载（single-flight）。
+ */
+public class RedisCache extends AbstractValueAdaptingCache {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisCache.class);
+
+	private static final byte[] NULL_BYTES = new byte[0];
+
+	private static final byte[] NX = SafeEncoder.encode("NX");
+
+	private static final byte[] EX = SafeEncoder.encode("EX");
+
+	private static final int SCAN_COUNT = 1000;
+
+	private final String name;
+
+	private final String groupName;
+
+	private final String keyPrefix;
+
+	private final Serializer serializer;
+
+	private final long expireSeconds;
+
+	private final long expireJitterSeconds;
+
+	private final LocalCache localCache;
+
+	private final Map<Object, FutureTask<Object>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param name 缓存名
+	 * @param groupName redis组名
+	 * @param serializer 序列化器
+	 * @param expireSeconds 过期秒数，小于等于0不过期
+	 * @param expireJitterSeconds 过期时间随机增加的最大秒数，避免同时失效
+	 * @param localCache 本地缓存，可为null
+	 * @param allowNullValues 是否缓存null
+	 */
+	public RedisCache(String name, String groupName, Serializer serializer, long expireSeconds,
+			long expireJitterSeconds, LocalCache localCache, boolean allowNullValues) {
+		super(allowNullValues);
+		this.name = name;
+		this.groupName = groupName;
+		this.keyPrefix = RedisBase.prefixKey(name + ":", groupName);
+		this.serializer = serializer;
+		this.expireSeconds = expireSeconds;
+		this.expireJitterSeconds = expireJitterSeconds;
+		this.localCache = localCache;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return this;
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		String cacheKey = cacheKey(key);
+		if(localCache != null){
+			Object value = localCache.get(cacheKey);
+			//堆外缓存反序列化得到的是新的NullValue实例
+			if(value instanceof NullValue)return NullValue.INSTANCE;
+			if(value != null)return value;
+		}
+		byte[] rawKey = SafeEncoder.encode(cacheKey);
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.get(rawKey));
+		}else{
+			bytes = executeBinary(groupName, c -> c.get(rawKey));
+		}
+		if(bytes == null)return null;
+		Object value = deserialize(cacheKey, bytes);
+		if(value != null && localCache != null){
+			localCache.put(cacheKey, value, 0);
+		}
+		return value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		ValueWrapper wrapper = get(key);
+		if(wrapper != null)return (T) wrapper.get();
+
+		FutureTask<Object> task = new FutureTask<>(() -> {
+			ValueWrapper loaded = get(key);
+			if(loaded != null)return loaded.get();
+			T value = valueLoader.call();
+			put(key, value);
+			return value;
+		});
+		FutureTask<Object> existing = loading.putIfAbsent(key, task);
+		if(existing == null){
+			try {
+				task.run();
+			} finally {
+				loading.remove(key, task);
+			}
+			existing = task;
+		}
+		try {
+			return (T) existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ValueRetrievalException(key, valueLoader, e);
+		} catch (ExecutionException e) {
+			throw new ValueRetrievalException(key, valueLoader, e.getCause());
+		}
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		String cacheKey = cacheKey(key);
+		Object storeValue = toStoreValue(value);
+		byte[] rawKey = SafeEncoder.encode(cacheKey);
+		byte[] bytes = serialize(storeValue);
+		int seconds = expireSeconds();
+		if(isCluster(groupName)){
+			if(seconds > 0){
+				executeBinaryCluster(groupName, c -> c.setex(rawKey, seconds, bytes));
+			}else{
+				executeBinaryCluster(groupName, c -> c.set(rawKey, bytes));
+			}
+		}else{
+			if(seconds > 0){
+				executeBinary(groupName, c -> c.setex(rawKey, seconds, bytes));
+			}else{
+				executeBinary(groupName, c -> c.set(rawKey, bytes));
+			}
+		}
+		if(localCache != null){
+			localCache.put(cacheKey, storeValue, 0);
+		}
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		String cacheKey = cacheKey(key);
+		Object storeValue = toStoreValue(value);
+		byte[] rawKey = SafeEncoder.encode(cacheKey);
+		byte[] bytes = serialize(storeValue);
+		int seconds = expireSeconds();
+		String result;
+		if(isCluster(groupName)){
+			result = seconds > 0 ? executeBinaryCluster(groupName, c -> c.set(rawKey, bytes, NX, EX, seconds))
+					: executeBinaryCluster(groupName, c -> c.setnx(rawKey, bytes)) == 1 ? "OK" : null;
+		}else{
+			result = seconds > 0 ? executeBinary(groupName, c -> c.set(rawKey, bytes, NX, EX, seconds))
+					: executeBinary(groupName, c -> c.setnx(rawKey, bytes)) == 1 ? "OK" : null;
+		}
+		if(result != null){
+			if(localCache != null){
+				localCache.put(cacheKey, storeValue, 0);
+			}
+			return null;
+		}
+		return get(key);
+	}
+
+	@Override
+	public void evict(Object key) {
+		String cacheKey = cacheKey(key);
+		if(localCache != null){
+			localCache.remove(cacheKey);
+		}
+		byte[] rawKey = SafeEncoder.encode(cacheKey);
+		if(isCluster(groupName)){
+			executeBinaryCluster(groupName, c -> c.del(rawKey));
+		}else{
+			executeBinary(groupName, c -> c.del(rawKey));
+		}
+	}
+
+	/**
+	 * 清空缓存：SCAN匹配缓存名前缀的key并删除（集群模式下遍历所有主节点）
+	 */
+	@Override
+	public void clear() {
+		if(localCache != null){
+			localCache.clear();
+		}
+		String pattern = escapeGlob(keyPrefix) + "*";
+		getJedisProvider(groupName).execute(client -> {
+			if(client instanceof JedisCluster){
+				for (JedisPool pool : ((JedisCluster) client).getClusterNodes().values()) {
+					try (Jedis jedis = pool.getResource()) {
+						if(jedis.info("replication").contains("role:master")){
+							scanDelete(jedis, pattern);
+						}
+					}
+				}
+			}else if(client instanceof ShardedJedis){
+				for (Jedis jedis : ((ShardedJedis) client).getAllShards()) {
+					scanDelete(jedis, pattern);
+				}
+			}else{
+				scanDelete((Jedis) client, pattern);
+			}
+			return null;
+		});
+	}
+
+	private void scanDelete(Jedis jedis, String pattern) {
+		ScanParams params = new ScanParams().match(pattern).count(SCAN_COUNT);
+		String cursor = ScanParams.SCAN_POINTER_START;
+		do {
+			ScanResult<String> result = jedis.scan(cursor, params);
+			List<String> keys = result.getResult();
+			if(!keys.isEmpty()){
+				//集群模式下逐个删除，避免CROSSSLOT
+				for (String key : keys) {
+					jedis.del(key);
+				}
+			}
+			cursor = result.getStringCursor();
+		} while(!ScanParams.SCAN_POINTER_START.equals(cursor));
+	}
+
+	private String cacheKey(Object key) {
+		return keyPrefix.concat(String.valueOf(key));
+	}
+
+	private int expireSeconds() {
+		if(expireSeconds <= 0)return 0;
+		long seconds = expireSeconds;
+		if(expireJitterSeconds > 0){
+			//避免某些缓存同时失效，加随机时长
+			seconds += RandomUtils.nextLong(0, expireJitterSeconds + 1);
+		}
+		return (int) Math.min(Integer.MAX_VALUE, seconds);
+	}
+
+	private byte[] serialize(Object storeValue) {
+		if(storeValue == NullValue.INSTANCE)return NULL_BYTES;
+		try {
+			return serializer.serialize(storeValue);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("RedisCache[" + name + "] serialize error", e);
+		}
+	}
+
+	private Object deserialize(String cacheKey, byte[] bytes) {
+		if(bytes.length == 0)return isAllowNullValues() ? NullValue.INSTANCE : null;
+		try {
+			return serializer.deserialize(bytes);
+		} catch (Throwable e) {
+			logger.warn("get key[{}] from jedis is not null,but Deserialize error,message:{}", cacheKey, e);
+			return null;
+		}
+	}
+
+	private static String escapeGlob(String value) {
+		StringBuilder builder = new StringBuilder(value.length() + 8);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '*' || c == '?' || c == '[' || c == ']' || c == '\\'){
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+}
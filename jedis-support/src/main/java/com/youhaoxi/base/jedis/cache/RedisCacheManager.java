@@ -0,0 +1,149 @@
+package com.youhaoxi.base.jedis.cache;
+
+import com.youhaoxi.base.jedis.CacheExpires;
+import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import com.youhaoxi.base.jedis.local.HeapLocalCache;
+import com.youhaoxi.base.jedis.local.LocalCache;
+import com.youhaoxi.base.jedis.local.OffHeapLocalCache;
+import com.youhaoxi.base.jedis.serializer.KryoPoolSerializer;
+import com.youhaoxi.base.jedis.serializer.Serializer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于redis的spring CacheManager，支持 @Cacheable 等注解
+ *
+ * <pre>
+ * &lt;bean id="cacheManager" class="com.youhaoxi.base.jedis.cache.RedisCacheManager"&gt;
+ *     &lt;property name="cacheNames" value="user,order"/&gt;
+ *     &lt;property name="cacheGroups"&gt;&lt;map&gt;&lt;entry key="order" value="trade"/&gt;&lt;/map&gt;&lt;/property&gt;
+ *     &lt;property name="expires"&gt;&lt;map&gt;&lt;entry key="user" value="3600"/&gt;&lt;/map&gt;&lt;/property&gt;
+ *     &lt;property name="localCacheNames" value="user"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * 缓存名通过cacheGroups映射到redis组（未配置使用defaultGroupName），key前缀使用组配置的前缀。
+ * 未预先声明的缓存名在首次使用时按默认配置创建。
+ */
+public class RedisCacheManager extends AbstractCacheManager {
+
+	private String defaultGroupName = JedisProviderFactoryBean.DEFAULT_GROUP_NAME;
+
+	private Set<String> cacheNames = new HashSet<>();
+
+	//缓存名 -> 组名
+	private Map<String, String> cacheGroups = new HashMap<>();
+
+	//缓存名 -> 过期秒数
+	private Map<String, Long> expires = new HashMap<>();
+
+	private long defaultExpireSeconds = CacheExpires.IN_1DAY;
+
+	private long expireJitterSeconds = CacheExpires.IN_5MINS;
+
+	private Serializer serializer = new KryoPoolSerializer();
+
+	private boolean allowNullValues = true;
+
+	//开启本地缓存的缓存名
+	private Set<String> localCacheNames = new HashSet<>();
+
+	private long localCacheMaxSize = 10000;
+
+	private long localCacheExpireSeconds = CacheExpires.IN_1MIN;
+
+	//每个本地缓存的堆外容量（MB），大于0时使用堆外缓存，否则使用堆内缓存
+	private int localCacheOffHeapMb;
+
+	public void setDefaultGroupName(String defaultGroupName) {
+		this.defaultGroupName = defaultGroupName;
+	}
+
+	public void setCacheNames(Collection<String> cacheNames) {
+		this.cacheNames = new HashSet<>(cacheNames);
+	}
+
+	public void setCacheGroups(Map<String, String> cacheGroups) {
+		this.cacheGroups = cacheGroups;
+	}
+
+	public void setExpires(Map<String, Long> expires) {
+		this.expires = expires;
+	}
+
+	public void setDefaultExpireSeconds(long defaultExpireSeconds) {
+		this.defaultExpireSeconds = defaultExpireSeconds;
+	}
+
+	public void setExpireJitterSeconds(long expireJitterSeconds) {
+		this.expireJitterSeconds = expireJitterSeconds;
+	}
+
+	public void setSerializer(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
+	public void setAllowNullValues(boolean allowNullValues) {
+		this.allowNullValues = allowNullValues;
+	}
+
+	public void setLocalCacheNames(Collection<String> localCacheNames) {
+		this.localCacheNames = new HashSet<>(localCacheNames);
+	}
+
+	public void setLocalCacheMaxSize(long localCacheMaxSize) {
+		this.localCacheMaxSize = localCacheMaxSize;
+	}
+
+	public void setLocalCacheExpireSeconds(long localCacheExpireSeconds) {
+		this.localCacheExpireSeconds = localCacheExpireSeconds;
+	}
+
+	public void setLocalCacheOffHeapMb(int localCacheOffHeapMb) {
+		this.localCacheOffHeapMb = localCacheOffHeapMb;
+	}
+
+	@Override
+	protected Collection<? extends Cache> loadCaches() {
+		List<Cache> caches = new ArrayList<>(cacheNames.size());
+		for (String name : cacheNames) {
+			caches.add(createCache(name));
+		}
+		return caches;
+	}
+
+	@Override
+	protected Cache getMissingCache(String name) {
+		return createCache(name);
+	}
+
+	protected RedisCache createCache(String name) {
+		String groupName = cacheGroups.get(name);
+		if(groupName == null)groupName = defaultGroupName;
+		Long expireSeconds = expires.get(name);
+		if(expireSeconds == null)expireSeconds = defaultExpireSeconds;
+		return new RedisCache(name, groupName, serializer, expireSeconds, expireJitterSeconds,
+				createLocalCache(name), allowNullValues);
+	}
+
+	/**
+	 * 创建本地缓存，未开启返回null
+	 * @param name 缓存名
+	 * @return
+	 */
+	protected LocalCache createLocalCache(String name) {
+		if(!localCacheNames.contains(name))return null;
+		if(localCacheOffHeapMb > 0){
+			return new OffHeapLocalCache(localCacheOffHeapMb * 1024L * 1024L, localCacheExpireSeconds * 1000);
+		}
+		return new HeapLocalCache(localCacheMaxSize, localCacheExpireSeconds * 1000);
+	}
+}
@@ -1,21 +1,26 @@
 package com.youhaoxi.base.jedis.client;
 
-import static com.youhaoxi.base.jedis.JedisProviderFactory.getBinaryJedisClusterCommands;
-import static com.youhaoxi.base.jedis.JedisProviderFactory.getBinaryJedisCommands;
-import static com.youhaoxi.base.jedis.JedisProviderFactory.getJedisProvider;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getLocalCache;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getStaleCache;
 import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
 
 import jersey.repackaged.com.google.common.collect.Maps;
 import com.youhaoxi.base.jedis.CacheExpires;
 import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import com.youhaoxi.base.jedis.local.BinaryLocalCache;
+import com.youhaoxi.base.jedis.local.StaleCache;
 import com.youhaoxi.base.jedis.serializer.SerializeUtils;
 import com.youhaoxi.base.jedis.util.ResourceUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.util.JedisClusterCRC16;
 import redis.clients.util.SafeEncoder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +38,16 @@ public abstract class RedisBase {
 	private final static String PREFIX_KEY="jedis.app.key.prefix";
 	
 	private final static Map<String,String> PREFIX_CACHE=Maps.newConcurrentMap();
+
+	static {
+		//前缀配置变更后重新读取，已复用的RedisKey按旧前缀编码，一并清除
+		ResourceUtils.addChangeListener(keys -> {
+			if(keys.stream().anyMatch(k -> k.endsWith(PREFIX_KEY))){
+				PREFIX_CACHE.clear();
+				RedisKey.clearInterned();
+			}
+		});
+	}
 	
 	/**
 	 *  默认缓存时长（7 天）
@@ -48,10 +63,26 @@ public abstract class RedisBase {
 	
 	protected String origKey;
 
+	//key所在slot，首次使用时计算
+	private int slot = -1;
+
 	public byte[] getKey() {
 		return key;
 	}
 
+	/**
+	 * key所在的集群slot，计算一次后缓存
+	 * @return
+	 */
+	public int getSlot() {
+		int result = slot;
+		if(result < 0){
+			result = JedisClusterCRC16.getSlot(key);
+			slot = result;
+		}
+		return result;
+	}
+
 	public RedisBase(String key) {
 		if(key.contains(KEY_SUFFIX_SPLIT)){
 			this.groupName = key.split(KEY_SUFFIX_SPLIT)[0];
@@ -68,6 +99,17 @@ public abstract class RedisBase {
 		this.key = SafeEncoder.encode(key);
 		
 	}
+
+	/**
+	 * 使用预先编码的key，不再加前缀和编码
+	 * @param key
+	 */
+	public RedisBase(RedisKey key) {
+		this.groupName = key.getGroupName();
+		this.origKey = key.getKey();
+		this.key = key.getBytes();
+		this.slot = key.getSlot();
+	}
 	
 	public static final String prefixKey(String key,String groupName){
 		String appKeyPrefix = getAppKeyPrefix(groupName);
@@ -81,8 +123,9 @@ public abstract class RedisBase {
 		if(StringUtils.isEmpty(groupName)){
 			groupName= JedisProviderFactoryBean.DEFAULT_GROUP_NAME;
 		}
-		if(PREFIX_CACHE.containsKey(groupName)){
-			return PREFIX_CACHE.get(groupName);
+		String cached = PREFIX_CACHE.get(groupName);
+		if(cached != null){
+			return cached;
 		}
 		String prefixKey=groupName+"."+PREFIX_KEY;
 		String prefix = ResourceUtils.get(prefixKey,"");
@@ -99,14 +142,10 @@ public abstract class RedisBase {
 	 * @return
 	 */
 	public boolean exists() {
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).exists(key);
-			}
-			return getBinaryJedisCommands(groupName).exists(key);
-		} finally {
-			getJedisProvider(groupName).release();
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.exists(key));
 		}
+		return executeBinary(groupName, c -> c.exists(key));
 		
 	}
 	
@@ -121,14 +160,11 @@ public abstract class RedisBase {
 	 *         false：不存在该key
 	 */
 	public boolean remove() {
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).del(key) == 1;
-			}
-			return getBinaryJedisCommands(groupName).del(key) == 1;
-		} finally {
-			getJedisProvider(groupName).release();
+		invalidateLocal();
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.del(key)) == 1;
 		}
+		return executeBinary(groupName, c -> c.del(key)) == 1;
 	}
 
 	/**
@@ -142,14 +178,15 @@ public abstract class RedisBase {
 	 */
 	public boolean setExpire(long seconds) {
 		if(seconds <= 0)return true;
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).pexpire(key, seconds * 1000) == 1;
-			}
-			return getBinaryJedisCommands(groupName).pexpire(key, seconds * 1000) == 1;
-		} finally {
-			getJedisProvider(groupName).release();
+		boolean result;
+		if(isCluster(groupName)){
+			result = executeBinaryCluster(groupName, c -> c.pexpire(key, seconds * 1000)) == 1;
+		}else{
+			result = executeBinary(groupName, c -> c.pexpire(key, seconds * 1000)) == 1;
 		}
+		//本地缓存按原过期时间保存，过期时间变化后移除
+		invalidateLocal();
+		return result;
 
 	}
 
@@ -169,14 +206,14 @@ public abstract class RedisBase {
 		if(expireAt == null){
 			return false;
 		}
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).expireAt(key, expireAt.getTime()/1000) == 1;
-			}
-			return getBinaryJedisCommands(groupName).expireAt(key, expireAt.getTime()/1000) == 1;
-		} finally {
-			getJedisProvider(groupName).release();
+		boolean result;
+		if(isCluster(groupName)){
+			result = executeBinaryCluster(groupName, c -> c.expireAt(key, expireAt.getTime()/1000)) == 1;
+		}else{
+			result = executeBinary(groupName, c -> c.expireAt(key, expireAt.getTime()/1000)) == 1;
 		}
+		invalidateLocal();
+		return result;
 	}
 	
 	public boolean setExpireIfNot(long seconds) {
@@ -197,17 +234,13 @@ public abstract class RedisBase {
 	 *         否则，以毫秒为单位，返回 key的剩余生存时间。
 	 */
 	public Long getTtl() {
-		try {
-			long result = 0;
-			if(isCluster(groupName)){
-				result = getBinaryJedisClusterCommands(groupName).ttl(key);
-			}else{					
-				result = getBinaryJedisCommands(groupName).ttl(key);
-			}
-			return result;
-		} finally {
-			getJedisProvider(groupName).release();
+		long result = 0;
+		if(isCluster(groupName)){
+			result = executeBinaryCluster(groupName, c -> c.ttl(key));
+		}else{					
+			result = executeBinary(groupName, c -> c.ttl(key));
 		}
+		return result;
 		
 	}
 
@@ -219,14 +252,14 @@ public abstract class RedisBase {
 	 *         如果 key 不存在或 key 没有设置生存时间，返回 0 。
 	 */
 	public boolean removeExpire() {
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).persist(key) == 1;
-			}
-			return getBinaryJedisCommands(groupName).persist(key) == 1;
-		} finally {
-			getJedisProvider(groupName).release();
+		boolean result;
+		if(isCluster(groupName)){
+			result = executeBinaryCluster(groupName, c -> c.persist(key)) == 1;
+		}else{
+			result = executeBinary(groupName, c -> c.persist(key)) == 1;
 		}
+		invalidateLocal();
+		return result;
 	}
 
 	/**
@@ -245,17 +278,27 @@ public abstract class RedisBase {
 	 *         hash (哈希表)
 	 */
 	public String type() {
-		try {
-			if(isCluster(groupName)){
-				return getBinaryJedisClusterCommands(groupName).type(key);
-			}
-			return getBinaryJedisCommands(groupName).type(key);
-		} finally {
-			getJedisProvider(groupName).release();
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.type(key));
 		}
+		return executeBinary(groupName, c -> c.type(key));
 
 	}
 
+	/**
+	 * 移除本地缓存（一级缓存）和过期数据兜底缓存中的当前key
+	 */
+	protected void invalidateLocal() {
+		BinaryLocalCache localCache = getLocalCache(groupName);
+		if(localCache != null){
+			localCache.remove(origKey);
+		}
+		StaleCache staleCache = getStaleCache(groupName);
+		if(staleCache != null){
+			staleCache.remove(origKey);
+		}
+	}
+
 	protected byte[] valueSerialize(Object value) {
 		try {
 			return SerializeUtils.serialize(value);
@@ -289,11 +332,34 @@ public abstract class RedisBase {
 		}
 	}
 	
-	protected <T> List<T> listDerialize(List<byte[]> datas){
-		List<T> list = new ArrayList<>();
-		if(datas == null)return list;
-         for (byte[] bs : datas) {
-        	 list.add(valueDerialize(bs));
+	/**
+	 * 反序列化集合中的单个元素（哈希域、列表/集合元素）
+	 *
+	 * 失败时只记录日志并返回null，不删除整个key
+	 * @param element 元素描述，用于日志（如哈希域名）
+	 * @param bytes
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T elementDerialize(String element, byte[] bytes) {
+		if(bytes == null)return null;
+		try {
+			return (T)SerializeUtils.deserialize(bytes);
+		} catch (Throwable e) {
+			logger.warn("get {} of key[{}] from jedis is not null,but Deserialize error,message:{}",element,origKey,e);
+			return null;
+		}
+	}
+
+	/**
+	 * 反序列化集合元素，跳过反序列化失败的元素
+	 */
+	protected <T> List<T> listDerialize(Collection<byte[]> datas){
+		if(datas == null)return new ArrayList<>(0);
+		List<T> list = new ArrayList<>(datas.size());
+		for (byte[] bs : datas) {
+			T value = elementDerialize("element", bs);
+			if(value != null)list.add(value);
 		}
 		return list;
 	}
@@ -0,0 +1,247 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.youhaoxi.base.jedis.provider.cluster.JedisClusterProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPipeline;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getJedisProvider;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+/**
+ * 批量命令（pipeline）
+ *
+ * 单机模式使用一条pipeline；集群模式按slot路由缓存把key分组到节点，每个节点一条pipeline（不经过JedisCluster），
+ * 遇到MOVED时按目标节点更新该slot后重试一次，遇到ASK时在目标节点上先发送ASKING再执行。
+ * key的slot可以预先计算（如RedisBase.getSlot、RedisKey），避免每次执行都计算CRC16。
+ *
+ * <pre>
+ * RedisBatch batch = new RedisBatch(groupName);
+ * batch.add(key, p -> p.incrBy(key, 10));
+ * List&lt;Object&gt; results = batch.execute();
+ * </pre>
+ */
+public class RedisBatch {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisBatch.class);
+
+	private static final int MAX_ATTEMPTS = 2;
+
+	private final String groupName;
+
+	private final List<byte[]> keys = new ArrayList<>();
+
+	//key所在slot，-1表示未计算
+	private final List<Integer> slots = new ArrayList<>();
+
+	private final List<Function<PipelineBase, Response<?>>> commands = new ArrayList<>();
+
+	public RedisBatch(String groupName) {
+		this.groupName = groupName;
+	}
+
+	/**
+	 * 添加一条命令
+	 * @param key 用于集群路由的key
+	 * @param command 在pipeline上执行的命令
+	 * @return
+	 */
+	public RedisBatch add(String key, Function<PipelineBase, Response<?>> command) {
+		return add(SafeEncoder.encode(key), command);
+	}
+
+	public RedisBatch add(byte[] key, Function<PipelineBase, Response<?>> command) {
+		return add(key, -1, command);
+	}
+
+	/**
+	 * 添加一条命令
+	 * @param key 用于集群路由的key
+	 * @param slot key所在slot（JedisClusterCRC16.getSlot），-1表示执行时计算
+	 * @param command 在pipeline上执行的命令
+	 * @return
+	 */
+	public RedisBatch add(byte[] key, int slot, Function<PipelineBase, Response<?>> command) {
+		keys.add(key);
+		slots.add(slot);
+		commands.add(command);
+		return this;
+	}
+
+	/**
+	 * 添加一条命令，使用key对象缓存的slot
+	 * @param key
+	 * @param command 在pipeline上执行的命令
+	 * @return
+	 */
+	public RedisBatch add(RedisBase key, Function<PipelineBase, Response<?>> command) {
+		return add(key.getKey(), key.getSlot(), command);
+	}
+
+	/**
+	 * 添加一条命令，使用预先编码的key和slot
+	 * @param key
+	 * @param command 在pipeline上执行的命令
+	 * @return
+	 */
+	public RedisBatch add(RedisKey key, Function<PipelineBase, Response<?>> command) {
+		return add(key.getBytes(), key.getSlot(), command);
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	/**
+	 * 执行全部命令
+	 *
+	 * 返回结果与添加顺序一致；单条命令失败时对应位置为异常对象（JedisException），不影响其他命令
+	 *
+	 * @return
+	 */
+	public List<Object> execute() {
+		Object[] results = new Object[commands.size()];
+		if(results.length == 0)return new ArrayList<>(0);
+
+		List<Integer> indexes = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; i++) {
+			indexes.add(i);
+		}
+		if (isCluster(groupName)) {
+			executeCluster(indexes, results, 1);
+		} else {
+			executeStandard(indexes, results);
+		}
+		return Arrays.asList(results);
+	}
+
+	private void executeStandard(List<Integer> indexes, Object[] results) {
+		try {
+			getJedisProvider(groupName).execute(client -> {
+				PipelineBase pipeline;
+				if(client instanceof ShardedJedis){
+					pipeline = ((ShardedJedis) client).pipelined();
+				}else{
+					pipeline = ((Jedis) client).pipelined();
+				}
+				runPipeline(pipeline, indexes, results);
+				return null;
+			});
+		} catch (RuntimeException e) {
+			fail(indexes, results, e);
+		}
+	}
+
+	private void executeCluster(List<Integer> indexes, Object[] results, int attempt) {
+		JedisClusterProvider provider = (JedisClusterProvider) getJedisProvider(groupName);
+
+		//按节点分组，同一节点只占用一个连接
+		Map<String, List<Integer>> nodeIndexes = new LinkedHashMap<>();
+		List<Integer> unassigned = new ArrayList<>();
+		for (Integer index : indexes) {
+			String node = provider.getSlotNode(slot(index));
+			if(node == null){
+				unassigned.add(index);
+			}else{
+				nodeIndexes.computeIfAbsent(node, k -> new ArrayList<>()).add(index);
+			}
+		}
+		for (Map.Entry<String, List<Integer>> entry : nodeIndexes.entrySet()) {
+			try (Jedis jedis = provider.getConnectionFromNode(entry.getKey())) {
+				runPipeline(jedis.pipelined(), entry.getValue(), results);
+			} catch (RuntimeException e) {
+				fail(entry.getValue(), results, e);
+			}
+		}
+		//slot分布未知，由slot所在节点（或随机节点）返回MOVED
+		for (Integer index : unassigned) {
+			try (Jedis jedis = provider.getConnectionFromSlot(slot(index))) {
+				runPipeline(jedis.pipelined(), Collections.singletonList(index), results);
+			} catch (RuntimeException e) {
+				fail(Collections.singletonList(index), results, e);
+			}
+		}
+
+		if(attempt >= MAX_ATTEMPTS)return;
+		List<Integer> moved = new ArrayList<>();
+		for (Integer index : indexes) {
+			Object result = results[index];
+			if(result instanceof JedisMovedDataException){
+				JedisMovedDataException e = (JedisMovedDataException) result;
+				provider.assignSlot(e.getSlot(), e.getTargetNode());
+				moved.add(index);
+			}else if(result instanceof JedisAskDataException){
+				executeAsking(provider, index, ((JedisAskDataException) result).getTargetNode(), results);
+			}
+		}
+		if(!moved.isEmpty()){
+			executeCluster(moved, results, attempt + 1);
+		}
+	}
+
+	/**
+	 * slot迁移中，在目标节点上先发送ASKING再执行（ASKING只对下一条命令有效）
+	 */
+	private void executeAsking(JedisClusterProvider provider, Integer index, HostAndPort node, Object[] results) {
+		try (Jedis jedis = provider.getConnectionFromNode(node)) {
+			jedis.asking();
+			runPipeline(jedis.pipelined(), Collections.singletonList(index), results);
+		} catch (RuntimeException e) {
+			fail(Collections.singletonList(index), results, e);
+		}
+	}
+
+	private int slot(int index) {
+		int slot = slots.get(index);
+		if(slot < 0){
+			slot = JedisClusterCRC16.getSlot(keys.get(index));
+			slots.set(index, slot);
+		}
+		return slot;
+	}
+
+	private void runPipeline(PipelineBase pipeline, List<Integer> indexes, Object[] results) {
+		List<Response<?>> responses = new ArrayList<>(indexes.size());
+		for (Integer index : indexes) {
+			responses.add(commands.get(index).apply(pipeline));
+		}
+		if(pipeline instanceof Pipeline){
+			((Pipeline) pipeline).sync();
+		}else{
+			((ShardedJedisPipeline) pipeline).sync();
+		}
+		for (int i = 0; i < indexes.size(); i++) {
+			try {
+				results[indexes.get(i)] = responses.get(i).get();
+			} catch (JedisDataException e) {
+				results[indexes.get(i)] = e;
+			}
+		}
+	}
+
+	private void fail(List<Integer> indexes, Object[] results, RuntimeException e) {
+		logger.warn("RedisBatch execute falid,group:{},commands:{}", groupName, indexes.size(), e);
+		for (Integer index : indexes) {
+			results[index] = e;
+		}
+	}
+}
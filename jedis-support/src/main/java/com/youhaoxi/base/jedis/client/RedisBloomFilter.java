@@ -0,0 +1,354 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.google.common.hash.Hashing;
+import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于redis bitmap的布隆过滤器
+ *
+ * 每个元素通过murmur3_128生成k个位（double hashing），所有位在同一个分片key中，
+ * 单个元素或一批元素的置位/检测都通过pipeline一次往返完成；
+ * 大过滤器拆分为多个分片key（name:0、name:1...），集群模式下分散到不同slot。
+ *
+ * 开启本地快照后，membership检测直接在进程内完成，不访问redis；
+ * 本进程的put会同步更新快照，其他进程的put在下次刷新快照后可见。
+ *
+ * 典型用途：查询数据库前过滤不存在的id，防止缓存穿透
+ */
+public class RedisBloomFilter {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisBloomFilter.class);
+
+	//单个分片默认最多 2^27 位（16MB）
+	private static final long DEFAULT_BITS_PER_SHARD = 1L << 27;
+
+	//redis字符串最大 512MB
+	private static final long MAX_BITS_PER_SHARD = 1L << 32;
+
+	private static ScheduledExecutorService refresher;
+
+	private static final ReentrantLock refresherLock = new ReentrantLock();
+
+	private final String groupName;
+
+	private final String[] shardKeys;
+
+	//分片key的字节和所在slot，批量命令路由时不再重复计算
+	private final byte[][] shardKeyBytes;
+
+	private final int[] shardSlots;
+
+	private final long bitsPerShard;
+
+	private final int numHashFunctions;
+
+	private volatile AtomicLongArray[] snapshot;
+
+	private ScheduledFuture<?> refreshTask;
+
+	//刷新快照期间会访问redis，不使用synchronized
+	private final ReentrantLock snapshotLock = new ReentrantLock();
+
+	public RedisBloomFilter(String name, long expectedInsertions, double fpp) {
+		this(name, expectedInsertions, fpp, 0, JedisProviderFactoryBean.DEFAULT_GROUP_NAME);
+	}
+
+	/**
+	 *
+	 * @param name 过滤器名称
+	 * @param expectedInsertions 预计元素数量
+	 * @param fpp 期望误判率，如0.01
+	 * @param shards 分片数，小于等于0时按每片16MB自动计算
+	 * @param groupName 组名
+	 */
+	public RedisBloomFilter(String name, long expectedInsertions, double fpp, int shards, String groupName) {
+		if(expectedInsertions <= 0 || fpp <= 0 || fpp >= 1){
+			throw new IllegalArgumentException("expectedInsertions must be positive and fpp must be in (0,1)");
+		}
+		long numBits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		if(shards <= 0){
+			shards = (int) Math.max(1, (numBits + DEFAULT_BITS_PER_SHARD - 1) / DEFAULT_BITS_PER_SHARD);
+		}
+		this.bitsPerShard = Math.max(64, (numBits + shards - 1) / shards);
+		if(bitsPerShard > MAX_BITS_PER_SHARD){
+			throw new IllegalArgumentException("too many bits per shard:" + bitsPerShard + ",increase shards");
+		}
+		this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+		this.groupName = groupName;
+		String key = RedisBase.prefixKey(name, groupName);
+		this.shardKeys = new String[shards];
+		this.shardKeyBytes = new byte[shards][];
+		this.shardSlots = new int[shards];
+		for (int i = 0; i < shards; i++) {
+			shardKeys[i] = key + ":" + i;
+			shardKeyBytes[i] = SafeEncoder.encode(shardKeys[i]);
+			shardSlots[i] = JedisClusterCRC16.getSlot(shardKeyBytes[i]);
+		}
+	}
+
+	public void put(String element) {
+		putAll(Collections.singletonList(element));
+	}
+
+	/**
+	 * 批量添加，一次pipeline完成
+	 * @param elements
+	 */
+	public void putAll(Collection<String> elements) {
+		RedisBatch batch = new RedisBatch(groupName);
+		AtomicLongArray[] local = snapshot;
+		for (String element : elements) {
+			BitPositions positions = positions(element);
+			int shard = positions.shard;
+			String shardKey = shardKeys[shard];
+			for (long offset : positions.offsets) {
+				batch.add(shardKeyBytes[shard], shardSlots[shard], p -> p.setbit(shardKey, offset, true));
+				if(local != null){
+					setBit(local[positions.shard], offset);
+				}
+			}
+		}
+		for (Object result : batch.execute()) {
+			if(result instanceof RuntimeException){
+				throw (RuntimeException) result;
+			}
+		}
+	}
+
+	public boolean mightContain(String element) {
+		return mightContainAll(Collections.singletonList(element))[0];
+	}
+
+	/**
+	 * 批量检测，一次pipeline完成（本地快照模式下不访问redis）
+	 * @param elements
+	 * @return 与elements顺序一致，false表示一定不存在
+	 */
+	public boolean[] mightContainAll(List<String> elements) {
+		boolean[] contains = new boolean[elements.size()];
+		List<BitPositions> positionsList = new ArrayList<>(elements.size());
+		for (String element : elements) {
+			positionsList.add(positions(element));
+		}
+
+		AtomicLongArray[] local = snapshot;
+		if(local != null){
+			for (int i = 0; i < contains.length; i++) {
+				BitPositions positions = positionsList.get(i);
+				contains[i] = true;
+				for (long offset : positions.offsets) {
+					if(!testBit(local[positions.shard], offset)){
+						contains[i] = false;
+						break;
+					}
+				}
+			}
+			return contains;
+		}
+
+		RedisBatch batch = new RedisBatch(groupName);
+		for (BitPositions positions : positionsList) {
+			int shard = positions.shard;
+			String shardKey = shardKeys[shard];
+			for (long offset : positions.offsets) {
+				batch.add(shardKeyBytes[shard], shardSlots[shard], p -> p.getbit(shardKey, offset));
+			}
+		}
+		List<Object> results = batch.execute();
+		int index = 0;
+		for (int i = 0; i < contains.length; i++) {
+			contains[i] = true;
+			for (int j = 0; j < numHashFunctions; j++) {
+				Object result = results.get(index++);
+				if(result instanceof RuntimeException){
+					throw (RuntimeException) result;
+				}
+				if(!Boolean.TRUE.equals(result)){
+					contains[i] = false;
+				}
+			}
+		}
+		return contains;
+	}
+
+	/**
+	 * 开启本地快照：立即从redis拉取全部bitmap，之后的检测在本地完成
+	 * @param refreshIntervalMillis 定时刷新间隔，小于等于0不刷新
+	 */
+	public void enableLocalSnapshot(long refreshIntervalMillis) {
+		snapshotLock.lock();
+		try {
+			refreshSnapshot();
+			if(refreshTask != null){
+				refreshTask.cancel(false);
+				refreshTask = null;
+			}
+			if(refreshIntervalMillis > 0){
+				refreshTask = getRefresher().scheduleWithFixedDelay(() -> {
+					try {
+						refreshSnapshot();
+					} catch (Exception e) {
+						logger.warn("RedisBloomFilter refresh snapshot falid", e);
+					}
+				}, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+
+	public void disableLocalSnapshot() {
+		snapshotLock.lock();
+		try {
+			if(refreshTask != null){
+				refreshTask.cancel(false);
+				refreshTask = null;
+			}
+			snapshot = null;
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+
+	/**
+	 * 从redis重新拉取bitmap（合并本地已有的位，避免丢失拉取期间本进程的put）
+	 */
+	public void refreshSnapshot() {
+		RedisBatch batch = new RedisBatch(groupName);
+		for (int i = 0; i < shardKeys.length; i++) {
+			byte[] key = shardKeyBytes[i];
+			batch.add(key, shardSlots[i], p -> p.get(key));
+		}
+		List<Object> results = batch.execute();
+		int words = (int) ((bitsPerShard + 63) >>> 6);
+		AtomicLongArray[] loaded = new AtomicLongArray[shardKeys.length];
+		AtomicLongArray[] previous = snapshot;
+		for (int i = 0; i < shardKeys.length; i++) {
+			Object result = results.get(i);
+			if(result instanceof RuntimeException){
+				throw (RuntimeException) result;
+			}
+			AtomicLongArray bits = new AtomicLongArray(words);
+			byte[] bytes = (byte[]) result;
+			if(bytes != null){
+				for (int b = 0; b < bytes.length && (b >>> 3) < words; b++) {
+					if(bytes[b] != 0){
+						int word = b >>> 3;
+						bits.set(word, bits.get(word) | ((bytes[b] & 0xFFL) << ((b & 7) << 3)));
+					}
+				}
+			}
+			if(previous != null){
+				for (int w = 0; w < words; w++) {
+					long old = previous[i].get(w);
+					if(old != 0)bits.set(w, bits.get(w) | old);
+				}
+			}
+			loaded[i] = bits;
+		}
+		snapshot = loaded;
+	}
+
+	/**
+	 * 删除过滤器所有分片
+	 */
+	public void delete() {
+		RedisBatch batch = new RedisBatch(groupName);
+		for (int i = 0; i < shardKeys.length; i++) {
+			byte[] key = shardKeyBytes[i];
+			batch.add(key, shardSlots[i], p -> p.del(key));
+		}
+		batch.execute();
+		AtomicLongArray[] local = snapshot;
+		if(local != null){
+			snapshot = null;
+			refreshSnapshot();
+		}
+	}
+
+	public int getNumHashFunctions() {
+		return numHashFunctions;
+	}
+
+	public long getBitSize() {
+		return bitsPerShard * shardKeys.length;
+	}
+
+	private BitPositions positions(String element) {
+		byte[] hash = Hashing.murmur3_128().hashString(element, StandardCharsets.UTF_8).asBytes();
+		long hash1 = littleEndianLong(hash, 0);
+		long hash2 = littleEndianLong(hash, 8);
+		BitPositions positions = new BitPositions();
+		positions.shard = Math.floorMod(Long.hashCode(hash1 ^ hash2), shardKeys.length);
+		positions.offsets = new long[numHashFunctions];
+		long combined = hash1;
+		for (int i = 0; i < numHashFunctions; i++) {
+			positions.offsets[i] = (combined & Long.MAX_VALUE) % bitsPerShard;
+			combined += hash2;
+		}
+		return positions;
+	}
+
+	// redis的位偏移：offset 0 为第一个字节的最高位
+	private static boolean testBit(AtomicLongArray bits, long offset) {
+		int b = (int) (offset >>> 3);
+		int shift = ((b & 7) << 3) + (7 - (int) (offset & 7));
+		return ((bits.get(b >>> 3) >>> shift) & 1L) != 0;
+	}
+
+	private static void setBit(AtomicLongArray bits, long offset) {
+		int b = (int) (offset >>> 3);
+		long mask = 1L << (((b & 7) << 3) + (7 - (int) (offset & 7)));
+		int word = b >>> 3;
+		long old;
+		do {
+			old = bits.get(word);
+			if((old & mask) != 0)return;
+		} while(!bits.compareAndSet(word, old, old | mask));
+	}
+
+	private static long littleEndianLong(byte[] bytes, int from) {
+		long value = 0;
+		for (int i = 7; i >= 0; i--) {
+			value = (value << 8) | (bytes[from + i] & 0xFFL);
+		}
+		return value;
+	}
+
+	private static ScheduledExecutorService getRefresher() {
+		refresherLock.lock();
+		try {
+			if(refresher == null){
+				refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+					Thread thread = new Thread(r, "redis-bloomfilter-refresher");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return refresher;
+		} finally {
+			refresherLock.unlock();
+		}
+	}
+
+	private static class BitPositions {
+		int shard;
+		long[] offsets;
+	}
+}
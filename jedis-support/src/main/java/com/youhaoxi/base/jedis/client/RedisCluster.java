@@ -1,12 +1,21 @@
 package com.youhaoxi.base.jedis.client;
 
+import com.youhaoxi.base.jedis.JedisProvider;
 import com.youhaoxi.base.jedis.JedisProviderFactory;
 import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import com.youhaoxi.base.jedis.local.BinaryLocalCache;
+import com.youhaoxi.base.jedis.local.StaleCache;
+import com.youhaoxi.base.jedis.provider.AutoBatcher;
+import com.youhaoxi.base.jedis.provider.HedgedReader;
+import com.youhaoxi.base.jedis.provider.NodeReadProvider;
+import com.youhaoxi.base.jedis.script.RedisScriptRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.*;
+import redis.clients.util.SafeEncoder;
 
 import java.util.*;
+import java.util.function.Function;
 
 import static com.youhaoxi.base.jedis.JedisProviderFactory.*;
 
@@ -48,12 +57,8 @@ public class RedisCluster {
         if (value == null)
             return false;
         try {
-            boolean result = false;
-            if (isCluster(groupName)) {
-                result = JedisProviderFactory.getJedisClusterCommands(groupName).set(key, value).equals(RESP_OK);
-            } else {
-                result = JedisProviderFactory.getJedisCommands(groupName).set(key, value).equals(RESP_OK);
-            }
+            boolean result = JedisProviderFactory.execute(groupName, c -> c.set(key, value)).equals(RESP_OK);
+            invalidateLocal(key);
             //设置成功 默认设置7天超时
             if (result) {
                 result = setExpire(key,DEFAULT_EXPIRE_TIME);
@@ -62,8 +67,6 @@ public class RedisCluster {
         } catch (Exception e){
             logger.error("RedisCluster.set falid", e);
             return false;
-        }finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -78,17 +81,13 @@ public class RedisCluster {
      */
     public boolean setExpire(String key,long seconds) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).pexpire(key, seconds * 1000) == 1;
-            } else {
-                return getJedisCommands(groupName).pexpire(key, seconds * 1000) == 1;
-            }
+            boolean result = execute(groupName, c -> c.pexpire(key, seconds * 1000)) == 1;
+            invalidateLocal(key);
+            return result;
 
         } catch (Exception e){
             logger.error("RedisCluster.setExpire falid", e);
             return false;
-        } finally {
-            getJedisProvider(groupName).release();
         }
 
     }
@@ -101,17 +100,12 @@ public class RedisCluster {
      * @return
      */
     public long del(String key) {
+        invalidateLocal(key);
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).del(key) ;
-            } else {
-                return getJedisCommands(groupName).del(key);
-            }
+            return execute(groupName, c -> c.del(key));
         } catch (Exception e){
             logger.error("RedisCluster.del falid", e);
             return -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -127,16 +121,10 @@ public class RedisCluster {
      */
     public long ttl(String key) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).ttl(key);
-            } else {
-                return getJedisCommands(groupName).ttl(key);
-            }
+            return read(key, c -> c.ttl(key), p -> p.ttl(key));
         } catch (Exception e){
             logger.error("RedisCluster.ttl falid", e);
             return -10000;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -150,16 +138,10 @@ public class RedisCluster {
      */
     public boolean exists(String key) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).exists(key) ;
-            } else {
-                return getJedisCommands(groupName).exists(key);
-            }
+            return read(key, c -> c.exists(key), p -> p.exists(key));
         } catch (Exception e){
             logger.error("RedisCluster.exists falid", e);
             return false;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -174,15 +156,13 @@ public class RedisCluster {
     public boolean exists(byte[] key) {
         try {
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).exists(key) ;
+                return executeBinaryClusterRead(groupName, c -> c.exists(key)) ;
             } else {
-                return getBinaryJedisCommands(groupName).exists(key);
+                return executeBinaryRead(groupName, c -> c.exists(key));
             }
         } catch (Exception e){
             logger.error("RedisCluster.exists falid", e);
             return false;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -196,16 +176,10 @@ public class RedisCluster {
      */
     public String type(String key) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).type(key) ;
-            } else {
-                return getJedisCommands(groupName).type(key);
-            }
+            return read(key, c -> c.type(key));
         } catch (Exception e){
             logger.error("RedisCluster.type falid", e);
             return null;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -220,15 +194,13 @@ public class RedisCluster {
     public String type(byte[] key) {
         try {
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).type(key) ;
+                return executeBinaryClusterRead(groupName, c -> c.type(key)) ;
             } else {
-                return getBinaryJedisCommands(groupName).type(key);
+                return executeBinaryRead(groupName, c -> c.type(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.type falid", e);
             return null;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -244,16 +216,12 @@ public class RedisCluster {
      */
     public long expire(String key, int seconds) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).expire(key,seconds) ;
-            } else {
-                return getJedisCommands(groupName).expire(key,seconds);
-            }
+            long result = execute(groupName, c -> c.expire(key,seconds));
+            invalidateLocal(key);
+            return result;
         }catch (Exception e){
             logger.error("RedisCluster.expire falid", e);
             return -10000;
-        } finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -269,16 +237,17 @@ public class RedisCluster {
      */
     public long expire(byte[] key, int seconds) {
         try {
+            long result;
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).expire(key,seconds) ;
+                result = executeBinaryCluster(groupName, c -> c.expire(key,seconds));
             } else {
-                return getBinaryJedisCommands(groupName).expire(key,seconds);
+                result = executeBinary(groupName, c -> c.expire(key,seconds));
             }
+            invalidateLocal(SafeEncoder.encode(key));
+            return result;
         }catch (Exception e){
             logger.error("RedisCluster.expire falid", e);
             return -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
     }
 
@@ -294,16 +263,12 @@ public class RedisCluster {
     public long expireAt(String key, Date expiry) {
         long unixTime = expiry.getTime() / 1000;
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).expireAt(key,unixTime) ;
-            } else {
-                return getJedisCommands(groupName).expireAt(key,unixTime);
-            }
+            long result = execute(groupName, c -> c.expireAt(key,unixTime));
+            invalidateLocal(key);
+            return result;
         }catch (Exception e){
             logger.error("RedisCluster.expireAt falid", e);
             return -10000;
-        }  finally {
-            getJedisProvider(groupName).release();
         }
 
     }
@@ -320,16 +285,17 @@ public class RedisCluster {
     public long expireAt(byte[] key, Date expiry) {
         long unixTime = expiry.getTime() / 1000;
         try {
+            long result;
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).expireAt(key,unixTime) ;
+                result = executeBinaryCluster(groupName, c -> c.expireAt(key,unixTime));
             } else {
-                return getBinaryJedisCommands(groupName).expireAt(key,unixTime);
+                result = executeBinary(groupName, c -> c.expireAt(key,unixTime));
             }
+            invalidateLocal(SafeEncoder.encode(key));
+            return result;
         } catch (Exception e){
             logger.error("RedisCluster.expireAt falid", e);
             return -10000;
-        } finally {
-            getJedisProvider(groupName).release();
         }
 
     }
@@ -339,21 +305,37 @@ public class RedisCluster {
 
 
     /**
-     * 集群不支持mset
+     * 同时设置一个或多个 key-value 对，默认设置7天超时。
      *
-     * 同时设置一个或多个 key-value 对。 如果某个给定 key 已经存在，那么 MSET
-     * 会用新值覆盖原来的旧值，如果这不是你所希望的效果，请考虑使用 MSETNX 命令：它只会在所有给定 key 都不存在的情况下进行设置操作。
-     * MSET 是一个原子性(atomic)操作，所有给定 key 都会在同一时间内被设置，某些给定 key 被更新而另一些给定 key
-     * 没有改变的情况，不可能发生。
+     * 以pipeline批量执行（集群模式按节点、分片模式按分片分组），不是原子操作，部分key可能设置失败。
      *
-     * 总是返回 OK (因为 MSET 不可能失败)
+     * 全部设置成功返回 true
      *
      * @param keyValueMap
      * @return
      */
-    @Deprecated
     public boolean mset(Map<String, String> keyValueMap) {
-        return false;
+        if (keyValueMap == null || keyValueMap.isEmpty())
+            return false;
+        try {
+            RedisBatch batch = new RedisBatch(groupName);
+            for (Map.Entry<String, String> entry : keyValueMap.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                invalidateLocal(key);
+                batch.add(key, p -> p.setex(key, DEFAULT_EXPIRE_TIME, value));
+            }
+            boolean result = true;
+            for (Object response : batch.execute()) {
+                if (!RESP_OK.equals(response)) {
+                    result = false;
+                }
+            }
+            return result;
+        } catch (Exception e){
+            logger.error("RedisCluster.mset falid", e);
+            return false;
+        }
     }
 
     /**
@@ -370,15 +352,11 @@ public class RedisCluster {
      */
     public boolean setBit(String key, long offset, boolean value) {
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).setbit(key,offset,value) ;
-            } else {
-                return getJedisCommands(groupName).setbit(key,offset,value);
-            }
+            boolean result = execute(groupName, c -> c.setbit(key,offset,value));
+            invalidateLocal(key);
+            return result;
         } catch (Exception e){
             logger.error("RedisCluster.setBit falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return false;
     }
@@ -396,15 +374,11 @@ public class RedisCluster {
     public long setnx(String key, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).setnx(key,value) ;
-            } else {
-                return getJedisCommands(groupName).setnx(key,value);
-            }
+            result = execute(groupName, c -> c.setnx(key,value));
+            invalidateLocal(key);
+            return result;
         } catch (Exception e){
             logger.error("RedisCluster.setnx falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
 
         return result;
@@ -425,14 +399,14 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).setnx(key,value) ;
+                result = executeBinaryCluster(groupName, c -> c.setnx(key,value));
             } else {
-                return getBinaryJedisCommands(groupName).setnx(key,value);
+                result = executeBinary(groupName, c -> c.setnx(key,value));
             }
+            invalidateLocal(SafeEncoder.encode(key));
+            return result;
         } catch (Exception e){
             logger.error("RedisCluster.setnx falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
 
@@ -451,18 +425,11 @@ public class RedisCluster {
      */
     public boolean setex(String key, int seconds, String value) {
         boolean result = false;
+        invalidateLocal(key);
         try {
-            if (isCluster(groupName)) {
-                return  getJedisClusterCommands(groupName).setex(key, seconds, value).equals(RESP_OK) ;
-
-            } else {
-                return  getJedisCommands(groupName).setex(key, seconds, value).equals(RESP_OK);
-
-            }
+            return  execute(groupName, c -> c.setex(key, seconds, value)).equals(RESP_OK);
         } catch (Exception e){
             logger.error("RedisCluster.setex falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -480,17 +447,16 @@ public class RedisCluster {
      */
     public boolean setex(byte[] key, int seconds, byte[] value) {
         boolean result = false;
+        invalidateLocal(SafeEncoder.encode(key));
         try {
             if (isCluster(groupName)) {
-                return getBinaryJedisClusterCommands(groupName).setex(key, seconds, value).equals(RESP_OK) ;
+                return executeBinaryCluster(groupName, c -> c.setex(key, seconds, value)).equals(RESP_OK) ;
 
             } else {
-                return getBinaryJedisCommands(groupName).setex(key, seconds, value).equals(RESP_OK) ;
+                return executeBinary(groupName, c -> c.setex(key, seconds, value)).equals(RESP_OK) ;
             }
         } catch (Exception e){
             logger.error("RedisCluster.setrange falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -509,21 +475,13 @@ public class RedisCluster {
     public long setrange(String key, long offset, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                Long _result =  getJedisClusterCommands(groupName).setrange(key, offset, value) ;
-                if (_result != null) {
-                    result = _result;
-                }
-            } else {
-                Long _result =  getJedisCommands(groupName).setrange(key, offset, value);
-                if (_result != null) {
-                    result = _result;
-                }
+            Long _result =  execute(groupName, c -> c.setrange(key, offset, value));
+            if (_result != null) {
+                result = _result;
             }
+            invalidateLocal(key);
         } catch (Exception e){
             logger.error("RedisCluster.setrange falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
 
@@ -542,21 +500,13 @@ public class RedisCluster {
     public long append(String key, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                Long _result =  getJedisClusterCommands(groupName).append(key, value) ;
-                if (_result != null) {
-                    result = _result;
-                }
-            } else {
-                Long _result =  getJedisCommands(groupName).append(key, value);
-                if (_result != null) {
-                    result = _result;
-                }
+            Long _result =  execute(groupName, c -> c.append(key, value));
+            if (_result != null) {
+                result = _result;
             }
+            invalidateLocal(key);
         } catch (Exception e){
             logger.error("RedisCluster.append falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -575,20 +525,19 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                Long _result =  getBinaryJedisClusterCommands(groupName).append(key, value) ;
+                Long _result =  executeBinaryCluster(groupName, c -> c.append(key, value)) ;
                 if (_result != null) {
                     result = _result;
                 }
             } else {
-                Long _result =  getBinaryJedisCommands(groupName).append(key, value);
+                Long _result =  executeBinary(groupName, c -> c.append(key, value));
                 if (_result != null) {
                     result = _result;
                 }
             }
+            invalidateLocal(SafeEncoder.encode(key));
         } catch (Exception e){
             logger.error("RedisCluster.append falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -604,18 +553,39 @@ public class RedisCluster {
      */
     public String get(String key) {
         String value=null;
+        StaleCache staleCache = getStaleCache(groupName);
+        if (staleCache != null) {
+            StaleCache.markFresh();
+        }
+        //先读本地缓存
+        BinaryLocalCache localCache = getLocalCache(groupName);
+        if (localCache != null) {
+            byte[] bytes = localCache.getBytes(key);
+            if (bytes != null) {
+                return SafeEncoder.encode(bytes);
+            }
+        }
         try {
 
-            if (isCluster(groupName)) {
-                value = getJedisClusterCommands(groupName).get(key);
-            } else {
-                value = getJedisCommands(groupName).get(key);
+            value = read(key, c -> c.get(key), p -> p.get(key));
+            if (value != null && localCache != null) {
+                localCache.putBytes(key, SafeEncoder.encode(value), 0);
+            }
+            if (staleCache != null) {
+                if (value != null) {
+                    staleCache.put(key, SafeEncoder.encode(value));
+                } else {
+                    staleCache.remove(key);
+                }
             }
             return value;
         } catch (Exception e){
             logger.error("RedisCluster.get falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
+            //redis出错时返回旧值
+            byte[] stale = staleCache == null ? null : staleCache.getStale(key);
+            if (stale != null) {
+                return SafeEncoder.encode(stale);
+            }
         }
         return value;
     }
@@ -634,15 +604,13 @@ public class RedisCluster {
         try {
 
             if (isCluster(groupName)) {
-                value = getBinaryJedisClusterCommands(groupName).get(key);;
+                value = executeBinaryClusterRead(groupName, c -> c.get(key));;
             } else {
-                value = getBinaryJedisCommands(groupName).get(key);
+                value = executeBinaryRead(groupName, c -> c.get(key));
             }
             return value;
         } catch (Exception e){
             logger.error("RedisCluster.get falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return value;
 
@@ -652,14 +620,32 @@ public class RedisCluster {
      * 返回所有(一个或多个)给定 key 的值。 如果给定的 key 里面，有某个 key 不存在，那么这个 key 返回特殊值 nil
      * 。因此，该命令永不失败。
      *
-     * 一个包含所有给定 key 的值的列表。
+     * 以pipeline批量执行（集群模式按节点、分片模式按分片分组），不读本地缓存。
+     *
+     * 一个包含所有给定 key 的值的列表，异常时返回null。
      *
      * @param keys
      * @return
      */
-    @Deprecated
     public List<String> mget(String... keys) {
-        return null;
+        try {
+            RedisBatch batch = new RedisBatch(groupName);
+            for (String key : keys) {
+                batch.add(key, p -> p.get(key));
+            }
+            List<Object> responses = batch.execute();
+            List<String> result = new ArrayList<>(responses.size());
+            for (Object response : responses) {
+                if (response instanceof RuntimeException) {
+                    throw (RuntimeException) response;
+                }
+                result.add((String) response);
+            }
+            return result;
+        } catch (Exception e){
+            logger.error("RedisCluster.mget falid", e);
+            return null;
+        }
     }
 
     /**
@@ -673,17 +659,8 @@ public class RedisCluster {
      * @return
      */
     public boolean getBit(String key, long offset) {
-        try {
-            boolean value;
-            if (isCluster(groupName)) {
-                value = getJedisClusterCommands(groupName).getbit(key,offset);
-            } else {
-                value = getJedisCommands(groupName).getbit(key,offset);
-            }
-            return value;
-        } finally {
-            getJedisProvider(groupName).release();
-        }
+        boolean value = read(key, c -> c.getbit(key,offset));
+        return value;
     }
 
     /**
@@ -701,16 +678,10 @@ public class RedisCluster {
         String value = null;
         try {
 
-            if (isCluster(groupName)) {
-                value = getJedisClusterCommands(groupName).getrange( key,  startOffset,  endOffset);
-            } else {
-                value = getJedisCommands(groupName).getrange( key,  startOffset,  endOffset);
-            }
+            value = read(key, c -> c.getrange( key,  startOffset,  endOffset));
             return value;
         } catch (Exception e){
             logger.error("RedisCluster.getrange falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return value;
     }
@@ -728,16 +699,11 @@ public class RedisCluster {
         String oldValue=null;
         try {
 
-            if (isCluster(groupName)) {
-                oldValue = getJedisClusterCommands(groupName).getSet( key,  value);
-            } else {
-                oldValue = getJedisCommands(groupName).getSet( key,  value);
-            }
+            oldValue = execute(groupName, c -> c.getSet( key,  value));
+            invalidateLocal(key);
 
         } catch (Exception e){
             logger.error("RedisCluster.getSet falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return oldValue;
     }
@@ -755,16 +721,15 @@ public class RedisCluster {
         byte[] oldValue=null;
         try {
             if (isCluster(groupName)) {
-                oldValue = getBinaryJedisClusterCommands(groupName).getSet( key,  value);
+                oldValue = executeBinaryCluster(groupName, c -> c.getSet( key,  value));
             } else {
-                oldValue = getBinaryJedisCommands(groupName).getSet( key,  value);
+                oldValue = executeBinary(groupName, c -> c.getSet( key,  value));
             }
+            invalidateLocal(SafeEncoder.encode(key));
             return oldValue;
         }catch (Exception e){
             logger.error("RedisCluster.decr falid", e);
 
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return oldValue;
     }
@@ -781,18 +746,13 @@ public class RedisCluster {
     public long decr(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).decr( key);
-            } else {
-                result = getJedisCommands(groupName).decr( key);
-            }
+            result = execute(groupName, c -> c.decr( key));
+            invalidateLocal(key);
             return result;
 
         }catch (Exception e){
             logger.error("RedisCluster.decr falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -810,15 +770,14 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).decr( key);
+                result = executeBinaryCluster(groupName, c -> c.decr( key));
             } else {
-                result = getBinaryJedisCommands(groupName).decr( key);
+                result = executeBinary(groupName, c -> c.decr( key));
             }
+            invalidateLocal(SafeEncoder.encode(key));
         }catch (Exception e){
             logger.error("RedisCluster.decr falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -836,16 +795,11 @@ public class RedisCluster {
     public long decrBy(String key, long integer) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).decrBy( key,integer);
-            } else {
-                result = getJedisCommands(groupName).decrBy( key,integer);
-            }
+            result = execute(groupName, c -> c.decrBy( key,integer));
+            invalidateLocal(key);
         }catch (Exception e){
             logger.error("RedisCluster.decrBy falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -864,15 +818,14 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).decrBy( key,integer);
+                result = executeBinaryCluster(groupName, c -> c.decrBy( key,integer));
             } else {
-                result = getBinaryJedisCommands(groupName).decrBy( key,integer);
+                result = executeBinary(groupName, c -> c.decrBy( key,integer));
             }
+            invalidateLocal(SafeEncoder.encode(key));
         }catch (Exception e){
             logger.error("RedisCluster.decrBy falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -889,16 +842,11 @@ public class RedisCluster {
     public long incr(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).incr( key);
-            } else {
-                result = getJedisCommands(groupName).incr( key);
-            }
+            result = execute(groupName, c -> c.incr( key));
+            invalidateLocal(key);
         }catch (Exception e){
             logger.error("RedisCluster.incr falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -916,15 +864,14 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).incr( key);
+                result = executeBinaryCluster(groupName, c -> c.incr( key));
             } else {
-                result = getBinaryJedisCommands(groupName).incr( key);
+                result = executeBinary(groupName, c -> c.incr( key));
             }
+            invalidateLocal(SafeEncoder.encode(key));
         }catch (Exception e){
             logger.error("RedisCluster.incr falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -942,16 +889,11 @@ public class RedisCluster {
     public long incrBy(String key, long integer) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).incrBy( key,integer);
-            } else {
-                result = getJedisCommands(groupName).incrBy( key,integer);
-            }
+            result = execute(groupName, c -> c.incrBy( key,integer));
+            invalidateLocal(key);
         }catch (Exception e){
             logger.error("RedisCluster.incrBy falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -970,15 +912,14 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).incrBy( key,integer);
+                result = executeBinaryCluster(groupName, c -> c.incrBy( key,integer));
             } else {
-                result = getBinaryJedisCommands(groupName).incrBy( key,integer);
+                result = executeBinary(groupName, c -> c.incrBy( key,integer));
             }
+            invalidateLocal(SafeEncoder.encode(key));
         }catch (Exception e){
             logger.error("RedisCluster.incrBy falid", e);
             result = -10000;
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -994,15 +935,9 @@ public class RedisCluster {
     public List<String> sort(String key) {
         List<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).sort( key);
-            } else {
-                result = getJedisCommands(groupName).sort( key);
-            }
+            result = execute(groupName, c -> c.sort( key));
         }catch (Exception e){
             logger.error("RedisCluster.sort falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1019,14 +954,12 @@ public class RedisCluster {
         List<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).sort( key);
+                result = executeBinaryCluster(groupName, c -> c.sort( key));
             } else {
-                result = getBinaryJedisCommands(groupName).sort( key);
+                result = executeBinary(groupName, c -> c.sort( key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.sort falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1043,15 +976,9 @@ public class RedisCluster {
     public List<String> sort(String key, SortingParams sortingParameters) {
         List<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).sort(key, sortingParameters);
-            } else {
-                result = getJedisCommands(groupName).sort(key, sortingParameters);
-            }
+            result = execute(groupName, c -> c.sort(key, sortingParameters));
         }catch (Exception e){
             logger.error("RedisCluster.sort falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1069,14 +996,12 @@ public class RedisCluster {
         List<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).sort(key, sortingParameters);
+                result = executeBinaryCluster(groupName, c -> c.sort(key, sortingParameters));
             } else {
-                result = getBinaryJedisCommands(groupName).sort(key, sortingParameters);
+                result = executeBinary(groupName, c -> c.sort(key, sortingParameters));
             }
         }catch (Exception e){
             logger.error("RedisCluster.sort falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1097,15 +1022,9 @@ public class RedisCluster {
     public long hset(String key, String field, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hset(key,  field,  value);
-            } else {
-                result = getJedisCommands(groupName).hset(key,   field,  value);
-            }
+            result = execute(groupName, c -> c.hset(key,  field,  value));
         }catch (Exception e){
             logger.error("RedisCluster.hset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1126,14 +1045,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hset(key,  field,  value);
+                result = executeBinaryCluster(groupName, c -> c.hset(key,  field,  value));
             } else {
-                result = getBinaryJedisCommands(groupName).hset(key,   field,  value);
+                result = executeBinary(groupName, c -> c.hset(key,   field,  value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1152,15 +1069,9 @@ public class RedisCluster {
     public long hsetnx(String key, String field, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hsetnx(key,  field,  value);
-            } else {
-                result = getJedisCommands(groupName).hsetnx(key,   field,  value);
-            }
+            result = execute(groupName, c -> c.hsetnx(key,  field,  value));
         }catch (Exception e){
             logger.error("RedisCluster.hsetnx falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1180,14 +1091,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hsetnx(key, field,  value);
+                result = executeBinaryCluster(groupName, c -> c.hsetnx(key, field,  value));
             } else {
-                result = getBinaryJedisCommands(groupName).hsetnx(key, field,  value);
+                result = executeBinary(groupName, c -> c.hsetnx(key, field,  value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hsetnx falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1205,21 +1114,12 @@ public class RedisCluster {
     public boolean hmset(String key, Map<String, String> hash) {
         boolean result = false;
         try {
-            if (isCluster(groupName)) {
-                String status = getJedisClusterCommands(groupName).hmset(key, hash);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
-            } else {
-                String status  = getJedisCommands(groupName).hmset(key,  hash);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
+            String status = execute(groupName, c -> c.hmset(key, hash));
+            if ("OK".equalsIgnoreCase(status)) {
+                result = true;
             }
         }catch (Exception e){
             logger.error("RedisCluster.hmset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1238,20 +1138,18 @@ public class RedisCluster {
         boolean result = false;
         try {
             if (isCluster(groupName)) {
-                String status = getBinaryJedisClusterCommands(groupName).hmset(key, hash);
+                String status = executeBinaryCluster(groupName, c -> c.hmset(key, hash));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             } else {
-                String status  = getBinaryJedisCommands(groupName).hmset(key,  hash);
+                String status  = executeBinary(groupName, c -> c.hmset(key,  hash));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             }
         }catch (Exception e){
             logger.error("RedisCluster.hmset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1268,15 +1166,9 @@ public class RedisCluster {
     public String hget(String key, String field) {
         String value = null;
         try {
-            if (isCluster(groupName)) {
-                value = getJedisClusterCommands(groupName).hget(key,field);
-            } else {
-                value = getJedisCommands(groupName).hget(key,field);
-            }
+            value = read(key, c -> c.hget(key,field), p -> p.hget(key,field));
         }catch (Exception e){
             logger.error("RedisCluster.hmset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return value;
     }
@@ -1294,14 +1186,12 @@ public class RedisCluster {
         byte[] value = null;
         try {
             if (isCluster(groupName)) {
-                value = getBinaryJedisClusterCommands(groupName).hget(key,field);
+                value = executeBinaryClusterRead(groupName, c -> c.hget(key,field));
             } else {
-                value  = getBinaryJedisCommands(groupName).hget(key,field);
+                value  = executeBinaryRead(groupName, c -> c.hget(key,field));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hget falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return value;
     }
@@ -1319,15 +1209,9 @@ public class RedisCluster {
     public List<String> hmget(String key, String... fields) {
         List<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hmget(key,fields);
-            } else {
-                result = getJedisCommands(groupName).hmget(key,fields);
-            }
+            result = read(key, c -> c.hmget(key,fields), p -> p.hmget(key,fields));
         }catch (Exception e){
             logger.error("RedisCluster.hmget falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1346,14 +1230,12 @@ public class RedisCluster {
         List<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hmget(key,fields);
+                result = executeBinaryClusterRead(groupName, c -> c.hmget(key,fields));
             } else {
-                result = getBinaryJedisCommands(groupName).hmget(key,fields);
+                result = executeBinaryRead(groupName, c -> c.hmget(key,fields));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hmget falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1370,15 +1252,9 @@ public class RedisCluster {
     public Map<String, String> hgetAll(String key) {
         Map<String, String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hgetAll(key);
-            } else {
-                result = getJedisCommands(groupName).hgetAll(key);
-            }
+            result = read(key, c -> c.hgetAll(key), p -> p.hgetAll(key));
         }catch (Exception e){
             logger.error("RedisCluster.hgetAll falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1396,14 +1272,12 @@ public class RedisCluster {
         Map<byte[], byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hgetAll(key);
+                result = executeBinaryClusterRead(groupName, c -> c.hgetAll(key));
             } else {
-                result = getBinaryJedisCommands(groupName).hgetAll(key);
+                result = executeBinaryRead(groupName, c -> c.hgetAll(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hgetAll falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1420,15 +1294,9 @@ public class RedisCluster {
     public long hdel(String key, String... fields) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hdel(key);
-            } else {
-                result = getJedisCommands(groupName).hdel(key);
-            }
+            result = execute(groupName, c -> c.hdel(key));
         }catch (Exception e){
             logger.error("RedisCluster.hdel falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1446,14 +1314,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hdel(key);
+                result = executeBinaryCluster(groupName, c -> c.hdel(key));
             } else {
-                result = getBinaryJedisCommands(groupName).hdel(key);
+                result = executeBinary(groupName, c -> c.hdel(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hdel falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1469,15 +1335,9 @@ public class RedisCluster {
     public long hlen(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hlen(key);
-            } else {
-                result = getJedisCommands(groupName).hlen(key);
-            }
+            result = read(key, c -> c.hlen(key));
         }catch (Exception e){
             logger.error("RedisCluster.hlen falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1494,14 +1354,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hlen(key);
+                result = executeBinaryClusterRead(groupName, c -> c.hlen(key));
             } else {
-                result = getBinaryJedisCommands(groupName).hlen(key);
+                result = executeBinaryRead(groupName, c -> c.hlen(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hlen falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1518,15 +1376,9 @@ public class RedisCluster {
     public boolean hexists(String key, String field) {
         boolean result = false;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hexists(key,field);
-            } else {
-                result = getJedisCommands(groupName).hexists(key,field);
-            }
+            result = read(key, c -> c.hexists(key,field), p -> p.hexists(key,field));
         }catch (Exception e){
             logger.error("RedisCluster.hexists falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1544,14 +1396,12 @@ public class RedisCluster {
         boolean result = false;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hexists(key,field);
+                result = executeBinaryClusterRead(groupName, c -> c.hexists(key,field));
             } else {
-                result = getBinaryJedisCommands(groupName).hexists(key,field);
+                result = executeBinaryRead(groupName, c -> c.hexists(key,field));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hexists falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1571,15 +1421,9 @@ public class RedisCluster {
     public long hincrBy(String key, String field, long value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hincrBy(key,field,value);
-            } else {
-                result = getJedisCommands(groupName).hincrBy(key,field,value);
-            }
+            result = execute(groupName, c -> c.hincrBy(key,field,value));
         }catch (Exception e){
             logger.error("RedisCluster.hincrBy falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1600,14 +1444,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hincrBy(key,field,value);
+                result = executeBinaryCluster(groupName, c -> c.hincrBy(key,field,value));
             } else {
-                result = getBinaryJedisCommands(groupName).hincrBy(key,field,value);
+                result = executeBinary(groupName, c -> c.hincrBy(key,field,value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hincrBy falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1623,15 +1465,9 @@ public class RedisCluster {
     public Set<String> hkeys(String key) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hkeys(key);
-            } else {
-                result = getJedisCommands(groupName).hkeys(key);
-            }
+            result = read(key, c -> c.hkeys(key));
         }catch (Exception e){
             logger.error("RedisCluster.hkeys falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1648,14 +1484,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hkeys(key);
+                result = executeBinaryClusterRead(groupName, c -> c.hkeys(key));
             } else {
-                result = getBinaryJedisCommands(groupName).hkeys(key);
+                result = executeBinaryRead(groupName, c -> c.hkeys(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hkeys falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1671,15 +1505,9 @@ public class RedisCluster {
     public List<String> hvals(String key) {
         List<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).hvals(key);
-            } else {
-                result = getJedisCommands(groupName).hvals(key);
-            }
+            result = read(key, c -> c.hvals(key));
         }catch (Exception e){
             logger.error("RedisCluster.hvals falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1696,14 +1524,12 @@ public class RedisCluster {
         Collection<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).hvals(key);
+                result = executeBinaryClusterRead(groupName, c -> c.hvals(key));
             } else {
-                result = getBinaryJedisCommands(groupName).hvals(key);
+                result = executeBinaryRead(groupName, c -> c.hvals(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.hvals falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1722,15 +1548,9 @@ public class RedisCluster {
     public long sadd(String key, String... members) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).sadd(key,members);
-            } else {
-                result = getJedisCommands(groupName).sadd(key,members);
-            }
+            result = execute(groupName, c -> c.sadd(key,members));
         }catch (Exception e){
             logger.error("RedisCluster.sadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1749,14 +1569,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).sadd(key,members);
+                result = executeBinaryCluster(groupName, c -> c.sadd(key,members));
             } else {
-                result = getBinaryJedisCommands(groupName).sadd(key,members);
+                result = executeBinary(groupName, c -> c.sadd(key,members));
             }
         }catch (Exception e){
             logger.error("RedisCluster.sadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1773,15 +1591,9 @@ public class RedisCluster {
     public long srem(String key, String... members) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).srem(key,members);
-            } else {
-                result = getJedisCommands(groupName).srem(key,members);
-            }
+            result = execute(groupName, c -> c.srem(key,members));
         }catch (Exception e){
             logger.error("RedisCluster.srem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1799,14 +1611,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).srem(key,members);
+                result = executeBinaryCluster(groupName, c -> c.srem(key,members));
             } else {
-                result = getBinaryJedisCommands(groupName).srem(key,members);
+                result = executeBinary(groupName, c -> c.srem(key,members));
             }
         }catch (Exception e){
             logger.error("RedisCluster.srem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1822,15 +1632,9 @@ public class RedisCluster {
     public Set<String> smembers(String key) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).smembers(key);
-            } else {
-                result = getJedisCommands(groupName).smembers(key);
-            }
+            result = read(key, c -> c.smembers(key));
         }catch (Exception e){
             logger.error("RedisCluster.smembers falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1847,14 +1651,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).smembers(key);
+                result = executeBinaryClusterRead(groupName, c -> c.smembers(key));
             } else {
-                result = getBinaryJedisCommands(groupName).smembers(key);
+                result = executeBinaryRead(groupName, c -> c.smembers(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.smembers falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1871,15 +1673,9 @@ public class RedisCluster {
     public boolean sismember(String key, String member) {
         boolean result = false;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).sismember(key,member);
-            } else {
-                result = getJedisCommands(groupName).sismember(key,member);
-            }
+            result = read(key, c -> c.sismember(key,member), p -> p.sismember(key,member));
         }catch (Exception e){
             logger.error("RedisCluster.sismember falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1897,14 +1693,12 @@ public class RedisCluster {
         boolean result = false;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).sismember(key,member);
+                result = executeBinaryClusterRead(groupName, c -> c.sismember(key,member));
             } else {
-                result = getBinaryJedisCommands(groupName).sismember(key,member);
+                result = executeBinaryRead(groupName, c -> c.sismember(key,member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.sismember falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1920,15 +1714,9 @@ public class RedisCluster {
     public long scard(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).scard(key);
-            } else {
-                result = getJedisCommands(groupName).scard(key);
-            }
+            result = read(key, c -> c.scard(key));
         }catch (Exception e){
             logger.error("RedisCluster.scard falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1945,14 +1733,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).scard(key);
+                result = executeBinaryClusterRead(groupName, c -> c.scard(key));
             } else {
-                result = getBinaryJedisCommands(groupName).scard(key);
+                result = executeBinaryRead(groupName, c -> c.scard(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.scard falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1968,15 +1754,9 @@ public class RedisCluster {
     public String spop(String key) {
         String result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).spop(key);
-            } else {
-                result = getJedisCommands(groupName).spop(key);
-            }
+            result = execute(groupName, c -> c.spop(key));
         }catch (Exception e){
             logger.error("RedisCluster.spop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -1993,14 +1773,12 @@ public class RedisCluster {
         byte[] result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).spop(key);
+                result = executeBinaryCluster(groupName, c -> c.spop(key));
             } else {
-                result = getBinaryJedisCommands(groupName).spop(key);
+                result = executeBinary(groupName, c -> c.spop(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.spop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2018,15 +1796,9 @@ public class RedisCluster {
     public String srandmember(String key) {
         String result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).srandmember(key);
-            } else {
-                result = getJedisCommands(groupName).srandmember(key);
-            }
+            result = read(key, c -> c.srandmember(key));
         }catch (Exception e){
             logger.error("RedisCluster.srandmember falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2045,14 +1817,12 @@ public class RedisCluster {
         byte[] result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).srandmember(key);
+                result = executeBinaryClusterRead(groupName, c -> c.srandmember(key));
             } else {
-                result = getBinaryJedisCommands(groupName).srandmember(key);
+                result = executeBinaryRead(groupName, c -> c.srandmember(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.srandmember falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2071,15 +1841,9 @@ public class RedisCluster {
     public long lpush(String key, String... values) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lpush(key);
-            } else {
-                result = getJedisCommands(groupName).lpush(key);
-            }
+            result = execute(groupName, c -> c.lpush(key));
         }catch (Exception e){
             logger.error("RedisCluster.lpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2098,14 +1862,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lpush(key);
+                result = executeBinaryCluster(groupName, c -> c.lpush(key));
             } else {
-                result = getBinaryJedisCommands(groupName).lpush(key);
+                result = executeBinary(groupName, c -> c.lpush(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2122,15 +1884,9 @@ public class RedisCluster {
     public long lpushx(String key, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lpushx(key);
-            } else {
-                result = getJedisCommands(groupName).lpushx(key);
-            }
+            result = execute(groupName, c -> c.lpushx(key));
         }catch (Exception e){
             logger.error("RedisCluster.lpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2148,14 +1904,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lpushx(key);
+                result = executeBinaryCluster(groupName, c -> c.lpushx(key));
             } else {
-                result = getBinaryJedisCommands(groupName).lpushx(key);
+                result = executeBinary(groupName, c -> c.lpushx(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2174,15 +1928,9 @@ public class RedisCluster {
     public long rpush(String key, String... values) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).rpush(key,values);
-            } else {
-                result = getJedisCommands(groupName).rpush(key,values);
-            }
+            result = execute(groupName, c -> c.rpush(key,values));
         }catch (Exception e){
             logger.error("RedisCluster.rpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2202,14 +1950,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).rpush(key,values);
+                result = executeBinaryCluster(groupName, c -> c.rpush(key,values));
             } else {
-                result = getBinaryJedisCommands(groupName).rpush(key,values);
+                result = executeBinary(groupName, c -> c.rpush(key,values));
             }
         }catch (Exception e){
             logger.error("RedisCluster.rpush falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2227,15 +1973,9 @@ public class RedisCluster {
     public long rpushx(String key, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).rpushx(key,value);
-            } else {
-                result = getJedisCommands(groupName).rpushx(key,value);
-            }
+            result = execute(groupName, c -> c.rpushx(key,value));
         }catch (Exception e){
             logger.error("RedisCluster.rpushx falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2254,14 +1994,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).rpushx(key,value);
+                result = executeBinaryCluster(groupName, c -> c.rpushx(key,value));
             } else {
-                result = getBinaryJedisCommands(groupName).rpushx(key,value);
+                result = executeBinary(groupName, c -> c.rpushx(key,value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.rpushx falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2277,15 +2015,9 @@ public class RedisCluster {
     public String lpop(String key) {
         String result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lpop(key);
-            } else {
-                result = getJedisCommands(groupName).lpop(key);
-            }
+            result = execute(groupName, c -> c.lpop(key));
         }catch (Exception e){
             logger.error("RedisCluster.lpop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2302,14 +2034,12 @@ public class RedisCluster {
         byte[] result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lpop(key);
+                result = executeBinaryCluster(groupName, c -> c.lpop(key));
             } else {
-                result = getBinaryJedisCommands(groupName).lpop(key);
+                result = executeBinary(groupName, c -> c.lpop(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lpop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2325,15 +2055,9 @@ public class RedisCluster {
     public String rpop(String key) {
         String result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).rpop(key);
-            } else {
-                result = getJedisCommands(groupName).rpop(key);
-            }
+            result = execute(groupName, c -> c.rpop(key));
         }catch (Exception e){
             logger.error("RedisCluster.rpop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2350,14 +2074,12 @@ public class RedisCluster {
         byte[] result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).rpop(key);
+                result = executeBinaryCluster(groupName, c -> c.rpop(key));
             } else {
-                result = getBinaryJedisCommands(groupName).rpop(key);
+                result = executeBinary(groupName, c -> c.rpop(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.rpop falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2373,15 +2095,9 @@ public class RedisCluster {
     public long llen(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).llen(key);
-            } else {
-                result = getJedisCommands(groupName).llen(key);
-            }
+            result = read(key, c -> c.llen(key));
         }catch (Exception e){
             logger.error("RedisCluster.llen falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2398,14 +2114,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).llen(key);
+                result = executeBinaryClusterRead(groupName, c -> c.llen(key));
             } else {
-                result = getBinaryJedisCommands(groupName).llen(key);
+                result = executeBinaryRead(groupName, c -> c.llen(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.llen falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2427,15 +2141,9 @@ public class RedisCluster {
     public List<String> lrange(String key, long start, long end) {
         List<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lrange(key, start,  end);
-            } else {
-                result = getJedisCommands(groupName).lrange(key, start,  end);
-            }
+            result = read(key, c -> c.lrange(key, start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.lrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2458,14 +2166,12 @@ public class RedisCluster {
         List<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lrange(key, start,  end);
+                result = executeBinaryClusterRead(groupName, c -> c.lrange(key, start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).lrange(key, start,  end);
+                result = executeBinaryRead(groupName, c -> c.lrange(key, start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2487,15 +2193,9 @@ public class RedisCluster {
     public long lrem(String key, long count, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lrem(key, count,  value);
-            } else {
-                result = getJedisCommands(groupName).lrem(key, count,  value);
-            }
+            result = execute(groupName, c -> c.lrem(key, count,  value));
         }catch (Exception e){
             logger.error("RedisCluster.lrem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2518,14 +2218,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lrem(key, count,  value);
+                result = executeBinaryCluster(groupName, c -> c.lrem(key, count,  value));
             } else {
-                result = getBinaryJedisCommands(groupName).lrem(key, count,  value);
+                result = executeBinary(groupName, c -> c.lrem(key, count,  value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lrem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2545,21 +2243,12 @@ public class RedisCluster {
     public boolean lset(String key, long index, String value) {
         boolean result = false;
         try {
-            if (isCluster(groupName)) {
-                String status = getJedisClusterCommands(groupName).lset(key, index,  value);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
-            } else {
-                String status = getJedisCommands(groupName).lset(key, index,  value);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
+            String status = execute(groupName, c -> c.lset(key, index,  value));
+            if ("OK".equalsIgnoreCase(status)) {
+                result = true;
             }
         }catch (Exception e){
             logger.error("RedisCluster.lset falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2580,20 +2269,18 @@ public class RedisCluster {
         boolean result = false;
         try {
             if (isCluster(groupName)) {
-                String status = getBinaryJedisClusterCommands(groupName).lset(key, index, value);
+                String status = executeBinaryCluster(groupName, c -> c.lset(key, index, value));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             } else {
-                String status = getBinaryJedisCommands(groupName).lset(key, index, value);
+                String status = executeBinary(groupName, c -> c.lset(key, index, value));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             }
         } catch (Exception e) {
             logger.error("RedisCluster.lset falid", e);
-        } finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2616,21 +2303,12 @@ public class RedisCluster {
     public boolean ltrim(String key, long start, long end) {
         boolean result = false;
         try {
-            if (isCluster(groupName)) {
-                String status = getJedisClusterCommands(groupName).ltrim(key, start,  end);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
-            } else {
-                String status = getJedisCommands(groupName).ltrim(key, start,  end);
-                if ("OK".equalsIgnoreCase(status)) {
-                    result = true;
-                }
+            String status = execute(groupName, c -> c.ltrim(key, start,  end));
+            if ("OK".equalsIgnoreCase(status)) {
+                result = true;
             }
         }catch (Exception e){
             logger.error("RedisCluster.ltrim falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2654,20 +2332,18 @@ public class RedisCluster {
         boolean result = false;
         try {
             if (isCluster(groupName)) {
-                String status = getBinaryJedisClusterCommands(groupName).ltrim(key, start,  end);
+                String status = executeBinaryCluster(groupName, c -> c.ltrim(key, start,  end));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             } else {
-                String status = getBinaryJedisCommands(groupName).ltrim(key, start,  end);
+                String status = executeBinary(groupName, c -> c.ltrim(key, start,  end));
                 if ("OK".equalsIgnoreCase(status)) {
                     result = true;
                 }
             }
         }catch (Exception e){
             logger.error("RedisCluster.ltrim falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2687,15 +2363,9 @@ public class RedisCluster {
     public String lindex(String key, long index) {
         String result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).lindex(key, index);
-            } else {
-                result = getJedisCommands(groupName).lindex(key, index);
-            }
+            result = read(key, c -> c.lindex(key, index));
         }catch (Exception e){
             logger.error("RedisCluster.lindex falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2716,14 +2386,12 @@ public class RedisCluster {
         byte[] result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).lindex(key, index);
+                result = executeBinaryClusterRead(groupName, c -> c.lindex(key, index));
             } else {
-                result = getBinaryJedisCommands(groupName).lindex(key, index);
+                result = executeBinaryRead(groupName, c -> c.lindex(key, index));
             }
         }catch (Exception e){
             logger.error("RedisCluster.lindex falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2746,15 +2414,9 @@ public class RedisCluster {
     public long linsert(String key, BinaryClient.LIST_POSITION where, String pivot, String value) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).linsert(key, where, pivot, value);
-            } else {
-                result = getJedisCommands(groupName).linsert(key, where, pivot, value);
-            }
+            result = execute(groupName, c -> c.linsert(key, where, pivot, value));
         }catch (Exception e){
             logger.error("RedisCluster.linsert falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2778,14 +2440,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).linsert(key, where, pivot, value);
+                result = executeBinaryCluster(groupName, c -> c.linsert(key, where, pivot, value));
             } else {
-                result = getBinaryJedisCommands(groupName).linsert(key, where, pivot, value);
+                result = executeBinary(groupName, c -> c.linsert(key, where, pivot, value));
             }
         }catch (Exception e){
             logger.error("RedisCluster.linsert falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2808,15 +2468,9 @@ public class RedisCluster {
     public long zadd(String key, double score, String member) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zadd(key, score, member);
-            } else {
-                result = getJedisCommands(groupName).zadd(key, score, member);
-            }
+            result = execute(groupName, c -> c.zadd(key, score, member));
         }catch (Exception e){
             logger.error("RedisCluster.zadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2839,14 +2493,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zadd(key, score, member);
+                result = executeBinaryCluster(groupName, c -> c.zadd(key, score, member));
             } else {
-                result = getBinaryJedisCommands(groupName).zadd(key, score, member);
+                result = executeBinary(groupName, c -> c.zadd(key, score, member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2870,15 +2522,9 @@ public class RedisCluster {
         }
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zadd(key, scoreMembers);
-            } else {
-                result = getJedisCommands(groupName).zadd(key, scoreMembers);
-            }
+            result = execute(groupName, c -> c.zadd(key, scoreMembers));
         }catch (Exception e){
             logger.error("RedisCluster.zadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2903,14 +2549,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zadd(key, scoreMembers);
+                result = executeBinaryCluster(groupName, c -> c.zadd(key, scoreMembers));
             } else {
-                result = getBinaryJedisCommands(groupName).zadd(key, scoreMembers);
+                result = executeBinary(groupName, c -> c.zadd(key, scoreMembers));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2927,15 +2571,9 @@ public class RedisCluster {
     public long zrem(String key, String... members) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrem(key, members);
-            } else {
-                result = getJedisCommands(groupName).zrem(key, members);
-            }
+            result = execute(groupName, c -> c.zrem(key, members));
         }catch (Exception e){
             logger.error("RedisCluster.zrem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2953,14 +2591,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrem(key, members);
+                result = executeBinaryCluster(groupName, c -> c.zrem(key, members));
             } else {
-                result = getBinaryJedisCommands(groupName).zrem(key, members);
+                result = executeBinary(groupName, c -> c.zrem(key, members));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrem falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -2976,15 +2612,9 @@ public class RedisCluster {
     public long zcard(String key) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zcard(key);
-            } else {
-                result = getJedisCommands(groupName).zcard(key);
-            }
+            result = read(key, c -> c.zcard(key));
         }catch (Exception e){
             logger.error("RedisCluster.zcard falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3001,14 +2631,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zcard(key);
+                result = executeBinaryClusterRead(groupName, c -> c.zcard(key));
             } else {
-                result = getBinaryJedisCommands(groupName).zcard(key);
+                result = executeBinaryRead(groupName, c -> c.zcard(key));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zcard falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3026,15 +2654,9 @@ public class RedisCluster {
     public long zcount(String key, double min, double max) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zcount( key,  min,  max);
-            } else {
-                result = getJedisCommands(groupName).zcount( key,  min,  max);
-            }
+            result = read(key, c -> c.zcount( key,  min,  max));
         }catch (Exception e){
             logger.error("RedisCluster.zcount falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3053,14 +2675,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zcount( key,  min,  max);
+                result = executeBinaryClusterRead(groupName, c -> c.zcount( key,  min,  max));
             } else {
-                result = getBinaryJedisCommands(groupName).zcount( key,  min,  max);
+                result = executeBinaryRead(groupName, c -> c.zcount( key,  min,  max));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zcount falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3079,15 +2699,9 @@ public class RedisCluster {
     public long zcount(String key, String minmember, String maxmember) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zcount( key,  minmember,  maxmember);
-            } else {
-                result = getJedisCommands(groupName).zcount( key,  minmember,  maxmember);
-            }
+            result = read(key, c -> c.zcount( key,  minmember,  maxmember));
         }catch (Exception e){
             logger.error("RedisCluster.zcount falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3107,14 +2721,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zcount( key,  minmember,  maxmember);
+                result = executeBinaryClusterRead(groupName, c -> c.zcount( key,  minmember,  maxmember));
             } else {
-                result = getBinaryJedisCommands(groupName).zcount( key,  minmember,  maxmember);
+                result = executeBinaryRead(groupName, c -> c.zcount( key,  minmember,  maxmember));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zcount falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3132,15 +2744,9 @@ public class RedisCluster {
     public double zscore(String key, String member) {
         double result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zscore( key,  member);
-            } else {
-                result = getJedisCommands(groupName).zscore( key,  member);
-            }
+            result = read(key, c -> c.zscore( key,  member), p -> p.zscore(key, member));
         }catch (Exception e){
             logger.error("RedisCluster.zscore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3159,14 +2765,12 @@ public class RedisCluster {
         double result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zscore( key,  member);
+                result = executeBinaryClusterRead(groupName, c -> c.zscore( key,  member));
             } else {
-                result = getBinaryJedisCommands(groupName).zscore( key,  member);
+                result = executeBinaryRead(groupName, c -> c.zscore( key,  member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zscore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3189,15 +2793,9 @@ public class RedisCluster {
     public double zincrby(String key, double score, String member) {
         double result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zincrby( key,  score,  member);
-            } else {
-                result = getJedisCommands(groupName).zincrby( key,  score,  member);
-            }
+            result = execute(groupName, c -> c.zincrby( key,  score,  member));
         }catch (Exception e){
             logger.error("RedisCluster.zincrby falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3221,14 +2819,12 @@ public class RedisCluster {
         double result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zincrby( key,  score,  member);
+                result = executeBinaryCluster(groupName, c -> c.zincrby( key,  score,  member));
             } else {
-                result = getBinaryJedisCommands(groupName).zincrby( key,  score,  member);
+                result = executeBinary(groupName, c -> c.zincrby( key,  score,  member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zincrby falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3251,15 +2847,9 @@ public class RedisCluster {
     public Set<String> zrange(String key, long start, long end) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrange( key,  start,  end);
-            } else {
-                result = getJedisCommands(groupName).zrange( key,  start,  end);
-            }
+            result = read(key, c -> c.zrange( key,  start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.zrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3283,14 +2873,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrange( key,  start,  end);
+                result = executeBinaryClusterRead(groupName, c -> c.zrange( key,  start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).zrange( key,  start,  end);
+                result = executeBinaryRead(groupName, c -> c.zrange( key,  start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3313,15 +2901,9 @@ public class RedisCluster {
     public Set<String> zrevrange(String key, long start, long end) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrange( key,  start,  end);
-            } else {
-                result = getJedisCommands(groupName).zrevrange( key,  start,  end);
-            }
+            result = read(key, c -> c.zrevrange( key,  start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3345,14 +2927,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrevrange( key,  start,  end);
+                result = executeBinaryClusterRead(groupName, c -> c.zrevrange( key,  start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).zrevrange( key,  start,  end);
+                result = executeBinaryRead(groupName, c -> c.zrevrange( key,  start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrevrange falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3375,15 +2955,9 @@ public class RedisCluster {
     public Set<Tuple> zrevrangeWithScores(String key, long start, long end) {
         Set<Tuple> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrangeWithScores( key,  start,  end);
-            } else {
-                result = getJedisCommands(groupName).zrevrangeWithScores( key,  start,  end);
-            }
+            result = read(key, c -> c.zrevrangeWithScores( key,  start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeWithScores falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3407,14 +2981,12 @@ public class RedisCluster {
         Set<Tuple> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrevrangeWithScores( key,  start,  end);
+                result = executeBinaryClusterRead(groupName, c -> c.zrevrangeWithScores( key,  start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).zrevrangeWithScores( key,  start,  end);
+                result = executeBinaryRead(groupName, c -> c.zrevrangeWithScores( key,  start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.getBinaryJedisClusterCommands falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3434,15 +3006,9 @@ public class RedisCluster {
     public Set<String> zrangeByScore(String key, double min, double max) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrangeByScore( key,  min,  max);
-            } else {
-                result = getJedisCommands(groupName).zrangeByScore( key,  min,  max);
-            }
+            result = read(key, c -> c.zrangeByScore( key,  min,  max));
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3463,14 +3029,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrangeByScore( key,  min,  max);
+                result = executeBinaryClusterRead(groupName, c -> c.zrangeByScore( key,  min,  max));
             } else {
-                result = getBinaryJedisCommands(groupName).zrangeByScore( key,  min,  max);
+                result = executeBinaryRead(groupName, c -> c.zrangeByScore( key,  min,  max));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3495,15 +3059,9 @@ public class RedisCluster {
     public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrangeByScore( key,  min,  max,  offset,  count);
-            } else {
-                result = getJedisCommands(groupName).zrangeByScore( key,  min,  max,  offset,  count);
-            }
+            result = read(key, c -> c.zrangeByScore( key,  min,  max,  offset,  count));
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3529,14 +3087,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrangeByScore( key,  min,  max,  offset,  count);
+                result = executeBinaryClusterRead(groupName, c -> c.zrangeByScore( key,  min,  max,  offset,  count));
             } else {
-                result = getBinaryJedisCommands(groupName).zrangeByScore( key,  min,  max,  offset,  count);
+                result = executeBinaryRead(groupName, c -> c.zrangeByScore( key,  min,  max,  offset,  count));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3556,15 +3112,9 @@ public class RedisCluster {
     public Set<String> zrangeByScore(String key, String minmember, String maxmember) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrangeByScore( key,  minmember,maxmember);
-            } else {
-                result = getJedisCommands(groupName).zrangeByScore( key,  minmember,maxmember);
-            }
+            result = read(key, c -> c.zrangeByScore( key,  minmember,maxmember));
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3589,15 +3139,9 @@ public class RedisCluster {
     public Set<String> zrangeByScore(String key, String minmember, String maxmember, int offset, int count) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrangeByScore( key,  minmember,maxmember,offset,count);
-            } else {
-                result = getJedisCommands(groupName).zrangeByScore( key,  minmember,maxmember,offset,count);
-            }
+            result = read(key, c -> c.zrangeByScore( key,  minmember,maxmember,offset,count));
         }catch (Exception e){
             logger.error("RedisCluster.zrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3616,15 +3160,9 @@ public class RedisCluster {
     public Set<String> zrevrangeByScore(String key, double max, double min) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrangeByScore( key, max, min);
-            } else {
-                result = getJedisCommands(groupName).zrevrangeByScore( key, max, min);
-            }
+            result = read(key, c -> c.zrevrangeByScore( key, max, min));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3644,14 +3182,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrevrangeByScore( key, max, min);
+                result = executeBinaryClusterRead(groupName, c -> c.zrevrangeByScore( key, max, min));
             } else {
-                result = getBinaryJedisCommands(groupName).zrevrangeByScore( key, max, min);
+                result = executeBinaryRead(groupName, c -> c.zrevrangeByScore( key, max, min));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3675,15 +3211,9 @@ public class RedisCluster {
     public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrangeByScore( key,  max,  min,  offset, count);
-            } else {
-                result = getJedisCommands(groupName).zrevrangeByScore( key,  max,  min,  offset, count);
-            }
+            result = read(key, c -> c.zrevrangeByScore( key,  max,  min,  offset, count));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3708,14 +3238,12 @@ public class RedisCluster {
         Set<byte[]> result = null;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrevrangeByScore( key,  max,  min,  offset, count);
+                result = executeBinaryClusterRead(groupName, c -> c.zrevrangeByScore( key,  max,  min,  offset, count));
             } else {
-                result = getBinaryJedisCommands(groupName).zrevrangeByScore( key,  max,  min,  offset, count);
+                result = executeBinaryRead(groupName, c -> c.zrevrangeByScore( key,  max,  min,  offset, count));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3735,15 +3263,9 @@ public class RedisCluster {
     public Set<String> zrevrangeByScore(String key, String maxmember, String minmember) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrangeByScore(key, maxmember, minmember);
-            } else {
-                result = getJedisCommands(groupName).zrevrangeByScore(key, maxmember, minmember);
-            }
+            result = read(key, c -> c.zrevrangeByScore(key, maxmember, minmember));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3768,15 +3290,9 @@ public class RedisCluster {
     public Set<String> zrevrangeByScore(String key, String maxmember, String minmember, int offset, int count) {
         Set<String> result = null;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrangeByScore(key, maxmember, minmember, offset, count);
-            } else {
-                result = getJedisCommands(groupName).zrevrangeByScore(key, maxmember, minmember, offset, count);
-            }
+            result = read(key, c -> c.zrevrangeByScore(key, maxmember, minmember, offset, count));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3795,15 +3311,9 @@ public class RedisCluster {
     public long zrank(String key, String member) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrank(key, member);
-            } else {
-                result = getJedisCommands(groupName).zrank(key, member);
-            }
+            result = read(key, c -> c.zrank(key, member));
         }catch (Exception e){
             logger.error("RedisCluster.zrank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3823,14 +3333,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrank(key, member);
+                result = executeBinaryClusterRead(groupName, c -> c.zrank(key, member));
             } else {
-                result = getBinaryJedisCommands(groupName).zrank(key, member);
+                result = executeBinaryRead(groupName, c -> c.zrank(key, member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3849,15 +3357,9 @@ public class RedisCluster {
     public long zrevrank(String key, String member) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zrevrank(key, member);
-            } else {
-                result = getJedisCommands(groupName).zrevrank(key, member);
-            }
+            result = read(key, c -> c.zrevrank(key, member));
         }catch (Exception e){
             logger.error("RedisCluster.zrevrank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3877,14 +3379,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zrevrank(key, member);
+                result = executeBinaryClusterRead(groupName, c -> c.zrevrank(key, member));
             } else {
-                result = getBinaryJedisCommands(groupName).zrevrank(key, member);
+                result = executeBinaryRead(groupName, c -> c.zrevrank(key, member));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zrevrank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3906,15 +3406,9 @@ public class RedisCluster {
     public long zremrangeByRank(String key, long start, long end) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zremrangeByRank(key,  start,  end);
-            } else {
-                result = getJedisCommands(groupName).zremrangeByRank(key,  start,  end);
-            }
+            result = execute(groupName, c -> c.zremrangeByRank(key,  start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.zremrangeByRank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3937,14 +3431,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zremrangeByRank(key,  start,  end);
+                result = executeBinaryCluster(groupName, c -> c.zremrangeByRank(key,  start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).zremrangeByRank(key,  start,  end);
+                result = executeBinary(groupName, c -> c.zremrangeByRank(key,  start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zremrangeByRank falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3962,15 +3454,9 @@ public class RedisCluster {
     public long zremrangeByScore(String key, double start, double end) {
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).zremrangeByScore(key,  start,  end);
-            } else {
-                result = getJedisCommands(groupName).zremrangeByScore(key,  start,  end);
-            }
+            result = execute(groupName, c -> c.zremrangeByScore(key,  start,  end));
         }catch (Exception e){
             logger.error("RedisCluster.zremrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -3989,14 +3475,12 @@ public class RedisCluster {
         long result = -10000;
         try {
             if (isCluster(groupName)) {
-                result = getBinaryJedisClusterCommands(groupName).zremrangeByScore(key,  start,  end);
+                result = executeBinaryCluster(groupName, c -> c.zremrangeByScore(key,  start,  end));
             } else {
-                result = getBinaryJedisCommands(groupName).zremrangeByScore(key,  start,  end);
+                result = executeBinary(groupName, c -> c.zremrangeByScore(key,  start,  end));
             }
         }catch (Exception e){
             logger.error("RedisCluster.zremrangeByScore falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
@@ -4005,32 +3489,136 @@ public class RedisCluster {
     public long pfAdd(String key,String... elements){
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).pfadd(key);
-            } else {
-                result = getJedisCommands(groupName).pfadd(key);
-            }
+            result = execute(groupName, c -> c.pfadd(key, elements));
+            invalidateLocal(key);
         }catch (Exception e){
             logger.error("RedisCluster.pfadd falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
 
-    public long pfCount(String key){
+    /**
+     * 一个或多个key的并集基数
+     *
+     * 集群模式下key跨slot时在客户端合并寄存器计算
+     *
+     * @param keys
+     * @return
+     */
+    public long pfCount(String... keys){
         long result = -10000;
         try {
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).pfcount(key);
-            } else {
-                result = getJedisCommands(groupName).pfcount(key);
-            }
+            result = RedisHyperLogLog.pfCount(groupName, keys);
         }catch (Exception e){
             logger.error("RedisCluster.pfcount falid", e);
-        }finally {
-            getJedisProvider(groupName).release();
         }
         return result;
     }
+
+    /**
+     * 合并多个HyperLogLog到destKey
+     *
+     * 集群模式下key跨slot时在客户端合并源key的寄存器，写入destKey所在slot的临时key后PFMERGE到destKey，
+     * 不会覆盖合并期间对destKey的PFADD
+     *
+     * @param destKey
+     * @param sourceKeys
+     * @return
+     */
+    public boolean pfMerge(String destKey, String... sourceKeys){
+        try {
+            RedisHyperLogLog.pfMerge(groupName, destKey, sourceKeys);
+            invalidateLocal(destKey);
+            return true;
+        }catch (Exception e){
+            logger.error("RedisCluster.pfmerge falid", e);
+        }
+        return false;
+    }
+
+    /**
+     * 移除本地缓存（一级缓存）和过期数据兜底缓存中的key
+     * @param key
+     */
+    protected void invalidateLocal(String key) {
+        BinaryLocalCache localCache = getLocalCache(groupName);
+        if (localCache != null) {
+            localCache.remove(key);
+        }
+        StaleCache staleCache = getStaleCache(groupName);
+        if (staleCache != null) {
+            staleCache.remove(key);
+        }
+    }
+
+    /**
+     * 执行读命令：开启对冲读时由HedgedReader执行，否则按ReadMode读，执行完归还连接
+     * @param key
+     * @param command
+     * @return
+     */
+    protected <T> T read(String key, Function<JedisCommands, T> command) {
+        HedgedReader hedgedReader = getHedgedReader(groupName);
+        if (hedgedReader != null) {
+            JedisProvider<?, ?> provider = getJedisProvider(groupName);
+            if (provider instanceof NodeReadProvider) {
+                //回退（MOVED）在工作线程上执行，executeRead执行完归还连接
+                return hedgedReader.read((NodeReadProvider) provider, key, command::apply, () -> executeRead(groupName, command));
+            }
+        }
+        return executeRead(groupName, command);
+    }
+
+    /**
+     * 执行单key的简单读命令：开启自动批量时与其他线程同时发出的读命令合并为pipeline，否则同read(key, command)
+     * @param key
+     * @param command
+     * @param pipelined 在pipeline上发出同样的命令
+     * @return
+     */
+    protected <T> T read(String key, Function<JedisCommands, T> command, Function<Pipeline, Response<T>> pipelined) {
+        AutoBatcher autoBatcher = getAutoBatcher(groupName);
+        if (autoBatcher != null) {
+            return autoBatcher.execute(key, pipelined, () -> read(key, command));
+        }
+        return read(key, command);
+    }
+
+    /* ==========================lua脚本====================== */
+
+    /**
+     * 执行classpath中lua目录下的脚本（EVALSHA，NOSCRIPT时自动加载）
+     *
+     * 集群模式下所有key必须在同一个slot
+     *
+     * @param scriptName 脚本名，如 hash_compare_and_set 对应 lua/hash_compare_and_set.lua
+     * @param keys
+     * @param args
+     * @return 脚本返回值，异常时返回null
+     */
+    public Object evalScript(String scriptName, List<String> keys, List<String> args) {
+        try {
+            return RedisScriptRegistry.eval(scriptName, groupName, keys, args);
+        } catch (Exception e){
+            logger.error("RedisCluster.evalScript falid", e);
+            return null;
+        }
+    }
+
+    /**
+     * 哈希域比较并设置：当前值等于expect时设置为update，原子操作
+     *
+     * 返回值： 设置成功返回 true ， 当前值与期望不符返回 false
+     *
+     * @param key
+     * @param field
+     * @param expect 期望的当前值，null表示期望域不存在
+     * @param update
+     * @return
+     */
+    public boolean hcompareAndSet(String key, String field, String expect, String update) {
+        Object result = evalScript("hash_compare_and_set", Collections.singletonList(key),
+                Arrays.asList(field, expect == null ? "1" : "0", expect == null ? "" : expect, update));
+        return result != null && ((Long) result) == 1;
+    }
 }
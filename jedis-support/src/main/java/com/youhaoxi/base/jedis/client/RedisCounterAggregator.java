@@ -0,0 +1,335 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import com.youhaoxi.base.jedis.provider.CircuitOpenException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 计数器写回聚合（write-behind）
+ *
+ * incr/incrBy/hincrBy 只累加到本地计数器，按时间间隔或待写key数量阈值，
+ * 以pipeline批量INCRBY/HINCRBY写回redis；组销毁（JedisProvider.destroy）前会自动写回。
+ *
+ * 写回失败时：未发出的命令（借用连接失败、连接被拒绝、熔断）增量放回本地，下次重试；
+ * 命令错误（WRONGTYPE、increment would overflow等）记录日志后丢弃；
+ * 已发出但读超时、连接断开的命令无法确定服务端是否已执行，默认记录日志后丢弃（最多一次，可能少计），
+ * setRetryOnTimeout(true)时放回重试（至少一次，服务端已执行时重复计数）。
+ *
+ * 注意：写回前的增量只存在于本地，进程异常退出会丢失，适合统计类计数
+ */
+public class RedisCounterAggregator {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisCounterAggregator.class);
+
+	private static final int DEFAULT_MAX_PENDING_KEYS = 10000;
+
+	private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+	//单次pipeline最多命令数
+	private static final int BATCH_SIZE = 1000;
+
+	private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final String groupName;
+
+	private final int maxPendingKeys;
+
+	private volatile boolean shutdown;
+
+	//已发出但结果未知（读超时、连接断开）的增量是否重试
+	private volatile boolean retryOnTimeout;
+
+	public RedisCounterAggregator(String groupName) {
+		this(groupName, DEFAULT_MAX_PENDING_KEYS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 *
+	 * @param groupName 组名
+	 * @param maxPendingKeys 待写回key数量达到该值时立即触发写回
+	 * @param flushIntervalMillis 定时写回间隔（毫秒）
+	 */
+	public RedisCounterAggregator(String groupName, int maxPendingKeys, long flushIntervalMillis) {
+		this.groupName = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		this.maxPendingKeys = maxPendingKeys;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-counter-flusher-" + this.groupName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::tryFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		JedisProviderFactory.addDestroyHook(this.groupName, this::shutdown);
+	}
+
+	/**
+	 * 读超时、连接断开等已发出但结果未知的增量是否放回重试
+	 * @param retryOnTimeout true为至少一次（可能重复计数），默认false为最多一次（可能少计）
+	 */
+	public void setRetryOnTimeout(boolean retryOnTimeout) {
+		this.retryOnTimeout = retryOnTimeout;
+	}
+
+	public void incr(String key) {
+		add(new CounterKey(key, null), 1);
+	}
+
+	public void incrBy(String key, long delta) {
+		add(new CounterKey(key, null), delta);
+	}
+
+	public void decrBy(String key, long delta) {
+		add(new CounterKey(key, null), -delta);
+	}
+
+	public void hincrBy(String key, String field, long delta) {
+		add(new CounterKey(key, field), delta);
+	}
+
+	private void add(CounterKey counterKey, long delta) {
+		if(delta == 0)return;
+		while(true){
+			Counter counter = counters.get(counterKey);
+			if(counter == null){
+				counter = counters.computeIfAbsent(counterKey, Counter::new);
+				if(counters.size() >= maxPendingKeys){
+					triggerFlush();
+				}
+			}
+			counter.add(delta);
+			if(!counter.retired)return;
+			//计数器已被写回线程回收，把可能漏掉的增量转移到新的计数器
+			delta = counter.drain();
+			if(delta == 0)return;
+		}
+	}
+
+	private void triggerFlush() {
+		if(shutdown || !flushScheduled.compareAndSet(false, true))return;
+		try {
+			scheduler.execute(() -> {
+				flushScheduled.set(false);
+				tryFlush();
+			});
+		} catch (Exception e) {
+			flushScheduled.set(false);
+		}
+	}
+
+	private void tryFlush() {
+		if(!flushLock.tryLock())return;
+		try {
+			doFlush();
+		} catch (Exception e) {
+			logger.error("RedisCounterAggregator.flush falid", e);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * 立即写回所有累加的增量
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			doFlush();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void doFlush() {
+		List<Counter> pending = new ArrayList<>();
+		List<Long> deltas = new ArrayList<>();
+		for (Counter counter : counters.values()) {
+			long delta = counter.drain();
+			if(delta == 0){
+				//一个周期内没有增量，回收计数器
+				counters.remove(counter.key, counter);
+				counter.retired = true;
+				delta = counter.drain();
+				if(delta == 0)continue;
+			}
+			pending.add(counter);
+			deltas.add(delta);
+			if(pending.size() >= BATCH_SIZE){
+				write(pending, deltas);
+				pending.clear();
+				deltas.clear();
+			}
+		}
+		if(!pending.isEmpty()){
+			write(pending, deltas);
+		}
+	}
+
+	private void write(List<Counter> pending, List<Long> deltas) {
+		RedisBatch batch = new RedisBatch(groupName);
+		for (int i = 0; i < pending.size(); i++) {
+			CounterKey counterKey = pending.get(i).key;
+			long delta = deltas.get(i);
+			if(counterKey.field == null){
+				batch.add(counterKey.key, p -> p.incrBy(counterKey.key, delta));
+			}else{
+				batch.add(counterKey.key, p -> p.hincrBy(counterKey.key, counterKey.field, delta));
+			}
+		}
+		List<Object> results = batch.execute();
+		int retried = 0, dropped = 0;
+		for (int i = 0; i < results.size(); i++) {
+			Object result = results.get(i);
+			if(!(result instanceof Exception))continue;
+			CounterKey counterKey = pending.get(i).key;
+			if(notSent((Exception) result) || (retryOnTimeout && !(result instanceof JedisDataException))){
+				//放回本地，下次重试
+				add(counterKey, deltas.get(i));
+				retried++;
+			}else{
+				logger.error("RedisCounterAggregator write back falid,dropped,group:{},key:{},field:{},delta:{},error:{}",
+						groupName, counterKey.key, counterKey.field, deltas.get(i), ((Exception) result).getMessage());
+				dropped++;
+			}
+		}
+		if(retried + dropped > 0){
+			logger.warn("RedisCounterAggregator write back falid,group:{},retry:{},dropped:{},total:{}", groupName, retried, dropped, results.size());
+		}
+	}
+
+	/**
+	 * 命令是否未发出：借用连接失败（连接池耗尽、等待许可超时、连接被拒绝）、熔断或已过截止时间
+	 * @param e
+	 * @return
+	 */
+	private static boolean notSent(Exception e) {
+		if(e instanceof CircuitOpenException || e instanceof DeadlineExceededException)return true;
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if(t instanceof ConnectException || t instanceof NoSuchElementException)return true;
+			if(t.getMessage() != null && t.getMessage().startsWith("Could not get a "))return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 停止定时写回并写回剩余增量
+	 */
+	public void shutdown() {
+		if(shutdown)return;
+		shutdown = true;
+		scheduler.shutdown();
+		try {
+			flush();
+		} catch (Exception e) {
+			logger.error("RedisCounterAggregator.shutdown flush falid", e);
+		}
+	}
+
+	private static final class CounterKey {
+		final String key;
+		final String field;
+		final int hash;
+
+		CounterKey(String key, String field) {
+			this.key = key;
+			this.field = field;
+			this.hash = 31 * key.hashCode() + (field == null ? 0 : field.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o)return true;
+			if(!(o instanceof CounterKey))return false;
+			CounterKey other = (CounterKey) o;
+			return key.equals(other.key) && Objects.equals(field, other.field);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * 分段无锁计数器：无竞争时只用base，CAS冲突后按线程分散到多个cell
+	 */
+	private static final class Counter {
+
+		private static final int STRIPES = stripes();
+
+		//每个cell占一个缓存行，避免伪共享
+		private static final int PADDING = 8;
+
+		final CounterKey key;
+
+		final AtomicLong base = new AtomicLong();
+
+		final AtomicReference<AtomicLongArray> cells = new AtomicReference<>();
+
+		volatile boolean retired;
+
+		Counter(CounterKey key) {
+			this.key = key;
+		}
+
+		void add(long delta) {
+			AtomicLongArray cs = cells.get();
+			if(cs == null){
+				long b = base.get();
+				if(base.compareAndSet(b, b + delta))return;
+				cells.compareAndSet(null, new AtomicLongArray(STRIPES * PADDING));
+				cs = cells.get();
+			}
+			int index = (int) (mix(Thread.currentThread().getId()) & (STRIPES - 1)) * PADDING;
+			cs.getAndAdd(index, delta);
+		}
+
+		long drain() {
+			long sum = base.getAndSet(0);
+			AtomicLongArray cs = cells.get();
+			if(cs != null){
+				for (int i = 0; i < STRIPES; i++) {
+					sum += cs.getAndSet(i * PADDING, 0);
+				}
+			}
+			return sum;
+		}
+
+		private static long mix(long id) {
+			id *= 0x9E3779B97F4A7C15L;
+			return id ^ (id >>> 32);
+		}
+
+		private static int stripes() {
+			int n = Math.min(64, Runtime.getRuntime().availableProcessors());
+			int stripes = 1;
+			while(stripes < n)stripes <<= 1;
+			return stripes;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.youhaoxi.base.jedis.client;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+import redis.clients.util.SafeEncoder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * redis操作hashmap（field为字符串，value为序列化对象）
+ * @description <br>
+ */
+public class RedisHashMap extends RedisBase {
+
+	public RedisHashMap(String key) {
+		super(key);
+	}
+
+	/**
+	 * @param key
+	 * @param groupName 分组名
+	 */
+	public RedisHashMap(String key, String groupName) {
+		super(key, groupName);
+	}
+
+	/**
+	 * 使用预先编码的key
+	 * @param key
+	 */
+	public RedisHashMap(RedisKey key) {
+		super(key);
+	}
+
+	/**
+	 * 设置单个域
+	 * @param field
+	 * @param value
+	 * @return
+	 */
+	public boolean set(String field, Object value) {
+		if(value == null)return false;
+		byte[] data = valueSerialize(value);
+		if(isCluster(groupName)){
+			executeBinaryCluster(groupName, c -> c.hset(key, SafeEncoder.encode(field), data));
+		}else{
+			executeBinary(groupName, c -> c.hset(key, SafeEncoder.encode(field), data));
+		}
+		return true;
+	}
+
+	/**
+	 * 批量设置（一条HMSET）
+	 * @param values
+	 * @return
+	 */
+	public boolean set(Map<String, ? extends Object> values) {
+		if(values == null || values.isEmpty())return false;
+		Map<byte[], byte[]> datas = new HashMap<>(values.size() * 4 / 3 + 1);
+		for (Map.Entry<String, ? extends Object> entry : values.entrySet()) {
+			if(entry.getValue() == null)continue;
+			datas.put(SafeEncoder.encode(entry.getKey()), valueSerialize(entry.getValue()));
+		}
+		if(datas.isEmpty())return false;
+		String result;
+		if(isCluster(groupName)){
+			result = executeBinaryCluster(groupName, c -> c.hmset(key, datas));
+		}else{
+			result = executeBinary(groupName, c -> c.hmset(key, datas));
+		}
+		return RESP_OK.equals(result);
+	}
+
+	/**
+	 * 获取单个域
+	 * @param field
+	 * @return
+	 */
+	public <T> T getOne(String field) {
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.hget(key, SafeEncoder.encode(field)));
+		}else{
+			bytes = executeBinary(groupName, c -> c.hget(key, SafeEncoder.encode(field)));
+		}
+		return elementDerialize("field[" + field + "]", bytes);
+	}
+
+	/**
+	 * 获取多个域（一条HMGET），不存在的域不包含在结果中
+	 * @param fields
+	 * @return
+	 */
+	public <T> Map<String, T> get(String... fields) {
+		if(fields.length == 0)return new HashMap<>(0);
+		byte[][] datas = new byte[fields.length][];
+		for (int i = 0; i < fields.length; i++) {
+			datas[i] = SafeEncoder.encode(fields[i]);
+		}
+		List<byte[]> bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.hmget(key, datas));
+		}else{
+			bytes = executeBinary(groupName, c -> c.hmget(key, datas));
+		}
+		Map<String, T> result = new HashMap<>(fields.length * 4 / 3 + 1);
+		for (int i = 0; i < fields.length; i++) {
+			T value = elementDerialize("field[" + fields[i] + "]", bytes.get(i));
+			if(value != null)result.put(fields[i], value);
+		}
+		return result;
+	}
+
+	/**
+	 * 获取全部域
+	 * @return
+	 */
+	public <T> Map<String, T> getAll() {
+		Map<byte[], byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.hgetAll(key));
+		}else{
+			datas = executeBinary(groupName, c -> c.hgetAll(key));
+		}
+		Map<String, T> result = new HashMap<>(datas.size() * 4 / 3 + 1);
+		for (Map.Entry<byte[], byte[]> entry : datas.entrySet()) {
+			String field = SafeEncoder.encode(entry.getKey());
+			T value = elementDerialize("field[" + field + "]", entry.getValue());
+			if(value != null)result.put(field, value);
+		}
+		return result;
+	}
+
+	/**
+	 * 获取全部值
+	 * @return
+	 */
+	public <T> List<T> values() {
+		Collection<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.hvals(key));
+		}else{
+			datas = executeBinary(groupName, c -> c.hvals(key));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 获取全部域名
+	 * @return
+	 */
+	public Set<String> getFieldSets() {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.hkeys(key));
+		}else{
+			datas = executeBinary(groupName, c -> c.hkeys(key));
+		}
+		Set<String> fields = new HashSet<>(datas.size() * 4 / 3 + 1);
+		for (byte[] data : datas) {
+			fields.add(SafeEncoder.encode(data));
+		}
+		return fields;
+	}
+
+	/**
+	 * 删除一个或多个域
+	 * @param fields
+	 * @return 被删除的域数量
+	 */
+	public long remove(String... fields) {
+		if(fields.length == 0)return 0;
+		byte[][] datas = new byte[fields.length][];
+		for (int i = 0; i < fields.length; i++) {
+			datas[i] = SafeEncoder.encode(fields[i]);
+		}
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.hdel(key, datas));
+		}
+		return executeBinary(groupName, c -> c.hdel(key, datas));
+	}
+
+	public boolean containsKey(String field) {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.hexists(key, SafeEncoder.encode(field)));
+		}
+		return executeBinary(groupName, c -> c.hexists(key, SafeEncoder.encode(field)));
+	}
+
+	/**
+	 * 域的数量
+	 * @return
+	 */
+	public long length() {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.hlen(key));
+		}
+		return executeBinary(groupName, c -> c.hlen(key));
+	}
+}
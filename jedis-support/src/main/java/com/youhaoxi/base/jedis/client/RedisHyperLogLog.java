@@ -0,0 +1,507 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.JedisClusterHashTagUtil;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeMultiKey;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeMultiKeyCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeOnShard;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getJedisProvider;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isSharded;
+
+/**
+ * HyperLogLog基数统计
+ *
+ * add 只写入本地缓冲（同一周期内重复元素本地去重），按时间间隔或缓冲元素数量阈值，
+ * 以pipeline批量PFADD写回redis；组销毁（JedisProvider.destroy）前会自动写回。
+ *
+ * 多key的count/merge：单机模式或集群模式下所有key在同一slot（使用hash tag，如 dau:{20180101}:web）时直接使用PFCOUNT/PFMERGE；
+ * 集群模式下key跨slot（分片模式下跨分片）时，读取各key的HLL原始数据在客户端合并寄存器后计算基数；
+ * 合并时把合并结果写入destKey所在slot（分片）的临时key，再PFMERGE到destKey。
+ */
+public class RedisHyperLogLog {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisHyperLogLog.class);
+
+	private static final int DEFAULT_MAX_BUFFERED_ELEMENTS = 10000;
+
+	private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+	//单条PFADD最多元素数
+	private static final int ELEMENTS_PER_COMMAND = 1000;
+
+	//跨slot合并时临时key的后缀和过期秒数（删除失败时）
+	private static final String TEMP_KEY_SUFFIX = ":pfmerge:";
+	private static final int TEMP_KEY_SECONDS = 60;
+
+	/* redis HLL 编码：16384个6位寄存器，16字节头 */
+	private static final int HLL_P = 14;
+	private static final int HLL_Q = 64 - HLL_P;
+	private static final int HLL_REGISTERS = 1 << HLL_P;
+	private static final int HLL_BITS = 6;
+	private static final int HLL_REGISTER_MAX = (1 << HLL_BITS) - 1;
+	private static final int HLL_HDR_SIZE = 16;
+	private static final int HLL_DENSE_SIZE = HLL_HDR_SIZE + (HLL_REGISTERS * HLL_BITS + 7) / 8;
+	private static final int HLL_DENSE = 0;
+	private static final int HLL_SPARSE = 1;
+	private static final double HLL_ALPHA_INF = 0.721347520444481703680;
+
+	private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final AtomicInteger buffered = new AtomicInteger();
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final String groupName;
+
+	private final int maxBufferedElements;
+
+	private Map<String, Set<String>> buffer = new ConcurrentHashMap<>();
+
+	private volatile boolean shutdown;
+
+	public RedisHyperLogLog(String groupName) {
+		this(groupName, DEFAULT_MAX_BUFFERED_ELEMENTS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 *
+	 * @param groupName 组名
+	 * @param maxBufferedElements 缓冲元素数量达到该值时立即触发写回
+	 * @param flushIntervalMillis 定时写回间隔（毫秒）
+	 */
+	public RedisHyperLogLog(String groupName, int maxBufferedElements, long flushIntervalMillis) {
+		this.groupName = StringUtils.isBlank(groupName) ? JedisProviderFactoryBean.DEFAULT_GROUP_NAME : groupName;
+		this.maxBufferedElements = maxBufferedElements;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-hll-flusher-" + this.groupName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::tryFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		JedisProviderFactory.addDestroyHook(this.groupName, this::shutdown);
+	}
+
+	public void add(String key, String element) {
+		boolean added;
+		bufferLock.readLock().lock();
+		try {
+			added = elements(key).add(element);
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+		if(added && buffered.incrementAndGet() >= maxBufferedElements){
+			triggerFlush();
+		}
+	}
+
+	public void addAll(String key, Collection<String> elements) {
+		int added = 0;
+		bufferLock.readLock().lock();
+		try {
+			Set<String> set = elements(key);
+			for (String element : elements) {
+				if(set.add(element))added++;
+			}
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+		if(added > 0 && buffered.addAndGet(added) >= maxBufferedElements){
+			triggerFlush();
+		}
+	}
+
+	private Set<String> elements(String key) {
+		Set<String> set = buffer.get(key);
+		if(set == null){
+			set = buffer.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+		}
+		return set;
+	}
+
+	/**
+	 * 写回缓冲后统计（多个key时为并集基数）
+	 * @param keys
+	 * @return
+	 */
+	public long count(String... keys) {
+		flush();
+		return pfCount(groupName, keys);
+	}
+
+	/**
+	 * 写回缓冲后合并到destKey
+	 * @param destKey
+	 * @param sourceKeys
+	 */
+	public void merge(String destKey, String... sourceKeys) {
+		flush();
+		pfMerge(groupName, destKey, sourceKeys);
+	}
+
+	private void triggerFlush() {
+		if(shutdown || !flushScheduled.compareAndSet(false, true))return;
+		try {
+			scheduler.execute(() -> {
+				flushScheduled.set(false);
+				tryFlush();
+			});
+		} catch (Exception e) {
+			flushScheduled.set(false);
+		}
+	}
+
+	private void tryFlush() {
+		if(!flushLock.tryLock())return;
+		try {
+			doFlush();
+		} catch (Exception e) {
+			logger.error("RedisHyperLogLog.flush falid", e);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * 立即写回缓冲的元素
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			doFlush();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void doFlush() {
+		Map<String, Set<String>> pending;
+		bufferLock.writeLock().lock();
+		try {
+			if(buffer.isEmpty())return;
+			pending = buffer;
+			buffer = new ConcurrentHashMap<>();
+			buffered.set(0);
+		} finally {
+			bufferLock.writeLock().unlock();
+		}
+
+		RedisBatch batch = new RedisBatch(groupName);
+		List<String> batchKeys = new ArrayList<>();
+		List<String[]> batchElements = new ArrayList<>();
+		for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+			String key = entry.getKey();
+			List<String> elements = new ArrayList<>(entry.getValue());
+			for (int from = 0; from < elements.size(); from += ELEMENTS_PER_COMMAND) {
+				String[] chunk = elements.subList(from, Math.min(elements.size(), from + ELEMENTS_PER_COMMAND)).toArray(new String[0]);
+				batch.add(key, p -> p.pfadd(key, chunk));
+				batchKeys.add(key);
+				batchElements.add(chunk);
+			}
+		}
+		List<Object> results = batch.execute();
+		int failed = 0;
+		for (int i = 0; i < results.size(); i++) {
+			if(results.get(i) instanceof Exception){
+				//写回失败的元素放回本地，下次重试
+				addAll(batchKeys.get(i), Arrays.asList(batchElements.get(i)));
+				failed++;
+			}
+		}
+		if(failed > 0){
+			logger.warn("RedisHyperLogLog write back falid,group:{},failed:{}/{}", groupName, failed, results.size());
+		}
+	}
+
+	/**
+	 * 停止定时写回并写回剩余元素
+	 */
+	public void shutdown() {
+		if(shutdown)return;
+		shutdown = true;
+		scheduler.shutdown();
+		try {
+			flush();
+		} catch (Exception e) {
+			logger.error("RedisHyperLogLog.shutdown flush falid", e);
+		}
+	}
+
+	/**
+	 * 统计一个或多个key的并集基数
+	 * @param groupName
+	 * @param keys
+	 * @return
+	 */
+	public static long pfCount(String groupName, String... keys) {
+		if(keys.length == 0)return 0;
+		if (isCluster(groupName)) {
+			if(sameSlot(keys)){
+				return executeMultiKeyCluster(groupName, c -> c.pfcount(keys));
+			}
+			return estimate(mergeRegisters(groupName, keys));
+		} else if (isSharded(groupName)) {
+			if(sameShard(groupName, keys)){
+				return executeOnShard(groupName, keys[0], c -> c.pfcount(keys));
+			}
+			return estimate(mergeRegisters(groupName, keys));
+		} else {
+			return executeMultiKey(groupName, c -> c.pfcount(keys));
+		}
+	}
+
+	/**
+	 * 合并多个key到destKey（包含destKey原有数据）
+	 * @param groupName
+	 * @param destKey
+	 * @param sourceKeys
+	 */
+	public static void pfMerge(String groupName, String destKey, String... sourceKeys) {
+		String[] keys = Arrays.copyOf(sourceKeys, sourceKeys.length + 1);
+		keys[sourceKeys.length] = destKey;
+		if (isCluster(groupName)) {
+			if(sameSlot(keys)){
+				executeMultiKeyCluster(groupName, c -> c.pfmerge(destKey, sourceKeys));
+			}else{
+				mergeTo(groupName, destKey, sourceKeys);
+			}
+		} else if (isSharded(groupName)) {
+			if(sameShard(groupName, keys)){
+				executeOnShard(groupName, destKey, c -> c.pfmerge(destKey, sourceKeys));
+			}else{
+				mergeTo(groupName, destKey, sourceKeys);
+			}
+		} else {
+			executeMultiKey(groupName, c -> c.pfmerge(destKey, sourceKeys));
+		}
+	}
+
+	private static boolean sameSlot(String... keys) {
+		int slot = JedisClusterCRC16.getSlot(keys[0]);
+		for (int i = 1; i < keys.length; i++) {
+			if(JedisClusterCRC16.getSlot(keys[i]) != slot)return false;
+		}
+		return true;
+	}
+
+	private static boolean sameShard(String groupName, String... keys) {
+		return getJedisProvider(groupName).execute(client -> {
+			ShardedJedis sharded = (ShardedJedis) client;
+			Jedis shard = sharded.getShard(keys[0]);
+			for (int i = 1; i < keys.length; i++) {
+				if(sharded.getShard(keys[i]) != shard)return false;
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * 合并后的寄存器写入destKey所在slot（分片）的临时key，再PFMERGE到destKey：
+	 * 合并期间其他客户端对destKey的PFADD不会丢失，destKey原有的过期时间保留
+	 */
+	private static void mergeTo(String groupName, String destKey, String... sourceKeys) {
+		byte[] dense = toDense(mergeRegisters(groupName, sourceKeys));
+		//同一slot：{destKey的hash tag}
+		String tempKey = "{" + JedisClusterHashTagUtil.getHashTag(destKey) + "}" + TEMP_KEY_SUFFIX + UUID.randomUUID();
+		byte[] rawTempKey = SafeEncoder.encode(tempKey);
+		if (isCluster(groupName)) {
+			executeBinaryCluster(groupName, c -> c.setex(rawTempKey, TEMP_KEY_SECONDS, dense));
+			try {
+				executeMultiKeyCluster(groupName, c -> c.pfmerge(destKey, tempKey));
+			} finally {
+				executeBinaryCluster(groupName, c -> c.del(rawTempKey));
+			}
+		} else {
+			executeOnShard(groupName, destKey, shard -> {
+				shard.setex(rawTempKey, TEMP_KEY_SECONDS, dense);
+				try {
+					return shard.pfmerge(destKey, tempKey);
+				} finally {
+					shard.del(rawTempKey);
+				}
+			});
+		}
+	}
+
+	/**
+	 * 读取各key的HLL原始数据（pipeline），按寄存器取最大值合并
+	 */
+	private static int[] mergeRegisters(String groupName, String... keys) {
+		RedisBatch batch = new RedisBatch(groupName);
+		for (String key : keys) {
+			byte[] rawKey = SafeEncoder.encode(key);
+			batch.add(rawKey, p -> p.get(rawKey));
+		}
+		int[] registers = new int[HLL_REGISTERS];
+		List<Object> results = batch.execute();
+		for (int i = 0; i < keys.length; i++) {
+			Object result = results.get(i);
+			if(result instanceof RuntimeException){
+				throw (RuntimeException) result;
+			}
+			if(result != null){
+				mergeInto(registers, (byte[]) result, keys[i]);
+			}
+		}
+		return registers;
+	}
+
+	private static void mergeInto(int[] registers, byte[] hll, String key) {
+		if(hll.length < HLL_HDR_SIZE || hll[0] != 'H' || hll[1] != 'Y' || hll[2] != 'L' || hll[3] != 'L'){
+			throw new JedisDataException("WRONGTYPE Key is not a valid HyperLogLog string value:" + key);
+		}
+		if(hll[4] == HLL_DENSE){
+			if(hll.length != HLL_DENSE_SIZE){
+				throw new JedisDataException("INVALIDOBJ Corrupted HLL object detected:" + key);
+			}
+			for (int i = 0; i < HLL_REGISTERS; i++) {
+				int value = denseGet(hll, i);
+				if(value > HLL_Q + 1){
+					throw new JedisDataException("INVALIDOBJ Corrupted HLL object detected,register value " + value + " out of range:" + key);
+				}
+				if(value > registers[i])registers[i] = value;
+			}
+		}else if(hll[4] == HLL_SPARSE){
+			int index = 0;
+			int p = HLL_HDR_SIZE;
+			while(p < hll.length){
+				int op = hll[p] & 0xFF;
+				if((op & 0xC0) == 0){
+					//ZERO: 00xxxxxx
+					index += (op & 0x3F) + 1;
+					p++;
+				}else if((op & 0xC0) == 0x40){
+					//XZERO: 01xxxxxx yyyyyyyy
+					if(p + 1 >= hll.length)break;
+					index += (((op & 0x3F) << 8) | (hll[p + 1] & 0xFF)) + 1;
+					p += 2;
+				}else{
+					//VAL: 1vvvvvxx
+					int value = ((op >>> 2) & 0x1F) + 1;
+					int run = (op & 0x03) + 1;
+					for (int end = index + run; index < end && index < HLL_REGISTERS; index++) {
+						if(value > registers[index])registers[index] = value;
+					}
+					p++;
+				}
+			}
+			if(index != HLL_REGISTERS){
+				throw new JedisDataException("INVALIDOBJ Corrupted HLL object detected:" + key);
+			}
+		}else{
+			throw new JedisDataException("INVALIDOBJ Corrupted HLL object detected:" + key);
+		}
+	}
+
+	// 寄存器按小端位序连续存放，每个6位
+	private static int denseGet(byte[] hll, int index) {
+		int bit = index * HLL_BITS;
+		int b = HLL_HDR_SIZE + (bit >>> 3);
+		int fb = bit & 7;
+		int value = (hll[b] & 0xFF) >>> fb;
+		if(fb > 8 - HLL_BITS){
+			value |= (hll[b + 1] & 0xFF) << (8 - fb);
+		}
+		return value & HLL_REGISTER_MAX;
+	}
+
+	private static byte[] toDense(int[] registers) {
+		byte[] hll = new byte[HLL_DENSE_SIZE];
+		hll[0] = 'H';
+		hll[1] = 'Y';
+		hll[2] = 'L';
+		hll[3] = 'L';
+		hll[4] = HLL_DENSE;
+		//缓存的基数标记为无效，由redis下次PFCOUNT时重新计算
+		hll[15] = (byte) 0x80;
+		for (int i = 0; i < HLL_REGISTERS; i++) {
+			int value = registers[i];
+			if(value == 0)continue;
+			int bit = i * HLL_BITS;
+			int b = HLL_HDR_SIZE + (bit >>> 3);
+			int fb = bit & 7;
+			hll[b] |= (byte) (value << fb);
+			if(fb > 8 - HLL_BITS){
+				hll[b + 1] |= (byte) (value >>> (8 - fb));
+			}
+		}
+		return hll;
+	}
+
+	/**
+	 * 基数估算，与redis（5.0+）一致的Ertl改进估算
+	 */
+	private static long estimate(int[] registers) {
+		int[] histogram = new int[HLL_Q + 2];
+		for (int value : registers) {
+			histogram[value]++;
+		}
+		double m = HLL_REGISTERS;
+		double z = m * tau((m - histogram[HLL_Q + 1]) / m);
+		for (int j = HLL_Q; j >= 1; j--) {
+			z += histogram[j];
+			z *= 0.5;
+		}
+		z += m * sigma(histogram[0] / m);
+		return Math.round(HLL_ALPHA_INF * m * m / z);
+	}
+
+	private static double sigma(double x) {
+		if(x == 1.0)return Double.POSITIVE_INFINITY;
+		double zPrime;
+		double y = 1;
+		double z = x;
+		do {
+			x *= x;
+			zPrime = z;
+			z += x * y;
+			y += y;
+		} while(zPrime != z);
+		return z;
+	}
+
+	private static double tau(double x) {
+		if(x == 0.0 || x == 1.0)return 0.0;
+		double zPrime;
+		double y = 1.0;
+		double z = 1 - x;
+		do {
+			x = Math.sqrt(x);
+			zPrime = z;
+			y *= 0.5;
+			z -= Math.pow(1 - x, 2) * y;
+		} while(zPrime != z);
+		return z / 3;
+	}
+}
@@ -0,0 +1,155 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预先编码的key（不可变）
+ *
+ * 创建时完成加前缀、UTF-8编码和slot计算，之后创建RedisObject等操作对象（或RedisString.resetKey）不再重复，
+ * 适合固定的热点key，可以保存为常量或通过intern复用（按组的有界缓存）。
+ * 与RedisBase一致：key为"组名::key"形式时按组名绑定，前缀按组配置。
+ *
+ * <pre>
+ * RedisKey key = RedisKey.intern("user:" + id, groupName);
+ * new RedisObject(key).get();
+ * </pre>
+ */
+public final class RedisKey {
+
+	//组名 -> 已复用的key，未指定组名（从key解析）时使用空字符串
+	private static final Map<String, Cache<String, RedisKey>> interned = new ConcurrentHashMap<>();
+
+	private static volatile long internMaxSize = 10000;
+
+	private final String groupName;
+
+	//加前缀后的key
+	private final String key;
+
+	private final byte[] bytes;
+
+	private final int slot;
+
+	private RedisKey(String key, String groupName) {
+		this.groupName = groupName;
+		this.key = RedisBase.prefixKey(key, groupName);
+		this.bytes = SafeEncoder.encode(this.key);
+		this.slot = JedisClusterCRC16.getSlot(bytes);
+	}
+
+	/**
+	 * key为"组名::key"形式时绑定该组
+	 * @param key
+	 * @return
+	 */
+	public static RedisKey of(String key) {
+		return new RedisKey(key, parseGroupName(key));
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param groupName 组名
+	 * @return
+	 */
+	public static RedisKey of(String key, String groupName) {
+		return new RedisKey(key, groupName);
+	}
+
+	/**
+	 * 从缓存获取，不存在时创建
+	 * @param key
+	 * @return
+	 */
+	public static RedisKey intern(String key) {
+		return intern(key, null, true);
+	}
+
+	public static RedisKey intern(String key, String groupName) {
+		return intern(key, groupName, false);
+	}
+
+	/**
+	 * 每个组最多复用的key数，只对之后首次使用的组生效
+	 * @param maxSize
+	 */
+	public static void setInternMaxSize(long maxSize) {
+		internMaxSize = maxSize;
+	}
+
+	/**
+	 * 清除已复用的key（前缀配置变更时），已保存的RedisKey常量仍使用创建时的前缀
+	 */
+	public static void clearInterned() {
+		interned.clear();
+	}
+
+	private static RedisKey intern(String key, String groupName, boolean parseGroupName) {
+		Cache<String, RedisKey> cache = interned.computeIfAbsent(groupName == null ? "" : groupName,
+				k -> CacheBuilder.newBuilder().maximumSize(internMaxSize).build());
+		RedisKey redisKey = cache.getIfPresent(key);
+		if(redisKey == null){
+			redisKey = new RedisKey(key, parseGroupName ? parseGroupName(key) : groupName);
+			cache.put(key, redisKey);
+		}
+		return redisKey;
+	}
+
+	private static String parseGroupName(String key) {
+		return key.contains(RedisBase.KEY_SUFFIX_SPLIT) ? key.split(RedisBase.KEY_SUFFIX_SPLIT)[0] : null;
+	}
+
+	public String getGroupName() {
+		return groupName;
+	}
+
+	/**
+	 * 加前缀后的key
+	 * @return
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * key的UTF-8编码，多个对象共用，不要修改
+	 * @return
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * key所在的集群slot
+	 * @return
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(this == o)return true;
+		if(!(o instanceof RedisKey))return false;
+		RedisKey other = (RedisKey) o;
+		return Objects.equals(groupName, other.groupName) && Arrays.equals(bytes, other.bytes);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Objects.hashCode(groupName) + Arrays.hashCode(bytes);
+	}
+
+	@Override
+	public String toString() {
+		return key;
+	}
+}
@@ -0,0 +1,177 @@
+package com.youhaoxi.base.jedis.client;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+import java.util.List;
+
+/**
+ * redis操作可排序列表（值为序列化对象）
+ * @description <br>
+ */
+public class RedisList extends RedisBase {
+
+	public RedisList(String key) {
+		super(key);
+	}
+
+	/**
+	 * @param key
+	 * @param groupName 分组名
+	 */
+	public RedisList(String key, String groupName) {
+		super(key, groupName);
+	}
+
+	/**
+	 * 使用预先编码的key
+	 * @param key
+	 */
+	public RedisList(RedisKey key) {
+		super(key);
+	}
+
+	/**
+	 * 从表头批量插入（一条LPUSH）
+	 * @param objects
+	 * @return 列表长度
+	 */
+	public long lpush(Object... objects) {
+		if(objects.length == 0)return length();
+		byte[][] datas = valuesSerialize(objects);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.lpush(key, datas));
+		}
+		return executeBinary(groupName, c -> c.lpush(key, datas));
+	}
+
+	/**
+	 * 从表尾批量插入（一条RPUSH）
+	 * @param objects
+	 * @return 列表长度
+	 */
+	public long rpush(Object... objects) {
+		if(objects.length == 0)return length();
+		byte[][] datas = valuesSerialize(objects);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.rpush(key, datas));
+		}
+		return executeBinary(groupName, c -> c.rpush(key, datas));
+	}
+
+	/**
+	 * 移除并返回表头元素
+	 * @return
+	 */
+	public <T> T lpop() {
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.lpop(key));
+		}else{
+			bytes = executeBinary(groupName, c -> c.lpop(key));
+		}
+		return elementDerialize("element", bytes);
+	}
+
+	/**
+	 * 移除并返回表尾元素
+	 * @return
+	 */
+	public <T> T rpop() {
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.rpop(key));
+		}else{
+			bytes = executeBinary(groupName, c -> c.rpop(key));
+		}
+		return elementDerialize("element", bytes);
+	}
+
+	/**
+	 * 获取区间内的元素（包含end，-1表示最后一个）
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public <T> List<T> range(long start, long end) {
+		List<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.lrange(key, start, end));
+		}else{
+			datas = executeBinary(groupName, c -> c.lrange(key, start, end));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 获取全部元素
+	 * @return
+	 */
+	public <T> List<T> get() {
+		return range(0, -1);
+	}
+
+	/**
+	 * 获取指定下标的元素
+	 * @param index
+	 * @return
+	 */
+	public <T> T index(long index) {
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.lindex(key, index));
+		}else{
+			bytes = executeBinary(groupName, c -> c.lindex(key, index));
+		}
+		return elementDerialize("element", bytes);
+	}
+
+	/**
+	 * 设置指定下标的元素
+	 * @param index
+	 * @param value
+	 * @return
+	 */
+	public boolean set(long index, Object value) {
+		byte[] data = valueSerialize(value);
+		if(isCluster(groupName)){
+			return RESP_OK.equals(executeBinaryCluster(groupName, c -> c.lset(key, index, data)));
+		}
+		return RESP_OK.equals(executeBinary(groupName, c -> c.lset(key, index, data)));
+	}
+
+	/**
+	 * 只保留区间内的元素
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public boolean trim(long start, long end) {
+		if(isCluster(groupName)){
+			return RESP_OK.equals(executeBinaryCluster(groupName, c -> c.ltrim(key, start, end)));
+		}
+		return RESP_OK.equals(executeBinary(groupName, c -> c.ltrim(key, start, end)));
+	}
+
+	/**
+	 * 移除与value相等的元素
+	 * @param value
+	 * @param count 大于0从表头开始，小于0从表尾开始，等于0移除全部
+	 * @return 被移除的元素数量
+	 */
+	public long removeValue(Object value, long count) {
+		byte[] data = valueSerialize(value);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.lrem(key, count, data));
+		}
+		return executeBinary(groupName, c -> c.lrem(key, count, data));
+	}
+
+	public long length() {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.llen(key));
+		}
+		return executeBinary(groupName, c -> c.llen(key));
+	}
+}
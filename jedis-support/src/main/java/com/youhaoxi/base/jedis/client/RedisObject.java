@@ -0,0 +1,183 @@
+package com.youhaoxi.base.jedis.client;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getLocalCache;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getStaleCache;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+import com.youhaoxi.base.jedis.CacheExpires;
+import com.youhaoxi.base.jedis.local.BinaryLocalCache;
+import com.youhaoxi.base.jedis.local.StaleCache;
+import com.youhaoxi.base.jedis.script.RedisScriptRegistry;
+import org.apache.commons.lang3.RandomUtils;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * 对象redis操作对象（默认序列化器）
+ * @description <br>
+ */
+public class RedisObject extends RedisBase {
+
+	private static final byte[] NX = {'N', 'X'};
+
+	private static final byte[] EX = {'E', 'X'};
+
+	/**
+	 * @param key
+	 */
+	public RedisObject(String key) {
+		super(key);
+	}
+
+	/**
+	 * 指定组名
+	 * @param key
+	 * @param groupName
+	 */
+	public RedisObject(String key, String groupName) {
+		super(key, groupName);
+	}
+
+	/**
+	 * 使用预先编码的key
+	 * @param key
+	 */
+	public RedisObject(RedisKey key) {
+		super(key);
+	}
+
+	/**
+	 * 设置缓存，默认过期时间(DEFAULT_EXPIRE_TIME)
+	 * @param value
+	 * @return
+	 */
+	public boolean set(Object value) {
+		//避免某些缓存同时失效，加随机时长
+		long expire = DEFAULT_EXPIRE_TIME + RandomUtils.nextLong(1, CacheExpires.IN_1DAY);
+		return set(value, expire);
+	}
+
+	/**
+	 * 设置缓存指定过期时间间隔
+	 * @param value
+	 * @param seconds (过期秒数 ，小于等于0时 不设置)
+	 * @return
+	 */
+	public boolean set(Object value, long seconds) {
+		if (value == null)
+			return false;
+		byte[] data = valueSerialize(value);
+		String result;
+		if(isCluster(groupName)){
+			result = seconds > 0 ? executeBinaryCluster(groupName, c -> c.setex(key, (int) seconds, data))
+					: executeBinaryCluster(groupName, c -> c.set(key, data));
+		}else{
+			result = seconds > 0 ? executeBinary(groupName, c -> c.setex(key, (int) seconds, data))
+					: executeBinary(groupName, c -> c.set(key, data));
+		}
+		if(!RESP_OK.equals(result))return false;
+		BinaryLocalCache localCache = getLocalCache(groupName);
+		if(localCache != null){
+			localCache.putBytes(origKey, data, seconds > 0 ? seconds * 1000 : 0);
+		}
+		StaleCache staleCache = getStaleCache(groupName);
+		if(staleCache != null){
+			staleCache.put(origKey, data);
+		}
+		return true;
+	}
+
+	/**
+	 * 设置缓存并在指定时间点过期
+	 * @param value
+	 * @param expireAt
+	 * @return
+	 */
+	public boolean set(Object value, Date expireAt) {
+		if (value == null || expireAt == null)
+			return false;
+		long seconds = (expireAt.getTime() - System.currentTimeMillis()) / 1000;
+		if(seconds <= 0)return false;
+		return set(value, seconds);
+	}
+
+	/**
+	 * 不存在时设置
+	 * @param value
+	 * @param seconds 过期秒数（小于等于0时 不设置）
+	 * @return 设置成功返回true，key已存在返回false
+	 */
+	public boolean setnx(Object value, long seconds) {
+		if (value == null)
+			return false;
+		byte[] data = valueSerialize(value);
+		boolean result;
+		if(isCluster(groupName)){
+			result = seconds > 0 ? RESP_OK.equals(executeBinaryCluster(groupName, c -> c.set(key, data, NX, EX, seconds)))
+					: executeBinaryCluster(groupName, c -> c.setnx(key, data)) == 1;
+		}else{
+			result = seconds > 0 ? RESP_OK.equals(executeBinary(groupName, c -> c.set(key, data, NX, EX, seconds)))
+					: executeBinary(groupName, c -> c.setnx(key, data)) == 1;
+		}
+		invalidateLocal();
+		return result;
+	}
+
+	/**
+	 * 获取缓存
+	 * @return
+	 */
+	public <T> T get() {
+		StaleCache staleCache = getStaleCache(groupName);
+		if(staleCache != null){
+			StaleCache.markFresh();
+		}
+		//先读本地缓存，命中时才反序列化
+		BinaryLocalCache localCache = getLocalCache(groupName);
+		byte[] bytes = localCache == null ? null : localCache.getBytes(origKey);
+		if(bytes == null){
+			try {
+				if(isCluster(groupName)){
+					bytes = executeBinaryCluster(groupName, c -> c.get(key));
+				}else{
+					bytes = executeBinary(groupName, c -> c.get(key));
+				}
+			} catch (JedisException e) {
+				//redis出错时返回旧值
+				byte[] stale = staleCache == null ? null : staleCache.getStale(origKey);
+				if(stale == null)throw e;
+				logger.warn("RedisObject.get[{}] falid,return stale value:{}", origKey, e.getMessage());
+				return valueDerialize(stale);
+			}
+			if(bytes != null && localCache != null){
+				localCache.putBytes(origKey, bytes, 0);
+			}
+			if(staleCache != null){
+				if(bytes != null){
+					staleCache.put(origKey, bytes);
+				}else{
+					staleCache.remove(origKey);
+				}
+			}
+		}
+		return valueDerialize(bytes);
+	}
+
+	/**
+	 * 设置新值并返回旧值（保留原有过期时间，新key无过期时间）
+	 * @param value
+	 * @return
+	 */
+	public <T> T getAndSet(Object value) {
+		byte[] data = valueSerialize(value);
+		//GETSET会清除过期时间，通过脚本读取PTTL后设置
+		byte[] bytes = (byte[]) RedisScriptRegistry.evalBinary("get_and_set_keep_ttl", groupName,
+				Collections.singletonList(key), Collections.singletonList(data));
+		invalidateLocal();
+		return valueDerialize(bytes);
+	}
+}
@@ -0,0 +1,188 @@
+package com.youhaoxi.base.jedis.client;
+
+import com.youhaoxi.base.jedis.JedisProviderFactoryBean;
+import com.youhaoxi.base.jedis.script.RedisScript;
+import com.youhaoxi.base.jedis.script.RedisScriptRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于lua脚本的分布式限流器
+ *
+ * 支持固定窗口、滑动日志、令牌桶三种算法，每次检查只有一次EVALSHA往返；
+ * 滑动日志、令牌桶在脚本中使用redis服务端时间（TIME），不受各实例时钟偏差影响；
+ * 开启本地预检后，被redis拒绝的id在可重试时间之前直接在本地拒绝，不再访问redis
+ *
+ * 用法：
+ * <pre>
+ * RedisRateLimiter limiter = new RedisRateLimiter("api", Algorithm.TOKEN_BUCKET, 100, 1, TimeUnit.SECONDS);
+ * if(!limiter.tryAcquire(userId)){ ... }
+ * </pre>
+ */
+public class RedisRateLimiter {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+	public enum Algorithm {
+		/**
+		 * 固定窗口计数
+		 */
+		FIXED_WINDOW,
+		/**
+		 * 滑动日志（zset记录每次请求时间）
+		 */
+		SLIDING_LOG,
+		/**
+		 * 令牌桶（limit为桶容量，window内匀速补满）
+		 */
+		TOKEN_BUCKET
+	}
+
+	private static final RedisScript FIXED_WINDOW_SCRIPT = RedisScriptRegistry.getScript("ratelimit_fixed_window");
+
+	private static final RedisScript SLIDING_LOG_SCRIPT = RedisScriptRegistry.getScript("ratelimit_sliding_log");
+
+	private static final RedisScript TOKEN_BUCKET_SCRIPT = RedisScriptRegistry.getScript("ratelimit_token_bucket");
+
+	//本地预检记录数超过该值时清理过期记录
+	private static final int MAX_LOCAL_BLOCKS = 10000;
+
+	private static final String INSTANCE_ID = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+
+	private String name;
+
+	private Algorithm algorithm;
+
+	private long limit;
+
+	private long windowMillis;
+
+	private String groupName;
+
+	private boolean localPreCheck;
+
+	public RedisRateLimiter(String name, Algorithm algorithm, long limit, long window, TimeUnit unit) {
+		this(name, algorithm, limit, window, unit, JedisProviderFactoryBean.DEFAULT_GROUP_NAME);
+	}
+
+	/**
+	 *
+	 * @param name 限流器名称，作为key的一部分
+	 * @param algorithm 限流算法
+	 * @param limit 窗口内允许的请求数（令牌桶为桶容量）
+	 * @param window 窗口时长（令牌桶为补满整桶的时长）
+	 * @param unit 时长单位
+	 * @param groupName 组名
+	 */
+	public RedisRateLimiter(String name, Algorithm algorithm, long limit, long window, TimeUnit unit, String groupName) {
+		if(limit <= 0 || window <= 0){
+			throw new IllegalArgumentException("limit and window must be positive");
+		}
+		this.name = name;
+		this.algorithm = algorithm;
+		this.limit = limit;
+		this.windowMillis = Math.max(1, unit.toMillis(window));
+		this.groupName = groupName;
+	}
+
+	/**
+	 * 开启本地预检：被拒绝的id在redis返回的等待时间内直接本地拒绝
+	 * @param localPreCheck
+	 */
+	public void setLocalPreCheck(boolean localPreCheck) {
+		this.localPreCheck = localPreCheck;
+	}
+
+	public boolean tryAcquire(String id) {
+		return tryAcquire(id, 1);
+	}
+
+	/**
+	 * 尝试获取permits个许可
+	 *
+	 * redis异常时放行（fail-open）
+	 *
+	 * @param id 限流对象标识，如用户id、接口名
+	 * @param permits 许可数
+	 * @return true：允许 false：被限流
+	 */
+	public boolean tryAcquire(String id, int permits) {
+		if(permits <= 0)return true;
+		if(permits > limit)return false;
+
+		long now = System.currentTimeMillis();
+		if(localPreCheck){
+			Long until = blockedUntil.get(id);
+			if(until != null){
+				if(until > now)return false;
+				blockedUntil.remove(id, until);
+			}
+		}
+
+		List<Long> result;
+		try {
+			result = execute(id, permits);
+		} catch (Exception e){
+			logger.error("RedisRateLimiter.tryAcquire falid", e);
+			return true;
+		}
+
+		boolean allowed = result.get(0) == 1;
+		if(!allowed && localPreCheck){
+			long wait = result.get(2);
+			if(wait > 0){
+				if(blockedUntil.size() > MAX_LOCAL_BLOCKS){
+					purgeExpiredBlocks(now);
+				}
+				blockedUntil.put(id, now + wait);
+			}
+		}
+		return allowed;
+	}
+
+	private List<Long> execute(String id, int permits) {
+		String key = RedisBase.prefixKey(name + ":" + id, groupName);
+		switch (algorithm) {
+		case FIXED_WINDOW:
+			return eval(FIXED_WINDOW_SCRIPT, key,
+					String.valueOf(limit), String.valueOf(windowMillis), String.valueOf(permits));
+		case SLIDING_LOG:
+			return eval(SLIDING_LOG_SCRIPT, key,
+					String.valueOf(limit), String.valueOf(windowMillis), String.valueOf(permits),
+					INSTANCE_ID + sequence.incrementAndGet());
+		default:
+			double tokensPerMillis = (double) limit / windowMillis;
+			return eval(TOKEN_BUCKET_SCRIPT, key,
+					String.valueOf(limit), String.valueOf(tokensPerMillis), String.valueOf(permits),
+					String.valueOf(windowMillis * 2));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Long> eval(RedisScript script, String key, String... args) {
+		return (List<Long>) script.eval(groupName, Collections.singletonList(key), Arrays.asList(args));
+	}
+
+	private void purgeExpiredBlocks(long now) {
+		Iterator<Map.Entry<String, Long>> iterator = blockedUntil.entrySet().iterator();
+		while(iterator.hasNext()){
+			if(iterator.next().getValue() <= now){
+				iterator.remove();
+			}
+		}
+	}
+}
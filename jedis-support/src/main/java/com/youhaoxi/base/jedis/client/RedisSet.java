@@ -0,0 +1,121 @@
+package com.youhaoxi.base.jedis.client;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * redis操作集合（成员为序列化对象）
+ * @description <br>
+ */
+public class RedisSet extends RedisBase {
+
+	public RedisSet(String key) {
+		super(key);
+	}
+
+	/**
+	 * @param key
+	 * @param groupName 分组名
+	 */
+	public RedisSet(String key, String groupName) {
+		super(key, groupName);
+	}
+
+	/**
+	 * 使用预先编码的key
+	 * @param key
+	 */
+	public RedisSet(RedisKey key) {
+		super(key);
+	}
+
+	/**
+	 * 批量添加成员（一条SADD）
+	 * @param objects
+	 * @return 新增的成员数量
+	 */
+	public long add(Object... objects) {
+		if(objects.length == 0)return 0;
+		byte[][] datas = valuesSerialize(objects);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.sadd(key, datas));
+		}
+		return executeBinary(groupName, c -> c.sadd(key, datas));
+	}
+
+	/**
+	 * 获取全部成员
+	 * @return
+	 */
+	public <T> List<T> get() {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.smembers(key));
+		}else{
+			datas = executeBinary(groupName, c -> c.smembers(key));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 随机获取count个成员（不移除）
+	 * @param count
+	 * @return
+	 */
+	public <T> List<T> random(int count) {
+		List<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.srandmember(key, count));
+		}else{
+			datas = executeBinary(groupName, c -> c.srandmember(key, count));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 移除并返回一个随机成员
+	 * @return
+	 */
+	public <T> T pop() {
+		byte[] bytes;
+		if(isCluster(groupName)){
+			bytes = executeBinaryCluster(groupName, c -> c.spop(key));
+		}else{
+			bytes = executeBinary(groupName, c -> c.spop(key));
+		}
+		return elementDerialize("element", bytes);
+	}
+
+	public boolean contains(Object object) {
+		byte[] data = valueSerialize(object);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.sismember(key, data));
+		}
+		return executeBinary(groupName, c -> c.sismember(key, data));
+	}
+
+	/**
+	 * 批量移除成员（一条SREM）
+	 * @param objects
+	 * @return 被移除的成员数量
+	 */
+	public long remove(Object... objects) {
+		if(objects.length == 0)return 0;
+		byte[][] datas = valuesSerialize(objects);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.srem(key, datas));
+		}
+		return executeBinary(groupName, c -> c.srem(key, datas));
+	}
+
+	public long length() {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.scard(key));
+		}
+		return executeBinary(groupName, c -> c.scard(key));
+	}
+}
@@ -0,0 +1,207 @@
+package com.youhaoxi.base.jedis.client;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinary;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.executeBinaryCluster;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isCluster;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * redis操作有序集合（成员为序列化对象）
+ * @description <br>
+ */
+public class RedisSortedSet extends RedisBase {
+
+	public RedisSortedSet(String key) {
+		super(key);
+	}
+
+	/**
+	 * @param key
+	 * @param groupName 分组名
+	 */
+	public RedisSortedSet(String key, String groupName) {
+		super(key, groupName);
+	}
+
+	/**
+	 * 使用预先编码的key
+	 * @param key
+	 */
+	public RedisSortedSet(RedisKey key) {
+		super(key);
+	}
+
+	/**
+	 * 添加成员
+	 * @param score
+	 * @param value
+	 * @return 新增返回true，更新分数返回false
+	 */
+	public boolean add(double score, Object value) {
+		byte[] data = valueSerialize(value);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zadd(key, score, data)) == 1;
+		}
+		return executeBinary(groupName, c -> c.zadd(key, score, data)) == 1;
+	}
+
+	/**
+	 * 批量添加成员（一条ZADD）
+	 * @param scoreMembers 成员 -> 分数
+	 * @return 新增的成员数量
+	 */
+	public long add(Map<? extends Object, Double> scoreMembers) {
+		if(scoreMembers == null || scoreMembers.isEmpty())return 0;
+		Map<byte[], Double> datas = new HashMap<>(scoreMembers.size() * 4 / 3 + 1);
+		for (Map.Entry<? extends Object, Double> entry : scoreMembers.entrySet()) {
+			datas.put(valueSerialize(entry.getKey()), entry.getValue());
+		}
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zadd(key, datas));
+		}
+		return executeBinary(groupName, c -> c.zadd(key, datas));
+	}
+
+	/**
+	 * 按排名获取区间内的成员（分数从小到大，包含end，-1表示最后一个）
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public <T> List<T> range(long start, long end) {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.zrange(key, start, end));
+		}else{
+			datas = executeBinary(groupName, c -> c.zrange(key, start, end));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 按排名获取区间内的成员（分数从大到小）
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public <T> List<T> revRange(long start, long end) {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.zrevrange(key, start, end));
+		}else{
+			datas = executeBinary(groupName, c -> c.zrevrange(key, start, end));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 按分数获取区间内的成员（包含min和max）
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public <T> List<T> rangeByScore(double min, double max) {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.zrangeByScore(key, min, max));
+		}else{
+			datas = executeBinary(groupName, c -> c.zrangeByScore(key, min, max));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 按分数分页获取区间内的成员
+	 * @param min
+	 * @param max
+	 * @param offset
+	 * @param count
+	 * @return
+	 */
+	public <T> List<T> rangeByScore(double min, double max, int offset, int count) {
+		Set<byte[]> datas;
+		if(isCluster(groupName)){
+			datas = executeBinaryCluster(groupName, c -> c.zrangeByScore(key, min, max, offset, count));
+		}else{
+			datas = executeBinary(groupName, c -> c.zrangeByScore(key, min, max, offset, count));
+		}
+		return listDerialize(datas);
+	}
+
+	/**
+	 * 获取成员分数
+	 * @param value
+	 * @return 成员不存在返回null
+	 */
+	public Double score(Object value) {
+		byte[] data = valueSerialize(value);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zscore(key, data));
+		}
+		return executeBinary(groupName, c -> c.zscore(key, data));
+	}
+
+	/**
+	 * 批量移除成员（一条ZREM）
+	 * @param values
+	 * @return 被移除的成员数量
+	 */
+	public long remove(Object... values) {
+		if(values.length == 0)return 0;
+		byte[][] datas = valuesSerialize(values);
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zrem(key, datas));
+		}
+		return executeBinary(groupName, c -> c.zrem(key, datas));
+	}
+
+	/**
+	 * 按分数移除成员（包含min和max）
+	 * @param min
+	 * @param max
+	 * @return 被移除的成员数量
+	 */
+	public long removeByScore(double min, double max) {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zremrangeByScore(key, min, max));
+		}
+		return executeBinary(groupName, c -> c.zremrangeByScore(key, min, max));
+	}
+
+	/**
+	 * 按排名移除成员
+	 * @param start
+	 * @param end
+	 * @return 被移除的成员数量
+	 */
+	public long removeByRank(long start, long end) {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zremrangeByRank(key, start, end));
+		}
+		return executeBinary(groupName, c -> c.zremrangeByRank(key, start, end));
+	}
+
+	/**
+	 * 分数区间内的成员数量
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public long count(double min, double max) {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zcount(key, min, max));
+		}
+		return executeBinary(groupName, c -> c.zcount(key, min, max));
+	}
+
+	public long length() {
+		if(isCluster(groupName)){
+			return executeBinaryCluster(groupName, c -> c.zcard(key));
+		}
+		return executeBinary(groupName, c -> c.zcard(key));
+	}
+}
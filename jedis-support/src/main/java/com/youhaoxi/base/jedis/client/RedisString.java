@@ -45,6 +45,15 @@ public class RedisString {
 		this.key = RedisBase.prefixKey(key, this.groupName);
 	}
 
+	/**
+	 * 使用预先编码的key（组名为key绑定的组）
+	 * @param key
+	 */
+	public RedisString(RedisKey key) {
+		this.groupName = key.getGroupName();
+		this.key = key.getKey();
+	}
+
 	/**
 	 * 重置key（适合一个方法里面频繁操作不同缓存的场景）<br>
 	 * <font color="red">非线程安全，请不要在多线程场景使用</font>
@@ -57,6 +66,18 @@ public class RedisString {
 		this.key = RedisBase.prefixKey(key, this.groupName);
 		return this;
 	}
+
+	/**
+	 * 重置为预先加好前缀的key，不再拼接前缀（key绑定的组需与当前组一致）<br>
+	 * <font color="red">非线程安全，请不要在多线程场景使用</font>
+	 *
+	 * @param key
+	 * @return
+	 */
+	public RedisString resetKey(RedisKey key) {
+		this.key = key.getKey();
+		return this;
+	}
 	
 	/**
 	 * 设置缓存，默认过期时间(DEFAULT_EXPIRE_TIME)
@@ -80,20 +101,11 @@ public class RedisString {
 
         if (value == null)
             return false;
-        try {
-            boolean result = false;
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).set(key, value).equals(RESP_OK);
-            } else {
-                result = getJedisCommands(groupName).set(key, value).equals(RESP_OK);
-            }
-            if (result && seconds > 0) {
-                result = setExpire(seconds);
-            }
-            return result;
-        } finally {
-            getJedisProvider(groupName).release();
+        boolean result = execute(groupName, c -> c.set(key, value)).equals(RESP_OK);
+        if (result && seconds > 0) {
+            result = setExpire(seconds);
         }
+        return result;
 
     }
 
@@ -101,53 +113,24 @@ public class RedisString {
 	public boolean set(String value, Date expireAt) {
 		if (value == null)
 			return false;
-		try {
-            boolean result = false;
-            if (isCluster(groupName)) {
-                result = getJedisClusterCommands(groupName).set(key, value).equals(RESP_OK);
-            } else {
-                result = getJedisCommands(groupName).set(key, value).equals(RESP_OK);
-            }
-			if(result){
-				result = setExpireAt(expireAt);
-			}
-			return result;
-		} finally {
-			getJedisProvider(groupName).release();
+		boolean result = execute(groupName, c -> c.set(key, value)).equals(RESP_OK);
+		if(result){
+			result = setExpireAt(expireAt);
 		}
+		return result;
 	}
 	
 	public String get() {
-		try {
-            String value;
-            if (isCluster(groupName)) {
-                value = getJedisClusterCommands(groupName).get(key);;
-            } else {
-                value = getJedisCommands(groupName).get(key);
-            }
-			return value;
-		} finally {
-			getJedisProvider(groupName).release();
-		}
-		
+		return execute(groupName, c -> c.get(key));
 	}
 
-
     /**
      * 检查给定 key 是否存在。
      *
      * @return
      */
     public boolean exists() {
-        try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).exists(key);
-            } else {
-                return getJedisCommands(groupName).exists(key);
-            }
-        } finally {
-            getJedisProvider(groupName).release();
-        }
+        return execute(groupName, c -> c.exists(key));
 
     }
 
@@ -161,15 +144,7 @@ public class RedisString {
 	 *         false：不存在该key
 	 */
     public boolean remove() {
-        try {
-            if (isCluster(groupName)) {
-                return getJedisClusterCommands(groupName).del(key) == 1;
-            } else {
-                return getJedisCommands(groupName).del(key) == 1;
-            }
-        } finally {
-            getJedisProvider(groupName).release();
-        }
+        return execute(groupName, c -> c.del(key)) == 1;
     }
 
 	/**
@@ -182,16 +157,8 @@ public class RedisString {
 	 *         false：key不存在或超时未设置成功
 	 */
 	public boolean setExpire(long seconds) {
-		try {
-			if (isCluster(groupName)) {
-				return getJedisClusterCommands(groupName).pexpire(key, seconds * 1000) == 1;
-			} else {
-				return getJedisCommands(groupName).pexpire(key, seconds * 1000) == 1;
-			}
+		return execute(groupName, c -> c.pexpire(key, seconds * 1000)) == 1;
 
-		} finally {
-			getJedisProvider(groupName).release();
-		}
 
 	}
 
@@ -211,15 +178,7 @@ public class RedisString {
 		if(expireAt == null){
 			return false;
 		}
-		try {
-			if (isCluster(groupName)) {
-				return getJedisClusterCommands(groupName).expireAt(key, expireAt.getTime()/1000) == 1;
-			} else {
-				return getJedisCommands(groupName).expireAt(key, expireAt.getTime()/1000) == 1;
-			}
-		} finally {
-			getJedisProvider(groupName).release();
-		}
+		return execute(groupName, c -> c.expireAt(key, expireAt.getTime()/1000)) == 1;
 	}
 
 	/**
@@ -232,16 +191,7 @@ public class RedisString {
 	 *         否则，以毫秒为单位，返回 key的剩余生存时间。
 	 */
 	public Long getTtl() {
-		try {
-
-			if (isCluster(groupName)) {
-				return getJedisClusterCommands(groupName).ttl(key);
-			} else {
-				return getJedisCommands(groupName).ttl(key);
-			}
-		} finally {
-			getJedisProvider(groupName).release();
-		}
+		return execute(groupName, c -> c.ttl(key));
 
 	}
 
@@ -253,14 +203,6 @@ public class RedisString {
 	 *         如果 key 不存在或 key 没有设置生存时间，返回 0 。
 	 */
 	public boolean removeExpire() {
-		try {
-			if (isCluster(groupName)) {
-				return getJedisClusterCommands(groupName).persist(key) == 1;
-			} else {
-				return getJedisCommands(groupName).persist(key) == 1;
-			}
-		} finally {
-			getJedisProvider(groupName).release();
-		}
+		return execute(groupName, c -> c.persist(key)) == 1;
 	}
 }
@@ -0,0 +1,43 @@
+package com.youhaoxi.base.jedis.local;
+
+/**
+ * 本地缓存（保存redis原始字节）
+ *
+ * key为redis key，value为redis中保存的原始字节，命中后由调用方反序列化
+ */
+public interface BinaryLocalCache {
+
+	/**
+	 * 获取缓存，不存在或已过期返回null
+	 * @param key
+	 * @return
+	 */
+	byte[] getBytes(String key);
+
+	/**
+	 * 写入缓存
+	 * @param key
+	 * @param value
+	 * @param expireMillis 过期毫秒数，小于等于0表示使用默认过期时间
+	 */
+	void putBytes(String key, byte[] value, long expireMillis);
+
+	void remove(String key);
+
+	void clear();
+
+	long size();
+
+	/**
+	 * 遍历未过期的条目
+	 * @param visitor
+	 */
+	void forEach(EntryVisitor visitor);
+
+	/**
+	 * 条目遍历
+	 */
+	interface EntryVisitor {
+		void visit(String key, byte[] value, long expireAt);
+	}
+}
@@ -0,0 +1,74 @@
+package com.youhaoxi.base.jedis.local;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆内本地缓存（guava），保存对象本身，命中时无需反序列化
+ *
+ * 适合条目数量不大的场景，大容量请使用堆外缓存
+ */
+public class HeapLocalCache implements LocalCache {
+
+	private final Cache<String, Entry> cache;
+
+	private final long defaultExpireMillis;
+
+	/**
+	 *
+	 * @param maxSize 最大条目数
+	 * @param defaultExpireMillis 默认过期毫秒数（同时是条目最长存活时间）
+	 */
+	public HeapLocalCache(long maxSize, long defaultExpireMillis) {
+		this.defaultExpireMillis = defaultExpireMillis;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(defaultExpireMillis, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	@Override
+	public Object get(String key) {
+		Entry entry = cache.getIfPresent(key);
+		if(entry == null)return null;
+		if(entry.expireAt < System.currentTimeMillis()){
+			cache.invalidate(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	@Override
+	public void put(String key, Object value, long expireMillis) {
+		if(value == null)return;
+		if(expireMillis <= 0 || expireMillis > defaultExpireMillis)expireMillis = defaultExpireMillis;
+		cache.put(key, new Entry(value, System.currentTimeMillis() + expireMillis));
+	}
+
+	@Override
+	public void remove(String key) {
+		cache.invalidate(key);
+	}
+
+	@Override
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public long size() {
+		return cache.size();
+	}
+
+	private static final class Entry {
+		final Object value;
+		final long expireAt;
+
+		Entry(Object value, long expireAt) {
+			this.value = value;
+			this.expireAt = expireAt;
+		}
+	}
+}
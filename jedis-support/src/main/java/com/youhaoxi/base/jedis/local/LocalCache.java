@@ -0,0 +1,28 @@
+package com.youhaoxi.base.jedis.local;
+
+/**
+ * 本地缓存（redis前的一级缓存）
+ */
+public interface LocalCache {
+
+	/**
+	 * 获取缓存，不存在或已过期返回null
+	 * @param key
+	 * @return
+	 */
+	Object get(String key);
+
+	/**
+	 * 写入缓存
+	 * @param key
+	 * @param value
+	 * @param expireMillis 过期毫秒数，小于等于0表示使用默认过期时间
+	 */
+	void put(String key, Object value, long expireMillis);
+
+	void remove(String key);
+
+	void clear();
+
+	long size();
+}
@@ -0,0 +1,428 @@
+package com.youhaoxi.base.jedis.local;
+
+import com.youhaoxi.base.jedis.serializer.SerializeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外本地缓存
+ *
+ * 数据以序列化后的字节保存在直接内存中，不占用堆，不增加GC时间；命中时才反序列化。
+ * 按key哈希分段，每段一块直接内存，条目顺序追加（环形日志），索引为基本类型数组的开放寻址哈希表；
+ * 空间不足时从日志头部淘汰：最近被访问过的条目给一次机会移到尾部（CLOCK），否则淘汰。
+ *
+ * 注意：容量受 -XX:MaxDirectMemorySize 限制
+ */
+public class OffHeapLocalCache implements LocalCache, BinaryLocalCache {
+
+	protected static final Logger logger = LoggerFactory.getLogger(OffHeapLocalCache.class);
+
+	private static final int DEFAULT_SEGMENTS = 16;
+
+	private final Segment[] segments;
+
+	private final int segmentShift;
+
+	private final long defaultExpireMillis;
+
+	private final int maxEntrySize;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	public OffHeapLocalCache(long capacityBytes, long defaultExpireMillis) {
+		this(capacityBytes, defaultExpireMillis, DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 *
+	 * @param capacityBytes 总容量（字节）
+	 * @param defaultExpireMillis 默认过期毫秒数
+	 * @param segmentCount 分段数（2的幂），分段越多并发越好
+	 */
+	public OffHeapLocalCache(long capacityBytes, long defaultExpireMillis, int segmentCount) {
+		if(segmentCount <= 0 || segmentCount > 256 || Integer.bitCount(segmentCount) != 1){
+			throw new IllegalArgumentException("segmentCount must be a power of two in [1,256]");
+		}
+		long segmentCapacity = capacityBytes / segmentCount;
+		if(segmentCapacity < 4096 || segmentCapacity > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("capacity per segment must be in [4KB,2GB):" + segmentCapacity);
+		}
+		this.defaultExpireMillis = defaultExpireMillis;
+		this.maxEntrySize = (int) (segmentCapacity / 8);
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment((int) segmentCapacity);
+		}
+	}
+
+	@Override
+	public byte[] getBytes(String key) {
+		byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(rawKey);
+		byte[] value = segmentFor(hash).get(rawKey, hash, System.currentTimeMillis());
+		if(value == null){
+			misses.increment();
+		}else{
+			hits.increment();
+		}
+		return value;
+	}
+
+	@Override
+	public void putBytes(String key, byte[] value, long expireMillis) {
+		if(value == null)return;
+		byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(rawKey);
+		Segment segment = segmentFor(hash);
+		if(Segment.HEADER + rawKey.length + value.length > maxEntrySize){
+			//过大的条目不缓存
+			segment.remove(rawKey, hash);
+			return;
+		}
+		if(expireMillis <= 0)expireMillis = defaultExpireMillis;
+		segment.put(rawKey, hash, value, System.currentTimeMillis() + expireMillis);
+	}
+
+	@Override
+	public Object get(String key) {
+		byte[] bytes = getBytes(key);
+		if(bytes == null)return null;
+		try {
+			return SerializeUtils.deserialize(bytes);
+		} catch (Exception e) {
+			remove(key);
+			logger.warn("OffHeapLocalCache deserialize key[{}] error", key, e);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String key, Object value, long expireMillis) {
+		if(value == null)return;
+		byte[] bytes;
+		try {
+			bytes = SerializeUtils.serialize(value);
+		} catch (Exception e) {
+			logger.warn("OffHeapLocalCache serialize key[{}] error", key, e);
+			return;
+		}
+		putBytes(key, bytes, expireMillis);
+	}
+
+	@Override
+	public void remove(String key) {
+		byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(rawKey);
+		segmentFor(hash).remove(rawKey, hash);
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public long size() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.count;
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * 遍历未过期的条目（逐段加锁）
+	 * @param visitor
+	 */
+	@Override
+	public void forEach(EntryVisitor visitor) {
+		long now = System.currentTimeMillis();
+		for (Segment segment : segments) {
+			segment.forEach(visitor, now);
+		}
+	}
+
+	private Segment segmentFor(int hash) {
+		return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+	}
+
+	private static int hash(byte[] key) {
+		//FNV-1a + murmur3 fmix
+		int h = 0x811C9DC5;
+		for (byte b : key) {
+			h ^= b;
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * 一个分段：环形日志 + 开放寻址索引
+	 *
+	 * 条目格式：totalLen(4) keyLen(4) valueLen(4) expireAt(8) flags(1) hash(4) key value
+	 */
+	private static final class Segment {
+
+		static final int HEADER = 25;
+		static final int KEY_LEN = 4;
+		static final int VALUE_LEN = 8;
+		static final int EXPIRE_AT = 12;
+		static final int FLAGS = 20;
+		static final int HASH = 21;
+
+		static final int WRAP = -1;
+		static final byte REFERENCED = 1;
+
+		final ReentrantLock lock = new ReentrantLock();
+		final ByteBuffer data;
+		final ByteBuffer view;
+		final int capacity;
+
+		int head;
+		int tail;
+		int used;
+
+		//索引：条目偏移+1（0为空），与hashes一一对应
+		int[] offsets = new int[1024];
+		int[] hashes = new int[1024];
+		int count;
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+			this.data = ByteBuffer.allocateDirect(capacity);
+			this.view = data.duplicate();
+		}
+
+		byte[] get(byte[] key, int hash, long now) {
+			lock.lock();
+			try {
+				int slot = find(key, hash);
+				if(slot < 0)return null;
+				int offset = offsets[slot] - 1;
+				if(data.getLong(offset + EXPIRE_AT) <= now){
+					deleteSlot(slot);
+					return null;
+				}
+				data.put(offset + FLAGS, REFERENCED);
+				byte[] value = new byte[data.getInt(offset + VALUE_LEN)];
+				view.position(offset + HEADER + key.length);
+				view.get(value);
+				return value;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void put(byte[] key, int hash, byte[] value, long expireAt) {
+			int size = HEADER + key.length + value.length;
+			lock.lock();
+			try {
+				int slot = find(key, hash);
+				if(slot >= 0)deleteSlot(slot);
+				int offset = allocate(size, System.currentTimeMillis());
+				data.putInt(offset, size);
+				data.putInt(offset + KEY_LEN, key.length);
+				data.putInt(offset + VALUE_LEN, value.length);
+				data.putLong(offset + EXPIRE_AT, expireAt);
+				data.put(offset + FLAGS, (byte) 0);
+				data.putInt(offset + HASH, hash);
+				view.position(offset + HEADER);
+				view.put(key);
+				view.put(value);
+				tail = offset + size;
+				used += size;
+				insert(hash, offset);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(byte[] key, int hash) {
+			lock.lock();
+			try {
+				int slot = find(key, hash);
+				if(slot >= 0)deleteSlot(slot);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				Arrays.fill(offsets, 0);
+				count = 0;
+				head = tail = used = 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void forEach(EntryVisitor visitor, long now) {
+			lock.lock();
+			try {
+				for (int slot = 0; slot < offsets.length; slot++) {
+					if(offsets[slot] == 0)continue;
+					int offset = offsets[slot] - 1;
+					long expireAt = data.getLong(offset + EXPIRE_AT);
+					if(expireAt <= now)continue;
+					byte[] key = new byte[data.getInt(offset + KEY_LEN)];
+					byte[] value = new byte[data.getInt(offset + VALUE_LEN)];
+					view.position(offset + HEADER);
+					view.get(key);
+					view.get(value);
+					visitor.visit(new String(key, StandardCharsets.UTF_8), value, expireAt);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * 在日志尾部分配连续空间，不足时从头部淘汰
+		 */
+		private int allocate(int size, long now) {
+			while(true){
+				if(used == 0){
+					head = tail = 0;
+				}
+				if(used == 0 || tail > head){
+					if(capacity - tail >= size)return tail;
+					//尾部剩余空间不足，回绕到开头
+					int waste = capacity - tail;
+					if(waste >= 4)data.putInt(tail, WRAP);
+					used += waste;
+					tail = 0;
+				}else{
+					if(head - tail >= size)return tail;
+					evictHead(now);
+				}
+			}
+		}
+
+		private void evictHead(long now) {
+			if(capacity - head < HEADER || data.getInt(head) == WRAP){
+				used -= capacity - head;
+				head = 0;
+				return;
+			}
+			int size = data.getInt(head);
+			int slot = findByOffset(data.getInt(head + HASH), head);
+			if(slot >= 0){
+				byte flags = data.get(head + FLAGS);
+				if((flags & REFERENCED) != 0 && data.getLong(head + EXPIRE_AT) > now){
+					//最近访问过，清除标记后移到尾部
+					data.put(head + FLAGS, (byte) 0);
+					if(tail != head){
+						byte[] entry = new byte[size];
+						view.position(head);
+						view.get(entry);
+						view.position(tail);
+						view.put(entry);
+						offsets[slot] = tail + 1;
+					}
+					tail += size;
+					head += size;
+					return;
+				}
+				deleteSlot(slot);
+			}
+			used -= size;
+			head += size;
+		}
+
+		private int find(byte[] key, int hash) {
+			int mask = offsets.length - 1;
+			for (int i = hash & mask; offsets[i] != 0; i = (i + 1) & mask) {
+				if(hashes[i] == hash && keyEquals(offsets[i] - 1, key))return i;
+			}
+			return -1;
+		}
+
+		private int findByOffset(int hash, int offset) {
+			int mask = offsets.length - 1;
+			for (int i = hash & mask; offsets[i] != 0; i = (i + 1) & mask) {
+				if(offsets[i] == offset + 1)return i;
+			}
+			return -1;
+		}
+
+		private boolean keyEquals(int offset, byte[] key) {
+			if(data.getInt(offset + KEY_LEN) != key.length)return false;
+			int start = offset + HEADER;
+			for (int i = 0; i < key.length; i++) {
+				if(data.get(start + i) != key[i])return false;
+			}
+			return true;
+		}
+
+		private void insert(int hash, int offset) {
+			if((count + 1) * 4 > offsets.length * 3){
+				resize();
+			}
+			int mask = offsets.length - 1;
+			int i = hash & mask;
+			while(offsets[i] != 0)i = (i + 1) & mask;
+			offsets[i] = offset + 1;
+			hashes[i] = hash;
+			count++;
+		}
+
+		// 线性探测的删除：后移填补，不留墓碑
+		private void deleteSlot(int slot) {
+			int mask = offsets.length - 1;
+			int i = slot;
+			int j = slot;
+			while(true){
+				j = (j + 1) & mask;
+				if(offsets[j] == 0)break;
+				int k = hashes[j] & mask;
+				if(i <= j ? (i < k && k <= j) : (i < k || k <= j))continue;
+				offsets[i] = offsets[j];
+				hashes[i] = hashes[j];
+				i = j;
+			}
+			offsets[i] = 0;
+			count--;
+		}
+
+		private void resize() {
+			int[] oldOffsets = offsets;
+			int[] oldHashes = hashes;
+			offsets = new int[oldOffsets.length * 2];
+			hashes = new int[oldOffsets.length * 2];
+			int mask = offsets.length - 1;
+			for (int i = 0; i < oldOffsets.length; i++) {
+				if(oldOffsets[i] == 0)continue;
+				int j = oldHashes[i] & mask;
+				while(offsets[j] != 0)j = (j + 1) & mask;
+				offsets[j] = oldOffsets[i];
+				hashes[j] = oldHashes[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package com.youhaoxi.base.jedis.local;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 带磁盘快照的本地缓存（装饰器），用于重启后快速预热
+ *
+ * 写入/删除同步作用于被装饰的缓存，同时记录到队列，由后台线程追加到内存映射文件（mmap）；
+ * 文件写满时用当前缓存内容重写（压缩）。创建时从快照文件加载未过期的条目，
+ * 在JedisProviderFactoryBean注册本地缓存时完成，早于业务首次读取。
+ *
+ * 快照是尽力而为的：进程异常退出最多丢失最后一个写入周期的记录，损坏的尾部记录通过CRC识别并丢弃。
+ */
+public class PersistentLocalCache implements BinaryLocalCache {
+
+	protected static final Logger logger = LoggerFactory.getLogger(PersistentLocalCache.class);
+
+	private static final int MAGIC = 0x4A4C4331;
+
+	private static final byte PUT = 1;
+
+	private static final byte REMOVE = 2;
+
+	//len(4) crc(4) type(1) expireAt(8) keyLen(4) valueLen(4)
+	private static final int RECORD_HEADER = 25;
+
+	private static final int MAX_PENDING_RECORDS = 100000;
+
+	private static final long WRITE_INTERVAL_MILLIS = 1000;
+
+	private final BinaryLocalCache delegate;
+
+	private final File file;
+
+	private final int maxFileSize;
+
+	private final long defaultExpireMillis;
+
+	private final BlockingQueue<Record> pending = new ArrayBlockingQueue<>(MAX_PENDING_RECORDS);
+
+	private final ScheduledExecutorService writer;
+
+	//队列溢出或清空后，需要用缓存内容重写快照
+	private volatile boolean rewriteRequired;
+
+	private MappedByteBuffer buffer;
+
+	private volatile boolean shutdown;
+
+	//写文件期间持有，不使用synchronized，避免虚拟线程被固定在载体线程上
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/**
+	 *
+	 * @param delegate 被装饰的本地缓存
+	 * @param path 快照文件路径
+	 * @param maxFileBytes 快照文件最大字节数
+	 * @param defaultExpireMillis 默认过期毫秒数（与被装饰缓存一致）
+	 */
+	public PersistentLocalCache(BinaryLocalCache delegate, String path, long maxFileBytes, long defaultExpireMillis) {
+		if(maxFileBytes < 4096 || maxFileBytes > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("maxFileBytes must be in [4KB,2GB):" + maxFileBytes);
+		}
+		this.delegate = delegate;
+		this.file = new File(path);
+		this.maxFileSize = (int) maxFileBytes;
+		this.defaultExpireMillis = defaultExpireMillis;
+		load();
+		rewrite();
+		this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "local-cache-snapshot-" + file.getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		writer.scheduleWithFixedDelay(() -> {
+			try {
+				writePending();
+			} catch (Exception e) {
+				logger.warn("PersistentLocalCache write snapshot falid", e);
+			}
+		}, WRITE_INTERVAL_MILLIS, WRITE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public byte[] getBytes(String key) {
+		return delegate.getBytes(key);
+	}
+
+	@Override
+	public void putBytes(String key, byte[] value, long expireMillis) {
+		if(value == null)return;
+		delegate.putBytes(key, value, expireMillis);
+		long expireAt = System.currentTimeMillis() + (expireMillis > 0 ? expireMillis : defaultExpireMillis);
+		record(new Record(PUT, key, value, expireAt));
+	}
+
+	@Override
+	public void remove(String key) {
+		delegate.remove(key);
+		record(new Record(REMOVE, key, null, 0));
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		rewriteRequired = true;
+	}
+
+	@Override
+	public long size() {
+		return delegate.size();
+	}
+
+	@Override
+	public void forEach(EntryVisitor visitor) {
+		delegate.forEach(visitor);
+	}
+
+	private void record(Record record) {
+		if(!pending.offer(record)){
+			//队列已满，丢弃记录并在下次写入时重写整个快照
+			rewriteRequired = true;
+		}
+	}
+
+	/**
+	 * 写入队列中的记录
+	 */
+	public void writePending() {
+		writeLock.lock();
+		try {
+			if(rewriteRequired){
+				rewriteRequired = false;
+				pending.clear();
+				rewrite();
+				return;
+			}
+			List<Record> records = new ArrayList<>(Math.min(pending.size(), 10000));
+			pending.drainTo(records);
+			for (Record record : records) {
+				if(!append(buffer, record.type, record.key, record.value, record.expireAt)){
+					//文件已满，用当前缓存内容重写（已包含剩余记录的效果）
+					rewrite();
+					return;
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 写入剩余记录并刷盘，组销毁时调用
+	 */
+	public void shutdown() {
+		writeLock.lock();
+		try {
+			if(shutdown)return;
+			shutdown = true;
+			writer.shutdown();
+			writePending();
+			if(buffer != null)buffer.force();
+		} catch (Exception e) {
+			logger.warn("PersistentLocalCache shutdown falid", e);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void load() {
+		if(!file.exists() || file.length() < 4)return;
+		long now = System.currentTimeMillis();
+		int loaded = 0;
+		int expired = 0;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+			if(in.getInt(0) != MAGIC){
+				logger.warn("local cache snapshot[{}] format error,ignored", file);
+				return;
+			}
+			int position = 4;
+			CRC32 crc = new CRC32();
+			while(position + RECORD_HEADER <= in.limit()){
+				int length = in.getInt(position);
+				if(length < RECORD_HEADER || position + length > in.limit())break;
+				byte[] body = new byte[length - 8];
+				ByteBuffer view = in.duplicate();
+				view.position(position + 8);
+				view.get(body);
+				crc.reset();
+				crc.update(body, 0, body.length);
+				if((int) crc.getValue() != in.getInt(position + 4))break;
+
+				ByteBuffer record = ByteBuffer.wrap(body);
+				byte type = record.get();
+				long expireAt = record.getLong();
+				byte[] key = new byte[record.getInt()];
+				byte[] value = new byte[record.getInt()];
+				record.get(key);
+				record.get(value);
+				String keyString = new String(key, StandardCharsets.UTF_8);
+				if(type == REMOVE){
+					delegate.remove(keyString);
+				}else if(expireAt > now){
+					delegate.putBytes(keyString, value, expireAt - now);
+					loaded++;
+				}else{
+					delegate.remove(keyString);
+					expired++;
+				}
+				position += length;
+			}
+		} catch (Exception e) {
+			logger.warn("load local cache snapshot[{}] falid", file, e);
+		}
+		logger.info("load local cache snapshot[{}] OK,loaded:{},expired:{}", file, loaded, expired);
+	}
+
+	/**
+	 * 用缓存当前内容重写快照：写入临时文件后原子替换
+	 */
+	private void rewrite() {
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			if(dir != null && !dir.exists())dir.mkdirs();
+			MappedByteBuffer out;
+			try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel channel = raf.getChannel()) {
+				raf.setLength(0);
+				raf.setLength(maxFileSize);
+				out = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxFileSize);
+			}
+			out.putInt(MAGIC);
+			boolean[] full = new boolean[1];
+			delegate.forEach((key, value, expireAt) -> {
+				if(!full[0] && !append(out, PUT, key, value, expireAt)){
+					full[0] = true;
+				}
+			});
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			buffer = out;
+		} catch (IOException e) {
+			logger.warn("rewrite local cache snapshot[{}] falid", file, e);
+		}
+	}
+
+	private static boolean append(MappedByteBuffer out, byte type, String key, byte[] value, long expireAt) {
+		if(out == null)return false;
+		byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+		int valueLength = value == null ? 0 : value.length;
+		int length = RECORD_HEADER + rawKey.length + valueLength;
+		//保留4字节作为结束标记（0）
+		if(out.remaining() < length + 4)return false;
+
+		ByteBuffer body = ByteBuffer.allocate(length - 8);
+		body.put(type);
+		body.putLong(expireAt);
+		body.putInt(rawKey.length);
+		body.putInt(valueLength);
+		body.put(rawKey);
+		if(value != null)body.put(value);
+		CRC32 crc = new CRC32();
+		crc.update(body.array(), 0, body.capacity());
+
+		int position = out.position();
+		body.flip();
+		out.position(position + 8);
+		out.put(body);
+		out.putInt(position + 4, (int) crc.getValue());
+		//最后写长度，确保读到长度时记录已完整
+		out.putInt(position, length);
+		return true;
+	}
+
+	private static final class Record {
+		final byte type;
+		final String key;
+		final byte[] value;
+		final long expireAt;
+
+		Record(byte type, String key, byte[] value, long expireAt) {
+			this.type = type;
+			this.key = key;
+			this.value = value;
+			this.expireAt = expireAt;
+		}
+	}
+}
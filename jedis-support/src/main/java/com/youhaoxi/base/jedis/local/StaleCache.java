@@ -0,0 +1,152 @@
+package com.youhaoxi.base.jedis.local;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 过期数据兜底缓存（stale-while-revalidate）
+ *
+ * 保存最近从redis读到的原始字节，保留时间长于本地缓存；redis出错（连接异常、超时、熔断）时返回这里的旧值，
+ * 当前线程可通过isLastReadStale判断读到的是旧值。返回过旧值的key在后台定时重新从redis读取，
+ * redis恢复后刷新（key已删除时移除），避免恢复后长期保留过时数据。写命令会同步更新或移除。
+ */
+public class StaleCache {
+
+	protected static final Logger logger = LoggerFactory.getLogger(StaleCache.class);
+
+	private static final ThreadLocal<boolean[]> lastReadStale = ThreadLocal.withInitial(() -> new boolean[1]);
+
+	//每轮最多重新读取的key数
+	private static final int REVALIDATE_BATCH = 100;
+
+	private final String groupName;
+
+	private final BinaryLocalCache store;
+
+	//从redis读取key的原始字节
+	private final Function<String, byte[]> loader;
+
+	//返回过旧值、等待重新读取的key
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	private final ScheduledExecutorService revalidator;
+
+	private final LongAdder served = new LongAdder();
+
+	private final LongAdder revalidated = new LongAdder();
+
+	/**
+	 *
+	 * @param groupName
+	 * @param store 保存旧值的缓存，过期时间为旧值的最长保留时间
+	 * @param loader 从redis读取key的原始字节，不存在返回null
+	 * @param revalidateIntervalMillis 重新读取的间隔
+	 */
+	public StaleCache(String groupName, BinaryLocalCache store, Function<String, byte[]> loader, long revalidateIntervalMillis) {
+		this.groupName = groupName;
+		this.store = store;
+		this.loader = loader;
+		this.revalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-stale-revalidate-" + groupName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		revalidator.scheduleWithFixedDelay(this::revalidate, revalidateIntervalMillis, revalidateIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 当前线程最近一次读是否返回了旧值
+	 * @return
+	 */
+	public static boolean isLastReadStale() {
+		return lastReadStale.get()[0];
+	}
+
+	/**
+	 * 标记当前线程的读返回了redis中的值
+	 */
+	public static void markFresh() {
+		lastReadStale.get()[0] = false;
+	}
+
+	/**
+	 * 记录从redis读到或写入redis的值
+	 * @param key
+	 * @param value
+	 */
+	public void put(String key, byte[] value) {
+		store.putBytes(key, value, 0);
+	}
+
+	public void remove(String key) {
+		store.remove(key);
+	}
+
+	/**
+	 * redis出错时获取旧值，并在后台重新读取
+	 * @param key
+	 * @return 没有旧值返回null
+	 */
+	public byte[] getStale(String key) {
+		byte[] value = store.getBytes(key);
+		if(value != null){
+			lastReadStale.get()[0] = true;
+			served.increment();
+			pending.add(key);
+		}
+		return value;
+	}
+
+	public long getServedCount() {
+		return served.sum();
+	}
+
+	public long getRevalidatedCount() {
+		return revalidated.sum();
+	}
+
+	/**
+	 * 等待重新读取的key数
+	 * @return
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	public void close() {
+		revalidator.shutdownNow();
+		pending.clear();
+	}
+
+	private void revalidate() {
+		int count = 0;
+		Iterator<String> iterator = pending.iterator();
+		while(iterator.hasNext() && count++ < REVALIDATE_BATCH){
+			String key = iterator.next();
+			byte[] value;
+			try {
+				value = loader.apply(key);
+			} catch (Exception e) {
+				//redis仍不可用，下一轮再试
+				logger.debug("revalidate stale key[{}] of group[{}] falid:{}", key, groupName, e.getMessage());
+				return;
+			}
+			if(value == null){
+				store.remove(key);
+			}else{
+				store.putBytes(key, value, 0);
+			}
+			iterator.remove();
+			revalidated.increment();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.JedisProvider;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.util.Pool;
+
+import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池大小自适应调整
+ *
+ * 定时采样组内各连接池（包括从节点、集群各节点）的借用速率、借出时长（命令耗时）、借用等待和借出数量，
+ * 按Little定律估算需要的连接数：借用速率 * 平均借出时长。
+ * 出现等待时加性增加（至少增加到估算值的1.5倍），连续一段时间用不满时乘性减少，始终在[minTotal, maxTotal]内；
+ * minIdle跟随估算值，多余的空闲连接由连接池的空闲检测回收。
+ */
+public class AdaptivePoolController {
+
+	protected static final Logger logger = LoggerFactory.getLogger(AdaptivePoolController.class);
+
+	private static final Field INTERNAL_POOL;
+
+	static {
+		try {
+			INTERNAL_POOL = Pool.class.getDeclaredField("internalPool");
+			INTERNAL_POOL.setAccessible(true);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private volatile JedisProvider<?, ?> provider;
+
+	private final int minTotal;
+
+	private final int maxTotal;
+
+	private long intervalMillis = 1000;
+
+	//平均借用等待超过该值且连接全部借出视为连接不足
+	private long maxBorrowWaitMillis = 5;
+
+	private int increaseStep = 2;
+
+	private double decreaseFactor = 0.75;
+
+	//连续多少个周期用不满才缩小
+	private int shrinkRounds = 30;
+
+	private final Map<Pool<?>, PoolState> states = new IdentityHashMap<>();
+
+	private ScheduledExecutorService scheduler;
+
+	public AdaptivePoolController(JedisProvider<?, ?> provider, int minTotal, int maxTotal) {
+		if(minTotal < 1 || maxTotal < minTotal){
+			throw new IllegalArgumentException("invalid pool bounds:[" + minTotal + "," + maxTotal + "]");
+		}
+		this.provider = provider;
+		this.minTotal = minTotal;
+		this.maxTotal = maxTotal;
+	}
+
+	/**
+	 * 配置变更替换provider后调整新provider的连接池
+	 * @param provider
+	 */
+	public void setProvider(JedisProvider<?, ?> provider) {
+		this.provider = provider;
+	}
+
+	public void setIntervalMillis(long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+	}
+
+	public void setMaxBorrowWaitMillis(long maxBorrowWaitMillis) {
+		this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+	}
+
+	public void setIncreaseStep(int increaseStep) {
+		this.increaseStep = increaseStep;
+	}
+
+	public void setDecreaseFactor(double decreaseFactor) {
+		this.decreaseFactor = decreaseFactor;
+	}
+
+	public void setShrinkRounds(int shrinkRounds) {
+		this.shrinkRounds = shrinkRounds;
+	}
+
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-pool-controller-" + provider.groupName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				adjust();
+			} catch (Exception e) {
+				logger.warn("adjust redis pool of group[" + provider.groupName() + "] falid", e);
+			}
+		}, 0, intervalMillis, TimeUnit.MILLISECONDS);
+		logger.info("adaptive redis pool of group[{}] started,bounds:[{},{}]", provider.groupName(), minTotal, maxTotal);
+	}
+
+	public void close() {
+		if(scheduler != null)scheduler.shutdownNow();
+	}
+
+	void adjust() {
+		Map<Pool<?>, PoolState> current = new IdentityHashMap<>();
+		for (Pool<?> pool : provider.pools()) {
+			if(pool.isClosed())continue;
+			PoolState state = states.get(pool);
+			if(state == null)state = new PoolState();
+			adjust(internalPool(pool), state);
+			current.put(pool, state);
+		}
+		//移除已销毁（节点切换）的连接池
+		states.clear();
+		states.putAll(current);
+	}
+
+	private void adjust(GenericObjectPool<?> pool, PoolState state) {
+		long borrowed = pool.getBorrowedCount();
+		//首次采样只记录借用计数
+		if(state.lastBorrowed < 0){
+			state.lastBorrowed = borrowed;
+			resize(pool, clamp(pool.getMaxTotal()), Math.min(pool.getMinIdle(), clamp(pool.getMaxTotal())));
+			return;
+		}
+		double rate = (borrowed - state.lastBorrowed) * 1000.0 / intervalMillis;
+		state.lastBorrowed = borrowed;
+
+		int total = pool.getMaxTotal();
+		int active = pool.getNumActive();
+		//L = λ * W
+		int required = (int) Math.ceil(rate * Math.max(pool.getMeanActiveTimeMillis(), 1) / 1000.0);
+		required = Math.max(required, active);
+
+		int target = total;
+		boolean congested = pool.getNumWaiters() > 0
+				|| (active >= total && pool.getMeanBorrowWaitTimeMillis() > maxBorrowWaitMillis);
+		if(congested){
+			state.idleRounds = 0;
+			target = Math.max(total + increaseStep, (int) Math.ceil(required * 1.5));
+		}else if(required * 2 < total){
+			if(++state.idleRounds >= shrinkRounds){
+				state.idleRounds = 0;
+				target = Math.max((int) (total * decreaseFactor), (int) Math.ceil(required * 1.5));
+			}
+		}else{
+			state.idleRounds = 0;
+		}
+		target = clamp(target);
+		resize(pool, target, Math.min(required, target));
+	}
+
+	private void resize(GenericObjectPool<?> pool, int total, int minIdle) {
+		int previous = pool.getMaxTotal();
+		if(total != previous){
+			pool.setMaxTotal(total);
+			pool.setMaxIdle(total);
+			logger.info("redis pool of group[{}] resized:{} -> {},active:{},idle:{}", provider.groupName(), previous, total,
+					pool.getNumActive(), pool.getNumIdle());
+		}
+		if(pool.getMinIdle() != minIdle)pool.setMinIdle(minIdle);
+	}
+
+	private int clamp(int total) {
+		return Math.min(maxTotal, Math.max(minTotal, total));
+	}
+
+	/**
+	 * jedis连接池内部的commons-pool连接池，用于运行时调整参数
+	 * @param pool
+	 * @return
+	 */
+	public static GenericObjectPool<?> internalPool(Pool<?> pool) {
+		try {
+			return (GenericObjectPool<?>) INTERNAL_POOL.get(pool);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class PoolState {
+		long lastBorrowed = -1;
+		int idleRounds;
+	}
+}
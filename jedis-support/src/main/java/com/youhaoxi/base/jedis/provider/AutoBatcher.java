@@ -0,0 +1,310 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.JedisProvider;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.provider.cluster.JedisClusterProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 自动批量（隐式pipeline）
+ *
+ * 多个线程同时发出的读命令按节点排队，每个节点一个发送线程：取到第一条命令后在窗口期内（或达到批量上限）继续收集，
+ * 用一个连接把这一批命令pipeline发出，再把结果分发给等待的调用线程。发送线程等待上一批返回期间到达的命令进入下一批，
+ * 并发越高批量越大，每个节点同时只用一个连接。
+ * 按ReadMode有读节点时发往读节点，否则发往主节点（集群为slot所在主节点）；slot未分配时不批量。
+ * 收到MOVED/ASK的命令由调用线程按普通方式重新执行。调用线程最多等待Deadline剩余时间或读超时。
+ * 节点空闲一段时间后发送线程退出。
+ */
+public class AutoBatcher {
+
+	protected static final Logger logger = LoggerFactory.getLogger(AutoBatcher.class);
+
+	//非集群模式主节点的队列名
+	private static final String MASTER = "master";
+
+	//发送线程空闲多久后退出
+	private static final long IDLE_SECONDS = 60;
+
+	private final String groupName;
+
+	private final long windowNanos;
+
+	private final int maxBatchSize;
+
+	private volatile long timeoutMillis;
+
+	private final Map<String, NodeQueue> queues = new ConcurrentHashMap<>();
+
+	private volatile boolean running = true;
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong commands = new AtomicLong();
+
+	/**
+	 *
+	 * @param groupName
+	 * @param windowMicros 收集一批命令的窗口（微秒）
+	 * @param maxBatchSize 一批最多命令数
+	 * @param timeoutMillis 调用线程等待结果的最长时间（未设置Deadline时）
+	 */
+	public AutoBatcher(String groupName, long windowMicros, int maxBatchSize, long timeoutMillis) {
+		if(windowMicros <= 0 || maxBatchSize < 1){
+			throw new IllegalArgumentException("invalid auto batch window:" + windowMicros + "us,maxBatchSize:" + maxBatchSize);
+		}
+		this.groupName = groupName;
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+		this.maxBatchSize = maxBatchSize;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * 批量执行读命令
+	 * @param key
+	 * @param command 在pipeline上发出的命令
+	 * @param direct 不能批量（slot未分配、MOVED/ASK）时在调用线程上执行
+	 * @return 命令结果
+	 */
+	public <T> T execute(String key, Function<Pipeline, Response<T>> command, Supplier<T> direct) {
+		Deadline.check();
+		if(!running)return direct.get();
+		JedisProvider<?, ?> provider = JedisProviderFactory.getJedisProvider(groupName);
+		String[] readNodes = provider instanceof NodeReadProvider ? ((NodeReadProvider) provider).readNodes(key) : null;
+		String queueName;
+		if(readNodes != null){
+			queueName = readNodes[0];
+		}else if(provider instanceof JedisClusterProvider){
+			queueName = ((JedisClusterProvider) provider).getSlotNode(JedisClusterCRC16.getSlot(key));
+			if(queueName == null)return direct.get();
+		}else{
+			queueName = MASTER;
+		}
+		Pending<T> pending = new Pending<>(command);
+		enqueue(queue(queueName, readNodes != null), pending);
+		try {
+			return await(pending);
+		} catch (JedisRedirectionException e) {
+			return direct.get();
+		}
+	}
+
+	/**
+	 * 调整调用线程的等待时间（配置变更timeout后）
+	 * @param timeoutMillis
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	public long getCommandCount() {
+		return commands.get();
+	}
+
+	public void close() {
+		running = false;
+		for (NodeQueue queue : queues.values()) {
+			queue.thread.interrupt();
+		}
+	}
+
+	private NodeQueue queue(String node, boolean readOn) {
+		String name = readOn ? node + "#read" : node;
+		NodeQueue queue = queues.get(name);
+		if(queue == null){
+			NodeQueue created = new NodeQueue(node, readOn);
+			queue = queues.putIfAbsent(name, created);
+			if(queue == null){
+				queue = created;
+				created.thread.start();
+			}
+		}
+		return queue;
+	}
+
+	private void enqueue(NodeQueue queue, Pending<?> pending) {
+		while(true){
+			queue.queue.offer(pending);
+			//发送线程已退出且没有取走，换新的队列
+			if(queue.retired && queue.queue.remove(pending)){
+				queue = queue(queue.node, queue.readOn);
+				continue;
+			}
+			return;
+		}
+	}
+
+	private <T> T await(Pending<T> pending) {
+		long wait = Deadline.isSet() ? Deadline.remainingMillis() : timeoutMillis;
+		try {
+			return pending.future.get(wait, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)throw (RuntimeException) cause;
+			throw new JedisConnectionException(cause);
+		} catch (TimeoutException e) {
+			//未发出的命令不再发送
+			pending.future.cancel(false);
+			if(Deadline.isSet())throw new DeadlineExceededException();
+			throw new JedisConnectionException("auto batched command of group[" + groupName + "] timeout");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pending.future.cancel(false);
+			throw new JedisConnectionException(e);
+		}
+	}
+
+	private void run(NodeQueue queue) {
+		List<Pending<?>> batch = new ArrayList<>(maxBatchSize);
+		try {
+			while(running){
+				Pending<?> first = queue.queue.poll(IDLE_SECONDS, TimeUnit.SECONDS);
+				if(first == null){
+					queue.retired = true;
+					queues.remove(queue.name(), queue);
+					//退出前到达的命令
+					queue.queue.drainTo(batch);
+					if(!batch.isEmpty())send(queue, batch);
+					return;
+				}
+				batch.add(first);
+				collect(queue.queue, batch);
+				send(queue, batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			//已关闭
+		} finally {
+			queues.remove(queue.name(), queue);
+			//空闲退出后到达的命令由调用线程换新的队列，只在关闭时失败
+			Pending<?> pending;
+			while(!running && (pending = queue.queue.poll()) != null){
+				pending.future.completeExceptionally(new JedisConnectionException("auto batcher of group[" + groupName + "] closed"));
+			}
+		}
+	}
+
+	/**
+	 * 在窗口期内继续收集，直到达到批量上限
+	 */
+	private void collect(BlockingQueue<Pending<?>> queue, List<Pending<?>> batch) throws InterruptedException {
+		long deadline = System.nanoTime() + windowNanos;
+		while(batch.size() < maxBatchSize){
+			Pending<?> next = queue.poll();
+			if(next == null){
+				long remaining = deadline - System.nanoTime();
+				if(remaining <= 0)break;
+				next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+				if(next == null)break;
+			}
+			batch.add(next);
+		}
+	}
+
+	private void send(NodeQueue queue, List<Pending<?>> batch) {
+		//跳过已超时的命令
+		batch.removeIf(pending -> pending.future.isDone());
+		if(batch.isEmpty())return;
+		batches.incrementAndGet();
+		commands.addAndGet(batch.size());
+		JedisProvider<?, ?> provider = JedisProviderFactory.getJedisProvider(groupName);
+		try {
+			if(queue.readOn){
+				((NodeReadProvider) provider).readOn(queue.node, jedis -> pipeline(provider, jedis, batch));
+			}else if(provider instanceof JedisClusterProvider){
+				try (Jedis jedis = ((JedisClusterProvider) provider).getConnectionFromNode(queue.node)) {
+					pipeline(provider, jedis, batch);
+				}
+			}else{
+				provider.execute(jedis -> pipeline(provider, (Jedis) jedis, batch));
+			}
+		} catch (Exception e) {
+			for (Pending<?> pending : batch) {
+				pending.future.completeExceptionally(e);
+			}
+			logger.debug("auto batch of group[" + groupName + "] on node[" + queue.node + "] falid", e);
+		}
+	}
+
+	private Void pipeline(JedisProvider<?, ?> provider, Jedis jedis, List<Pending<?>> batch) {
+		Pipeline pipeline = jedis.pipelined();
+		List<Response<?>> responses = new ArrayList<>(batch.size());
+		for (Pending<?> pending : batch) {
+			responses.add(pending.command.apply(pipeline));
+		}
+		pipeline.sync();
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).complete(responses.get(i), provider);
+		}
+		return null;
+	}
+
+	private static final class Pending<T> {
+		final Function<Pipeline, Response<T>> command;
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Pending(Function<Pipeline, Response<T>> command) {
+			this.command = command;
+		}
+
+		@SuppressWarnings("unchecked")
+		void complete(Response<?> response, JedisProvider<?, ?> provider) {
+			try {
+				future.complete(((Response<T>) response).get());
+			} catch (RuntimeException e) {
+				if(e instanceof JedisMovedDataException && provider instanceof JedisClusterProvider){
+					JedisMovedDataException moved = (JedisMovedDataException) e;
+					((JedisClusterProvider) provider).assignSlot(moved.getSlot(), moved.getTargetNode());
+				}
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private final class NodeQueue {
+		final String node;
+		//通过NodeReadProvider.readOn读
+		final boolean readOn;
+		final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+		final Thread thread;
+		volatile boolean retired;
+
+		NodeQueue(String node, boolean readOn) {
+			this.node = node;
+			this.readOn = readOn;
+			this.thread = new Thread(() -> run(this), "redis-auto-batch-" + groupName + "-" + node);
+			this.thread.setDaemon(true);
+		}
+
+		String name() {
+			return readOn ? node + "#read" : node;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按节点熔断
+ *
+ * 每个节点一个滑动窗口记录最近windowSize次调用的结果（失败为连接失败、读写超时），
+ * 窗口内结果数达到minimumCalls且失败率达到阈值时打开，打开期间直接抛出CircuitOpenException，不再等待超时；
+ * openMillis后进入半开状态，放行少量探测调用，探测全部成功则关闭，任一失败重新打开。
+ * 关闭状态下结果按位无锁写入窗口，只有状态切换时加锁。
+ */
+public class CircuitBreaker {
+
+	protected static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String groupName;
+
+	private final double failureRateThreshold;
+
+	private final long openMillis;
+
+	//窗口内最少调用数，低于此数不打开
+	private int minimumCalls = 20;
+
+	private int windowSize = 100;
+
+	private int halfOpenProbes = 3;
+
+	private final ConcurrentMap<String, NodeCircuit> circuits = new ConcurrentHashMap<>();
+
+	public CircuitBreaker(String groupName, double failureRateThreshold, long openMillis) {
+		if(failureRateThreshold <= 0 || failureRateThreshold > 1){
+			throw new IllegalArgumentException("invalid failureRateThreshold:" + failureRateThreshold);
+		}
+		this.groupName = groupName;
+		this.failureRateThreshold = failureRateThreshold;
+		this.openMillis = openMillis;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public void setHalfOpenProbes(int halfOpenProbes) {
+		this.halfOpenProbes = halfOpenProbes;
+	}
+
+	/**
+	 * 放行一次调用，熔断打开时抛出CircuitOpenException
+	 * @param node host:port
+	 */
+	public void acquire(String node) {
+		if(!tryAcquire(node)){
+			throw new CircuitOpenException(groupName, node);
+		}
+	}
+
+	public boolean tryAcquire(String node) {
+		return circuit(node).tryAcquire();
+	}
+
+	public void onSuccess(String node) {
+		circuit(node).onSuccess();
+	}
+
+	public void onFailure(String node) {
+		circuit(node).onFailure();
+	}
+
+	public State getState(String node) {
+		NodeCircuit circuit = circuits.get(node);
+		return circuit == null ? State.CLOSED : circuit.state;
+	}
+
+	/**
+	 * 是否有节点熔断（打开或半开）
+	 * @return
+	 */
+	public boolean isAnyOpen() {
+		for (NodeCircuit circuit : circuits.values()) {
+			if(circuit.state != State.CLOSED)return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 经过熔断从连接池借用连接，借用失败计为失败（已过Deadline除外）
+	 */
+	public Jedis getResource(String node, JedisPool pool) {
+		Deadline.check();
+		acquire(node);
+		try {
+			return Deadline.getResource(pool);
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (JedisException e) {
+			onFailure(node);
+			throw e;
+		}
+	}
+
+	/**
+	 * 按连接是否损坏（连接异常、读写超时）记录结果，已过Deadline导致的读超时不计入
+	 * @param jedis
+	 */
+	public void record(Jedis jedis) {
+		String node = jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
+		if(jedis.getClient().isBroken()){
+			if(!Deadline.isExpired())onFailure(node);
+		}else{
+			onSuccess(node);
+		}
+	}
+
+	private NodeCircuit circuit(String node) {
+		NodeCircuit circuit = circuits.get(node);
+		if(circuit == null){
+			circuit = circuits.computeIfAbsent(node, NodeCircuit::new);
+		}
+		return circuit;
+	}
+
+	private class NodeCircuit {
+
+		private final String node;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private volatile State state = State.CLOSED;
+
+		private final int size = windowSize;
+
+		//最近size次调用的结果，按位记录，1为失败
+		private final AtomicLongArray outcomes = new AtomicLongArray((size + 63) / 64);
+
+		//关闭后的调用次数，对size取模为窗口下一位置
+		private final AtomicLong calls = new AtomicLong();
+
+		private long openedAt;
+
+		private int probes;
+
+		private int probeSuccesses;
+
+		private long probeStartedAt;
+
+		NodeCircuit(String node) {
+			this.node = node;
+		}
+
+		boolean tryAcquire() {
+			if(state == State.CLOSED)return true;
+			lock.lock();
+			try {
+				long now = System.currentTimeMillis();
+				if(state == State.CLOSED)return true;
+				if(state == State.OPEN){
+					if(now - openedAt < openMillis)return false;
+					state = State.HALF_OPEN;
+					probes = 0;
+					probeSuccesses = 0;
+				}
+				if(probes >= halfOpenProbes){
+					//探测调用没有返回结果（调用方没有再使用连接），超时后重新探测
+					if(now - probeStartedAt < openMillis)return false;
+					probes = 0;
+					probeSuccesses = 0;
+				}
+				probes++;
+				probeStartedAt = now;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void onSuccess() {
+			State current = state;
+			if(current == State.CLOSED){
+				record(false);
+				return;
+			}
+			if(current == State.OPEN)return;
+			lock.lock();
+			try {
+				if(state == State.HALF_OPEN && ++probeSuccesses >= halfOpenProbes){
+					reset();
+					state = State.CLOSED;
+					logger.info("circuit of redis node[{}] group[{}] closed", node, groupName);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void onFailure() {
+			if(state == State.CLOSED){
+				record(true);
+				long recorded = Math.min(calls.get(), size);
+				if(recorded < minimumCalls || failures() < recorded * failureRateThreshold)return;
+			}
+			lock.lock();
+			try {
+				//关闭状态达到阈值或半开探测失败
+				if(state == State.OPEN)return;
+				open(System.currentTimeMillis());
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void open(long now) {
+			state = State.OPEN;
+			openedAt = now;
+			logger.warn("circuit of redis node[{}] group[{}] opened,fast fail in {}ms", node, groupName, openMillis);
+		}
+
+		private void record(boolean failure) {
+			int index = (int) (calls.getAndIncrement() % size);
+			int word = index >>> 6;
+			long mask = 1L << (index & 63);
+			long current;
+			do {
+				current = outcomes.get(word);
+				if(((current & mask) != 0) == failure)return;
+			} while (!outcomes.compareAndSet(word, current, failure ? current | mask : current & ~mask));
+		}
+
+		private int failures() {
+			int failures = 0;
+			for (int i = 0; i < outcomes.length(); i++) {
+				failures += Long.bitCount(outcomes.get(i));
+			}
+			return failures;
+		}
+
+		private void reset() {
+			for (int i = 0; i < outcomes.length(); i++) {
+				outcomes.set(i, 0);
+			}
+			calls.set(0);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.youhaoxi.base.jedis.provider;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 节点熔断期间的快速失败
+ *
+ * 不继承JedisConnectionException，避免JedisCluster换节点重试和刷新slot
+ */
+public class CircuitOpenException extends JedisException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String node;
+
+	public CircuitOpenException(String groupName, String node) {
+		super("circuit of redis node[" + node + "] group[" + groupName + "] is open");
+		this.node = node;
+	}
+
+	public String getNode() {
+		return node;
+	}
+
+	@Override
+	public Throwable fillInStackTrace() {
+		//快速失败不需要堆栈
+		return this;
+	}
+}
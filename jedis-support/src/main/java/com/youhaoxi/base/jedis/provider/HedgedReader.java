@@ -0,0 +1,295 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 对冲读
+ *
+ * 读命令先发往按ReadMode选中的节点，超过动态阈值（最近读延迟的p95）未返回时，
+ * 向备选节点发出同样的读，取先返回的结果，另一个在后台完成后归还连接。
+ * 对冲的读数量受预算限制：不超过读数量 * budget（允许少量突发）。
+ * 对冲读先返回时，选中节点在这次读返回前视为停顿，期间的读直接发往备选节点。
+ * 读在工作线程上执行（继承调用线程的Deadline），工作线程用满时在调用线程上直接读，不对冲。
+ */
+public class HedgedReader {
+
+	protected static final Logger logger = LoggerFactory.getLogger(HedgedReader.class);
+
+	private static final int SAMPLES = 1024;
+
+	//每多少个样本重新计算阈值
+	private static final int RECALC_INTERVAL = 256;
+
+	//预算的定点精度
+	private static final long UNIT = 1000;
+
+	private final String groupName;
+
+	//每次读增加的对冲额度
+	private final long budgetPerRead;
+
+	private final long maxBudget;
+
+	private final ThreadPoolExecutor executor;
+
+	private final long[] samples = new long[SAMPLES];
+
+	private final AtomicInteger sampleCount = new AtomicInteger();
+
+	private volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private long minThresholdNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final AtomicLong budget = new AtomicLong();
+
+	private final AtomicLong hedged = new AtomicLong();
+
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	//节点 -> 对冲读先返回后仍未返回的读数
+	private final Map<String, AtomicInteger> stalled = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param groupName
+	 * @param budget 对冲读占读的最大比例，如0.05
+	 * @param maxThreads 执行读的最大工作线程数
+	 */
+	public HedgedReader(String groupName, double budget, int maxThreads) {
+		if(budget <= 0 || budget > 1){
+			throw new IllegalArgumentException("invalid hedged read budget:" + budget);
+		}
+		this.groupName = groupName;
+		this.budgetPerRead = (long) (budget * UNIT);
+		//最多积累最近SAMPLES次读的额度，节点短暂停顿期间没有新的读补充额度
+		this.maxBudget = Math.max(10 * UNIT, budgetPerRead * SAMPLES);
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+			Thread thread = new Thread(r, "redis-hedged-read-" + groupName + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void setMinThresholdMillis(long minThresholdMillis) {
+		this.minThresholdNanos = TimeUnit.MILLISECONDS.toNanos(minThresholdMillis);
+	}
+
+	/**
+	 * 当前的对冲阈值（毫秒）
+	 * @return
+	 */
+	public double getThresholdMillis() {
+		return thresholdNanos / 1000000.0;
+	}
+
+	public long getHedgedCount() {
+		return hedged.get();
+	}
+
+	/**
+	 * 对冲读先返回的次数
+	 * @return
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * 执行读命令
+	 * @param provider
+	 * @param key
+	 * @param action 读命令
+	 * @param direct 不对冲时的读（按原有路由），需自行归还连接
+	 * @return
+	 */
+	public <T> T read(NodeReadProvider provider, String key, Function<? super Jedis, T> action, Supplier<T> direct) {
+		String[] nodes = provider.readNodes(key);
+		if(nodes == null)return direct.get();
+		deposit();
+		String primary = nodes[0];
+		String alternate = nodes[1];
+		if(isStalled(primary) && !isStalled(alternate)){
+			primary = nodes[1];
+			alternate = nodes[0];
+		}
+
+		Race<T> race = new Race<>(primary);
+		String first = primary;
+		long remaining = Deadline.remainingMillis();
+		long start = System.nanoTime();
+		//工作线程共用调用线程持有的许可
+		Supplier<T> primaryRead = provider.sharePermit(() -> {
+			try {
+				T value = readOn(provider, first, action, direct, remaining);
+				record(System.nanoTime() - start);
+				return value;
+			} finally {
+				race.primaryDone();
+			}
+		});
+		try {
+			executor.execute(() -> race.run(primaryRead, false));
+		} catch (RejectedExecutionException e) {
+			return direct.get();
+		}
+		try {
+			return race.result.get(thresholdNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			if(withdraw()){
+				race.pending.incrementAndGet();
+				String second = alternate;
+				Supplier<T> hedgeRead = provider.sharePermit(() -> readOn(provider, second, action, direct, remaining));
+				try {
+					executor.execute(() -> race.run(hedgeRead, true));
+					hedged.incrementAndGet();
+				} catch (RejectedExecutionException ignore) {
+					//工作线程用满，只等待选中节点
+					race.pending.decrementAndGet();
+				}
+			}
+			return await(race);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JedisException("hedged read interrupted", e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private boolean isStalled(String node) {
+		if(stalled.isEmpty())return false;
+		AtomicInteger count = stalled.get(node);
+		return count != null && count.get() > 0;
+	}
+
+	private <T> T readOn(NodeReadProvider provider, String node, Function<? super Jedis, T> action, Supplier<T> direct, long remainingMillis) {
+		if(remainingMillis < 0)return readOn(provider, node, action, direct);
+		//工作线程继承调用线程的剩余时间
+		return Deadline.within(remainingMillis, () -> readOn(provider, node, action, direct));
+	}
+
+	private <T> T readOn(NodeReadProvider provider, String node, Function<? super Jedis, T> action, Supplier<T> direct) {
+		try {
+			return provider.readOn(node, action);
+		} catch (JedisRedirectionException e) {
+			//slot已迁移，按原有路由读
+			return direct.get();
+		}
+	}
+
+	private <T> T await(Race<T> race) {
+		try {
+			if(!Deadline.isSet())return race.result.get();
+			while(true){
+				try {
+					return race.result.get(Deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					//remainingMillis向上取整，过截止时间后抛出DeadlineExceededException
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JedisException("hedged read interrupted", e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private RuntimeException unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if(cause instanceof RuntimeException)return (RuntimeException) cause;
+		return new JedisException(cause);
+	}
+
+	private void deposit() {
+		long current = budget.get();
+		if(current < maxBudget)budget.compareAndSet(current, Math.min(maxBudget, current + budgetPerRead));
+	}
+
+	private boolean withdraw() {
+		while(true){
+			long current = budget.get();
+			if(current < UNIT)return false;
+			if(budget.compareAndSet(current, current - UNIT))return true;
+		}
+	}
+
+	private void record(long nanos) {
+		int count = sampleCount.getAndIncrement();
+		samples[count & (SAMPLES - 1)] = nanos;
+		if(count > 0 && (count & (RECALC_INTERVAL - 1)) == 0){
+			long[] copy = Arrays.copyOf(samples, Math.min(count, SAMPLES));
+			Arrays.sort(copy);
+			long p95 = copy[(int) (copy.length * 0.95)];
+			thresholdNanos = Math.max(minThresholdNanos, p95);
+			if(logger.isDebugEnabled()){
+				logger.debug("hedged read threshold of group[{}]:{}ms,hedged:{},wins:{}", groupName,
+						thresholdNanos / 1000000.0, hedged.get(), hedgeWins.get());
+			}
+		}
+	}
+
+	/**
+	 * 选中节点和备选节点的读，先成功的结果为准，都失败时抛出选中节点的异常
+	 */
+	private class Race<T> {
+		final String primary;
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final AtomicInteger pending = new AtomicInteger(1);
+		//0：进行中，1：选中节点已返回，2：对冲读先返回且选中节点未返回
+		final AtomicInteger phase = new AtomicInteger();
+		volatile Throwable failure;
+
+		Race(String primary) {
+			this.primary = primary;
+		}
+
+		void primaryDone() {
+			if(!phase.compareAndSet(0, 1)){
+				stalled.computeIfAbsent(primary, k -> new AtomicInteger()).decrementAndGet();
+			}
+		}
+
+		void run(Supplier<T> read, boolean hedge) {
+			try {
+				T value = read.get();
+				if(result.complete(value) && hedge){
+					hedgeWins.incrementAndGet();
+					if(phase.compareAndSet(0, 2)){
+						stalled.computeIfAbsent(primary, k -> new AtomicInteger()).incrementAndGet();
+					}
+				}
+			} catch (Throwable e) {
+				if(failure == null || !hedge)failure = e;
+				if(pending.decrementAndGet() == 0){
+					result.completeExceptionally(failure);
+				}
+			}
+		}
+	}
+}
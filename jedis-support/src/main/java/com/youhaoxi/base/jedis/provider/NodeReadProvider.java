@@ -0,0 +1,36 @@
+package com.youhaoxi.base.jedis.provider;
+
+import redis.clients.jedis.Jedis;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 可以在指定节点上执行读命令的redis服务提供者（配置了从节点且ReadMode不是MASTER_ONLY），用于对冲读
+ */
+public interface NodeReadProvider {
+
+	/**
+	 * key的读节点
+	 * @param key
+	 * @return 按ReadMode选中的节点和一个备选节点，没有读路由或备选节点时返回null
+	 */
+	String[] readNodes(String key);
+
+	/**
+	 * 借用指定节点的连接执行读命令，执行完归还
+	 * @param node host:port
+	 * @param action
+	 * @return action的返回值
+	 */
+	<T> T readOn(String node, Function<? super Jedis, T> action);
+
+	/**
+	 * 包装为调用线程在其他线程上执行的读，限制并发时共用调用线程持有的许可
+	 * @param read
+	 * @return
+	 */
+	default <T> Supplier<T> sharePermit(Supplier<T> read) {
+		return read;
+	}
+}
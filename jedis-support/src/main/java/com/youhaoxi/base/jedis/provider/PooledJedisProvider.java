@@ -0,0 +1,426 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.JedisProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 基于连接池的redis服务提供者
+ *
+ * execute/executeRead 每次调用时借用连接，执行完立即归还，不绑定线程，可用于线程池、异步代码；
+ * get/release 已废弃，连接绑定到当前线程，必须在finally中调用release；
+ * withAffinity 范围内（当前线程）的get/execute使用同一主节点连接、getRead/executeRead使用同一读节点连接，
+ * release和execute执行完都不归还，范围结束时归还。
+ *
+ * 配置maxConcurrency后用信号量限制同时使用连接的线程数，而不是等待连接池：
+ * 大量（虚拟）线程时排队在信号量上，连接池大小与许可数相同，借用连接不会阻塞。
+ * 只改变排队方式，吞吐量仍受maxConcurrency个连接限制，超出的线程等待许可（最多acquireTimeoutMillis）。
+ * 一个线程同时持有主节点和读节点连接只占用一个许可；execute/executeRead中嵌套的execute/executeRead复用当前连接，不再借用；
+ * 对冲读等为调用线程在其他线程上执行的读通过sharePermit共用调用线程的许可。
+ *
+ * 每次取得连接时按当前线程的Deadline设置等待许可、借用连接的超时和连接的读超时。
+ *
+ * 配置变更替换provider后，调用方可能在旧provider上get、在新provider上release，
+ * 宽限期内新provider的release同时释放当前线程在旧provider上的连接。
+ */
+public abstract class PooledJedisProvider<S extends B, B> implements JedisProvider<S, B> {
+
+	protected static final Logger logger = LoggerFactory.getLogger(PooledJedisProvider.class);
+
+	private final ThreadLocal<S> context = new ThreadLocal<>();
+
+	//当前线程绑定的读节点连接（getRead、withAffinity范围内的executeRead）
+	protected final ThreadLocal<S> readContext = new ThreadLocal<>();
+
+	//当前线程execute/executeRead正在使用的主节点、读节点连接
+	private final ThreadLocal<S> executing = new ThreadLocal<>();
+
+	private final ThreadLocal<S> readExecuting = new ThreadLocal<>();
+
+	//当前线程withAffinity的嵌套层数
+	private final ThreadLocal<int[]> affinity = new ThreadLocal<>();
+
+	//并发许可，null为不限制
+	private Semaphore permits;
+
+	//获取许可的最长等待毫秒数，小于0一直等待
+	private long acquireTimeoutMillis = -1;
+
+	//当前线程持有的许可
+	private final ThreadLocal<Hold> holding = new ThreadLocal<>();
+
+	//按节点熔断，null为不熔断
+	protected CircuitBreaker circuitBreaker;
+
+	//默认读超时（毫秒），没有Deadline时使用
+	protected int timeout;
+
+	//被替换的旧provider，宽限期内一并释放
+	private volatile PooledJedisProvider<?, ?> previous;
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * 限制同时使用连接的线程数
+	 * @param maxConcurrency 小于等于0不限制
+	 */
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+	}
+
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	/**
+	 * 替换旧的provider，旧provider关闭前设置为null
+	 * @param previous
+	 */
+	public void setPrevious(PooledJedisProvider<?, ?> previous) {
+		this.previous = previous;
+	}
+
+	public PooledJedisProvider<?, ?> getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * 等待的线程数（估计值）
+	 * @return
+	 */
+	public int getQueueLength() {
+		return permits == null ? 0 : permits.getQueueLength();
+	}
+
+	/**
+	 * 从连接池借用连接
+	 * @return
+	 */
+	protected abstract S borrow();
+
+	/**
+	 * 归还连接
+	 * @param connection
+	 */
+	protected abstract void giveBack(S connection);
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用execute
+	 */
+	@Deprecated
+	@Override
+	public S get() {
+		S connection = context.get();
+		if(connection == null)connection = executing.get();
+		if(connection != null){
+			applyDeadline(connection);
+			return connection;
+		}
+		connection = borrowWithPermit(this::borrow);
+		context.set(connection);
+		if(logger.isTraceEnabled()){
+			logger.trace(">>get a jedis conn[{}]", connection);
+		}
+		applyDeadline(connection);
+		return connection;
+	}
+
+	/**
+	 * @deprecated 连接绑定当前线程，改用executeBinary
+	 */
+	@Deprecated
+	@Override
+	public B getBinary() {
+		return get();
+	}
+
+	@Deprecated
+	@Override
+	public void release() {
+		PooledJedisProvider<?, ?> retired = previous;
+		if(retired != null)retired.release();
+		if(affinity.get() != null)return;
+		releaseContext();
+	}
+
+	@Override
+	public <T> T execute(Function<S, T> action) {
+		S connection = context.get();
+		if(connection == null)connection = executing.get();
+		if(connection != null){
+			applyDeadline(connection);
+			return action.apply(connection);
+		}
+		connection = borrowWithPermit(this::borrow);
+		if(affinity.get() != null){
+			//withAffinity范围结束时归还
+			context.set(connection);
+			applyDeadline(connection);
+			return action.apply(connection);
+		}
+		executing.set(connection);
+		try {
+			applyDeadline(connection);
+			return action.apply(connection);
+		} finally {
+			executing.remove();
+			giveBackWithPermit(connection, this::giveBack);
+		}
+	}
+
+	@Override
+	public <T> T executeBinary(Function<B, T> action) {
+		return execute(action::apply);
+	}
+
+	/**
+	 * 没有读节点时在主节点上执行
+	 */
+	@Override
+	public <T> T executeRead(Function<S, T> action) {
+		return execute(action);
+	}
+
+	@Override
+	public <T> T executeBinaryRead(Function<B, T> action) {
+		return executeRead(action::apply);
+	}
+
+	/**
+	 * 在读节点连接上执行，执行完归还；当前线程已持有连接（嵌套调用）时复用，不再借用
+	 * @param borrower 借用读节点连接（通过borrowWithPermit），返回null时在主节点上执行
+	 * @param action
+	 * @return
+	 */
+	protected <T> T executeReplica(Supplier<S> borrower, Function<S, T> action) {
+		S connection = readExecuting.get();
+		if(connection == null)connection = readContext.get();
+		if(connection == null)connection = context.get();
+		if(connection == null)connection = executing.get();
+		if(connection != null){
+			applyDeadline(connection);
+			return action.apply(connection);
+		}
+		connection = borrower.get();
+		if(connection == null)return execute(action);
+		if(affinity.get() != null){
+			readContext.set(connection);
+			applyDeadline(connection);
+			return action.apply(connection);
+		}
+		readExecuting.set(connection);
+		try {
+			applyDeadline(connection);
+			return action.apply(connection);
+		} finally {
+			readExecuting.remove();
+			giveBackWithPermit(connection, this::giveBack);
+		}
+	}
+
+	/**
+	 * 包装为调用线程在其他线程上执行的读：调用线程持有许可时，读共用该许可，不再占用新的许可
+	 * @param action
+	 * @return
+	 */
+	public <T> Supplier<T> sharePermit(Supplier<T> action) {
+		Hold hold = holding.get();
+		if(hold == null)return action;
+		Permit permit = hold.permit;
+		return () -> {
+			//调用线程已释放许可时按正常方式获取
+			if(holding.get() != null || !permit.retain())return action.get();
+			holding.set(new Hold(permit));
+			try {
+				return action.get();
+			} finally {
+				releasePermit();
+			}
+		};
+	}
+
+	@Override
+	public <T> T withAffinity(Supplier<T> action) {
+		int[] depth = affinity.get();
+		if(depth == null){
+			depth = new int[1];
+			affinity.set(depth);
+		}
+		depth[0]++;
+		try {
+			return action.get();
+		} finally {
+			if(--depth[0] == 0){
+				affinity.remove();
+				releaseContext();
+			}
+		}
+	}
+
+	/**
+	 * 归还当前线程绑定的主节点、读节点连接
+	 */
+	protected void releaseContext() {
+		S connection = context.get();
+		if(connection != null){
+			context.remove();
+			giveBackWithPermit(connection, this::giveBack);
+			if(logger.isTraceEnabled()){
+				logger.trace("<<release a jedis conn[{}]", connection);
+			}
+		}
+		connection = readContext.get();
+		if(connection != null){
+			readContext.remove();
+			giveBackWithPermit(connection, this::giveBack);
+		}
+	}
+
+	/**
+	 * 占用许可后借用连接，借用失败释放许可；子类借用读节点连接也应通过此方法
+	 * @param borrower
+	 * @return
+	 */
+	protected <C> C borrowWithPermit(Supplier<C> borrower) {
+		acquirePermit();
+		try {
+			return borrower.get();
+		} catch (RuntimeException e) {
+			releasePermit();
+			throw e;
+		}
+	}
+
+	/**
+	 * 归还连接并释放许可
+	 */
+	protected <C> void giveBackWithPermit(C connection, Consumer<C> giver) {
+		try {
+			giver.accept(connection);
+		} finally {
+			releasePermit();
+		}
+	}
+
+	/**
+	 * 借用指定节点的连接执行命令，执行完归还（经过熔断和并发许可）
+	 * @param node host:port
+	 * @param pool 节点的连接池
+	 * @param action
+	 * @return
+	 */
+	protected <T> T executeOn(String node, JedisPool pool, Function<? super Jedis, T> action) {
+		Jedis jedis = borrowWithPermit(() -> circuitBreaker == null ? Deadline.getResource(pool) : circuitBreaker.getResource(node, pool));
+		try {
+			Deadline.apply(jedis, timeout);
+			return action.apply(jedis);
+		} finally {
+			giveBackWithPermit(jedis, connection -> {
+				if(circuitBreaker != null)circuitBreaker.record(connection);
+				connection.close();
+			});
+		}
+	}
+
+	/**
+	 * 按当前线程的Deadline设置连接的读超时，没有Deadline时恢复默认读超时
+	 * @param connection
+	 */
+	protected void applyDeadline(S connection) {
+		if(connection instanceof Jedis){
+			Deadline.apply((Jedis) connection, timeout);
+		}else if(connection instanceof ShardedJedis){
+			Deadline.apply((ShardedJedis) connection, timeout);
+		}
+	}
+
+	private void acquirePermit() {
+		Semaphore semaphore = permits;
+		if(semaphore == null)return;
+		Hold hold = holding.get();
+		if(hold != null){
+			hold.count++;
+			return;
+		}
+		long remaining = Deadline.remainingMillis();
+		boolean limited = remaining >= 0 && (acquireTimeoutMillis < 0 || remaining < acquireTimeoutMillis);
+		long timeoutMillis = limited ? remaining : acquireTimeoutMillis;
+		try {
+			if(timeoutMillis < 0){
+				semaphore.acquire();
+			}else if(!semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)){
+				if(limited)Deadline.check();
+				throw new JedisConnectionException("Could not get a permit in " + timeoutMillis + "ms,waiting:" + semaphore.getQueueLength());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JedisConnectionException("Interrupted while waiting for a permit", e);
+		}
+		holding.set(new Hold(new Permit(semaphore)));
+	}
+
+	private void releasePermit() {
+		Hold hold = holding.get();
+		//未限制并发时没有计数
+		if(hold == null)return;
+		if(--hold.count == 0){
+			holding.remove();
+			hold.permit.release();
+		}
+	}
+
+	/**
+	 * 一个许可，可由调用线程和为其执行读的线程共用，都不再使用时释放
+	 */
+	private static class Permit {
+
+		private final Semaphore semaphore;
+
+		//共用许可的线程数
+		private final AtomicInteger holders = new AtomicInteger(1);
+
+		Permit(Semaphore semaphore) {
+			this.semaphore = semaphore;
+		}
+
+		boolean retain() {
+			while(true){
+				int current = holders.get();
+				if(current == 0)return false;
+				if(holders.compareAndSet(current, current + 1))return true;
+			}
+		}
+
+		void release() {
+			if(holders.decrementAndGet() == 0)semaphore.release();
+		}
+	}
+
+	/**
+	 * 线程持有的许可，count为线程在许可上持有的连接数
+	 */
+	private static class Hold {
+
+		final Permit permit;
+
+		int count = 1;
+
+		Hold(Permit permit) {
+			this.permit = permit;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.youhaoxi.base.jedis.provider;
+
+import com.youhaoxi.base.jedis.ReadMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 读节点选择器
+ *
+ * 按ReadMode在主节点和从节点之间选择读节点（节点以host:port表示）。
+ * 后台线程定时PING所有节点，记录平滑后的延迟，PING失败的节点在恢复前不会被选中。
+ */
+public class ReadNodeSelector {
+
+	protected static final Logger logger = LoggerFactory.getLogger(ReadNodeSelector.class);
+
+	private static final long PROBE_INTERVAL_MILLIS = 1000;
+
+	private static final long DOWN = Long.MAX_VALUE;
+
+	private final ReadMode readMode;
+
+	private final Supplier<Map<String, JedisPool>> nodes;
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	//节点 -> 平滑后的延迟（纳秒），DOWN表示不可用
+	private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService prober;
+
+	/**
+	 *
+	 * @param name 组名，用于线程名
+	 * @param readMode 读路由方式
+	 * @param nodes 需要探测的节点连接池
+	 */
+	public ReadNodeSelector(String name, ReadMode readMode, Supplier<Map<String, JedisPool>> nodes) {
+		this.readMode = readMode;
+		this.nodes = nodes;
+		this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-read-probe-" + name);
+			thread.setDaemon(true);
+			return thread;
+		});
+		prober.scheduleWithFixedDelay(this::probe, 0, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public ReadMode getReadMode() {
+		return readMode;
+	}
+
+	/**
+	 * 选择读节点
+	 * @param master 主节点
+	 * @param replicas 从节点，可为空
+	 * @return 选中的节点，没有合适的从节点时返回主节点
+	 */
+	public String select(String master, String[] replicas) {
+		if(replicas == null || replicas.length == 0)return master;
+		String node = null;
+		switch (readMode) {
+		case REPLICA_PREFERRED:
+			node = pick(replicas, ThreadLocalRandom.current().nextInt(replicas.length));
+			break;
+		case ROUND_ROBIN:
+			node = pick(replicas, (counter.getAndIncrement() & Integer.MAX_VALUE) % replicas.length);
+			break;
+		case NEAREST:
+			node = nearest(master, replicas);
+			break;
+		default:
+			break;
+		}
+		return node == null ? master : node;
+	}
+
+	/**
+	 * 选择备选读节点：除selected外延迟最低的可用节点，优先从节点
+	 * @param master 主节点
+	 * @param replicas 从节点，可为空
+	 * @param selected 已选中的节点
+	 * @return 没有可用的备选节点时返回null
+	 */
+	public String alternate(String master, String[] replicas, String selected) {
+		String node = null;
+		long min = DOWN;
+		if(replicas != null){
+			for (String replica : replicas) {
+				if(replica.equals(selected))continue;
+				Long latency = latencies.get(replica);
+				//未探测过的节点视为可用
+				long value = latency == null ? DOWN - 1 : latency;
+				if(value < min){
+					node = replica;
+					min = value;
+				}
+			}
+		}
+		if(node == null && !master.equals(selected) && isAvailable(master)){
+			node = master;
+		}
+		return node;
+	}
+
+	/**
+	 * 标记节点不可用（获取连接失败时调用），下次探测成功后恢复
+	 * @param node
+	 */
+	public void markDown(String node) {
+		latencies.put(node, DOWN);
+	}
+
+	public void close() {
+		prober.shutdownNow();
+	}
+
+	private String pick(String[] replicas, int start) {
+		for (int i = 0; i < replicas.length; i++) {
+			String node = replicas[(start + i) % replicas.length];
+			if(isAvailable(node))return node;
+		}
+		return null;
+	}
+
+	private String nearest(String master, String[] replicas) {
+		String node = null;
+		long min = DOWN;
+		Long latency = latencies.get(master);
+		if(latency != null && latency < min){
+			node = master;
+			min = latency;
+		}
+		for (String replica : replicas) {
+			latency = latencies.get(replica);
+			if(latency != null && latency < min){
+				node = replica;
+				min = latency;
+			}
+		}
+		return node;
+	}
+
+	private boolean isAvailable(String node) {
+		Long latency = latencies.get(node);
+		return latency == null || latency != DOWN;
+	}
+
+	private void probe() {
+		Map<String, JedisPool> pools;
+		try {
+			pools = nodes.get();
+		} catch (Exception e) {
+			logger.warn("ReadNodeSelector get nodes falid", e);
+			return;
+		}
+		for (Map.Entry<String, JedisPool> entry : pools.entrySet()) {
+			String node = entry.getKey();
+			long start = System.nanoTime();
+			try (Jedis jedis = entry.getValue().getResource()) {
+				jedis.ping();
+				long sample = System.nanoTime() - start;
+				Long latency = latencies.get(node);
+				//指数平滑，避免个别抖动导致频繁切换
+				latencies.put(node, latency == null || latency == DOWN ? sample : (latency * 4 + sample) / 5);
+			} catch (Exception e) {
+				Long previous = latencies.put(node, DOWN);
+				if(previous == null || previous != DOWN){
+					logger.warn("redis node[{}] probe falid:{}", node, e.getMessage());
+				}
+			}
+		}
+		latencies.keySet().retainAll(pools.keySet());
+	}
+}
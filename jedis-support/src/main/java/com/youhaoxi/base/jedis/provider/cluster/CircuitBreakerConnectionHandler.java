@@ -0,0 +1,143 @@
+package com.youhaoxi.base.jedis.provider.cluster;
+
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.provider.CircuitBreaker;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.Set;
+
+/**
+ * 带熔断的连接处理：按节点熔断，熔断期间取连接直接失败
+ *
+ * 连接由JedisCluster内部归还，无法在归还时记录结果：记住当前线程最近取得的连接，
+ * 同一线程下次取连接（包括JedisCluster重试）或刷新slot时，按该连接是否损坏（连接异常、读写超时）记录结果。
+ *
+ * 取连接时按当前线程的Deadline设置借用连接的等待时间和读超时，已过截止时间时不再取连接（JedisCluster不会重试）。
+ */
+class CircuitBreakerConnectionHandler extends SlotCacheConnectionHandler {
+
+	private volatile CircuitBreaker circuitBreaker;
+
+	//当前线程最近一次取得的连接
+	private final ThreadLocal<Borrowed> lastBorrowed = new ThreadLocal<>();
+
+	CircuitBreakerConnectionHandler(Set<HostAndPort> nodes, GenericObjectPoolConfig poolConfig, int timeout, boolean withReplicas) {
+		super(nodes, poolConfig, timeout, withReplicas);
+	}
+
+	void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	public Jedis getConnectionFromSlot(int slot) {
+		Deadline.check();
+		SlotNodes slotNodes = slotNodes(slot);
+		if(slotNodes == null){
+			settle();
+			return prepare(super.getConnectionFromSlot(slot));
+		}
+		return borrow(slotNodes.master, slotNodes.pool);
+	}
+
+	/**
+	 * JedisCluster收到ASK后获取目标节点的连接
+	 */
+	@Override
+	public Jedis getConnectionFromNode(HostAndPort node) {
+		Deadline.check();
+		//slot迁移中，后台刷新
+		refreshInBackground();
+		return borrow(JedisClusterInfoCache.getNodeKey(node), cache.setupNodeIfNotExist(node));
+	}
+
+	/**
+	 * 获取指定节点的连接，使用完需调用close归还
+	 * @param node host:port
+	 * @return
+	 */
+	Jedis getConnectionFromNode(String node) {
+		Deadline.check();
+		JedisPool pool = cache.getNode(node);
+		if(pool == null)throw new JedisConnectionException("unknown redis node[" + node + "]");
+		return borrow(node, pool);
+	}
+
+	@Override
+	public void renewSlotCache() {
+		//JedisCluster最后一次重试连接异常后刷新slot
+		settle();
+		super.renewSlotCache();
+	}
+
+	/**
+	 * 经过熔断借用节点连接
+	 * @param node host:port
+	 * @param pool
+	 * @return
+	 */
+	protected Jedis borrow(String node, JedisPool pool) {
+		CircuitBreaker breaker = circuitBreaker;
+		if(breaker == null)return prepare(Deadline.getResource(pool));
+		settle();
+		breaker.acquire(node);
+		Jedis jedis;
+		try {
+			jedis = Deadline.getResource(pool);
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (JedisException e) {
+			breaker.onFailure(node);
+			throw e;
+		}
+		lastBorrowed.set(new Borrowed(node, jedis));
+		return prepare(jedis);
+	}
+
+	/**
+	 * 记录当前线程上一次取得的连接的结果
+	 */
+	protected void settle() {
+		Borrowed borrowed = lastBorrowed.get();
+		if(borrowed == null)return;
+		lastBorrowed.remove();
+		CircuitBreaker breaker = circuitBreaker;
+		if(breaker == null)return;
+		if(borrowed.jedis.getClient().isBroken()){
+			//读超时被Deadline缩短时不计入
+			if(borrowed.jedis.getClient().getSoTimeout() >= timeout)breaker.onFailure(borrowed.node);
+		}else{
+			breaker.onSuccess(borrowed.node);
+		}
+	}
+
+	/**
+	 * 按Deadline设置连接的读超时，失败时归还连接
+	 */
+	private Jedis prepare(Jedis jedis) {
+		try {
+			Deadline.apply(jedis, timeout);
+			return jedis;
+		} catch (RuntimeException e) {
+			jedis.close();
+			throw e;
+		}
+	}
+
+	private static final class Borrowed {
+		final String node;
+		final Jedis jedis;
+
+		Borrowed(String node, Jedis jedis) {
+			this.node = node;
+			this.jedis = jedis;
+		}
+	}
+}
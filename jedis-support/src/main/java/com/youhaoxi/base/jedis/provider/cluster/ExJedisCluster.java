@@ -0,0 +1,104 @@
+package com.youhaoxi.base.jedis.provider.cluster;
+
+import com.youhaoxi.base.jedis.provider.CircuitBreaker;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 扩展JedisCluster，开放slot路由和按节点获取连接，用于按节点批量pipeline；支持按节点熔断
+ */
+public class ExJedisCluster extends JedisCluster {
+
+	public ExJedisCluster(Set<HostAndPort> nodes, int timeout, int maxAttempts, GenericObjectPoolConfig poolConfig) {
+		this(nodes, timeout, maxAttempts, poolConfig, false);
+	}
+
+	/**
+	 *
+	 * @param nodes
+	 * @param timeout
+	 * @param maxAttempts
+	 * @param poolConfig
+	 * @param withReplicas 是否加载从节点，用于ReadJedisCluster读从节点
+	 */
+	public ExJedisCluster(Set<HostAndPort> nodes, int timeout, int maxAttempts, GenericObjectPoolConfig poolConfig, boolean withReplicas) {
+		//不连接节点，由替换的连接处理加载slot分布
+		super(Collections.<HostAndPort>emptySet(), timeout, maxAttempts, poolConfig);
+		//替换默认的连接处理
+		connectionHandler.close();
+		connectionHandler = new CircuitBreakerConnectionHandler(nodes, poolConfig, timeout, withReplicas);
+	}
+
+	CircuitBreakerConnectionHandler handler() {
+		return (CircuitBreakerConnectionHandler) connectionHandler;
+	}
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		((CircuitBreakerConnectionHandler) connectionHandler).setCircuitBreaker(circuitBreaker);
+	}
+
+	/**
+	 * 获取slot所在节点的连接，使用完需调用close归还
+	 * @param slot
+	 * @return
+	 */
+	public Jedis getConnectionFromSlot(int slot) {
+		return ((CircuitBreakerConnectionHandler) connectionHandler).getConnectionFromSlot(slot);
+	}
+
+	/**
+	 * slot所在的主节点
+	 * @param slot
+	 * @return host:port，slot未分配时返回null
+	 */
+	public String getSlotNode(int slot) {
+		SlotCacheConnectionHandler.SlotNodes slotNodes = ((CircuitBreakerConnectionHandler) connectionHandler).slotNodes(slot);
+		return slotNodes == null ? null : slotNodes.master;
+	}
+
+	/**
+	 * 获取指定节点的连接，使用完需调用close归还
+	 * @param node host:port
+	 * @return
+	 */
+	public Jedis getConnectionFromNode(String node) {
+		return ((CircuitBreakerConnectionHandler) connectionHandler).getConnectionFromNode(node);
+	}
+
+	/**
+	 * 获取ASK目标节点的连接，使用完需调用close归还
+	 * @param node
+	 * @return
+	 */
+	public Jedis getConnectionFromNode(HostAndPort node) {
+		return connectionHandler.getConnectionFromNode(node);
+	}
+
+	/**
+	 * 收到MOVED后更新slot的主节点
+	 * @param slot
+	 * @param node MOVED目标节点
+	 */
+	public void assignSlot(int slot, HostAndPort node) {
+		((CircuitBreakerConnectionHandler) connectionHandler).assignSlot(slot, node);
+	}
+
+	/**
+	 * 等待首次加载slot分布完成
+	 */
+	public void awaitSlots() {
+		((CircuitBreakerConnectionHandler) connectionHandler).awaitInitialSlots();
+	}
+
+	/**
+	 * 重新获取slot分布，等待刷新完成
+	 */
+	public void renewSlotCache() {
+		((CircuitBreakerConnectionHandler) connectionHandler).awaitRefresh();
+	}
+}
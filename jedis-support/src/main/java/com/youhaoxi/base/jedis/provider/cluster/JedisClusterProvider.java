@@ -4,28 +4,42 @@
 package com.youhaoxi.base.jedis.provider.cluster;
 
 import com.youhaoxi.base.jedis.JedisProvider;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.ReadMode;
+import com.youhaoxi.base.jedis.provider.CircuitBreaker;
+import com.youhaoxi.base.jedis.provider.NodeReadProvider;
 import redis.clients.jedis.BinaryJedisCluster;
 import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Function;
 
 
 /**
  * 集群 redis服务提供者
+ *
+ * JedisCluster同时提供字符串和二进制命令，两者共用一个客户端（一份slot分布和节点连接池）；
+ * 读从节点时读客户端也共用该客户端的slot分布和连接池，每个节点只有一个连接池。
+ * 创建时不连接节点，slot分布在后台加载，由warmUp等待加载完成并预先创建连接。
  * @description <br>
  */
-public class JedisClusterProvider implements JedisProvider<JedisCluster,BinaryJedisCluster> {
+public class JedisClusterProvider implements JedisProvider<JedisCluster,BinaryJedisCluster>, NodeReadProvider {
 	
 	public static final String MODE = "cluster";
 
 	private Integer maxRedirections = 3; //重试3次
 	
 	
-	private JedisCluster jedisCluster;
-	private BinaryJedisCluster binaryJedisCluster;
+	private ExJedisCluster jedisCluster;
+	//读命令使用，ReadMode为MASTER_ONLY时为null
+	private ReadJedisCluster readJedisCluster;
 	
 	private String groupName;
 
@@ -33,10 +47,25 @@ public class JedisClusterProvider implements JedisProvider<JedisCluster,BinaryJe
 	 * 
 	 */
 	public JedisClusterProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout) {
+		this(groupName, jedisPoolConfig, servers, timeout, ReadMode.MASTER_ONLY);
+	}
+
+	public JedisClusterProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout, ReadMode readMode) {
 		this.groupName = groupName;
 		Set<HostAndPort> nodes = this.parseHostAndPort(servers);
-		jedisCluster = new JedisCluster(nodes, timeout, maxRedirections,jedisPoolConfig);
-		binaryJedisCluster = new BinaryJedisCluster(nodes, timeout, maxRedirections,jedisPoolConfig);
+		boolean readReplicas = readMode != null && readMode != ReadMode.MASTER_ONLY;
+		jedisCluster = new ExJedisCluster(nodes, timeout, maxRedirections,jedisPoolConfig, readReplicas);
+		if(readReplicas){
+			readJedisCluster = new ReadJedisCluster(groupName, readMode, jedisCluster, maxRedirections);
+		}
+	}
+
+	/**
+	 * 开启按节点熔断
+	 * @param circuitBreaker
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		jedisCluster.setCircuitBreaker(circuitBreaker);
 	}
 
 	private Set<HostAndPort> parseHostAndPort(String[] servers){
@@ -63,16 +92,129 @@ public class JedisClusterProvider implements JedisProvider<JedisCluster,BinaryJe
 
 	@Override
 	public BinaryJedisCluster getBinary() {
-		return binaryJedisCluster;
+		return jedisCluster;
 	}
 
+	@Deprecated
+	@Override
+	public JedisCluster getRead() {
+		return readJedisCluster == null ? jedisCluster : readJedisCluster;
+	}
+
+	@Deprecated
+	@Override
+	public BinaryJedisCluster getBinaryRead() {
+		return readJedisCluster == null ? jedisCluster : readJedisCluster;
+	}
+
+	/**
+	 * JedisCluster每条命令借用连接，不绑定线程
+	 */
+	@Override
+	public <T> T execute(Function<JedisCluster, T> action) {
+		return action.apply(jedisCluster);
+	}
+
+	@Override
+	public <T> T executeBinary(Function<BinaryJedisCluster, T> action) {
+		return action.apply(jedisCluster);
+	}
+
+	@Override
+	public <T> T executeRead(Function<JedisCluster, T> action) {
+		return action.apply(readJedisCluster == null ? jedisCluster : readJedisCluster);
+	}
+
+	@Override
+	public <T> T executeBinaryRead(Function<BinaryJedisCluster, T> action) {
+		return action.apply(readJedisCluster == null ? jedisCluster : readJedisCluster);
+	}
+
+	@Override
+	public String[] readNodes(String key) {
+		return readJedisCluster == null ? null : readJedisCluster.readNodes(key);
+	}
+
+	@Override
+	public <T> T readOn(String node, Function<? super Jedis, T> action) {
+		return readJedisCluster.readOn(node, action);
+	}
+
+	/**
+	 * 获取slot所在节点的连接，使用完需调用close归还
+	 * @param slot
+	 * @return
+	 */
+	public Jedis getConnectionFromSlot(int slot) {
+		return jedisCluster.getConnectionFromSlot(slot);
+	}
+
+	/**
+	 * slot所在的主节点
+	 * @param slot
+	 * @return host:port，slot未分配时返回null
+	 */
+	public String getSlotNode(int slot) {
+		return jedisCluster.getSlotNode(slot);
+	}
+
+	/**
+	 * 获取指定节点的连接，使用完需调用close归还
+	 * @param node host:port
+	 * @return
+	 */
+	public Jedis getConnectionFromNode(String node) {
+		return jedisCluster.getConnectionFromNode(node);
+	}
+
+	/**
+	 * 获取ASK目标节点的连接，使用完需调用close归还
+	 * @param node
+	 * @return
+	 */
+	public Jedis getConnectionFromNode(HostAndPort node) {
+		return jedisCluster.getConnectionFromNode(node);
+	}
+
+	/**
+	 * 收到MOVED后更新slot的主节点，并在后台刷新slot分布
+	 * @param slot
+	 * @param node MOVED目标节点
+	 */
+	public void assignSlot(int slot, HostAndPort node) {
+		jedisCluster.assignSlot(slot, node);
+	}
+
+	public void renewSlotCache() {
+		jedisCluster.renewSlotCache();
+	}
+
+	@Deprecated
 	@Override
 	public void release() {}
 
+	@Override
+	public Collection<JedisPool> pools() {
+		//包括从节点（读从节点时）
+		return new ArrayList<>(jedisCluster.getClusterNodes().values());
+	}
+
+	@Override
+	public void warmUp() throws Exception {
+		jedisCluster.awaitSlots();
+		JedisProvider.super.warmUp();
+	}
+
 	@Override
 	public void destroy() throws Exception{
+		JedisProviderFactory.runDestroyHooks(groupName, this);
+		close();
+	}
+
+	@Override
+	public void close() throws Exception {
+		if(readJedisCluster != null)readJedisCluster.close();
 		jedisCluster.close();
-		binaryJedisCluster.close();
 	}
 
 
@@ -0,0 +1,173 @@
+package com.youhaoxi.base.jedis.provider.cluster;
+
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.ReadMode;
+import com.youhaoxi.base.jedis.provider.CircuitOpenException;
+import com.youhaoxi.base.jedis.provider.ReadNodeSelector;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 读连接处理：按ReadMode把slot上的命令路由到从节点
+ *
+ * 从节点连接首次使用前发送READONLY；从节点不可用时回退到主节点。
+ * 从节点对不属于自己的slot返回MOVED，由JedisCluster重定向到主节点并刷新拓扑（从节点随slot分布一起刷新）。
+ *
+ * 不单独维护节点和slot分布：slot分布、节点连接池、熔断和刷新都使用主连接处理（加载了从节点），
+ * 只在其上选择读节点，读写共用一套连接。从节点的连接被写命令借用时收到MOVED，READONLY不影响写命令。
+ */
+class ReadConnectionHandler extends JedisSlotBasedConnectionHandler {
+
+	protected static final Logger logger = LoggerFactory.getLogger(ReadConnectionHandler.class);
+
+	private final CircuitBreakerConnectionHandler primary;
+
+	private final ReadNodeSelector selector;
+
+	//已发送READONLY的连接
+	private final Map<Jedis, Boolean> readonlyConnections = new WeakHashMap<>();
+
+	private final ReentrantLock readonlyLock = new ReentrantLock();
+
+	ReadConnectionHandler(String groupName, ReadMode readMode, CircuitBreakerConnectionHandler primary) {
+		//父类的节点缓存不使用
+		super(Collections.<HostAndPort>emptySet(), new GenericObjectPoolConfig(), primary.timeout);
+		this.primary = primary;
+		selector = new ReadNodeSelector(groupName, readMode, primary::getNodes);
+	}
+
+	@Override
+	public Jedis getConnectionFromSlot(int slot) {
+		SlotCacheConnectionHandler.SlotNodes slotNodes = primary.slotNodes(slot);
+		if(slotNodes != null){
+			String node = selector.select(slotNodes.master, slotNodes.replicas);
+			if(!node.equals(slotNodes.master)){
+				Jedis jedis = getReadonlyConnection(node);
+				if(jedis != null)return jedis;
+			}
+		}
+		return primary.getConnectionFromSlot(slot);
+	}
+
+	@Override
+	public Jedis getConnection() {
+		return primary.getConnection();
+	}
+
+	@Override
+	public Jedis getConnectionFromNode(HostAndPort node) {
+		return primary.getConnectionFromNode(node);
+	}
+
+	@Override
+	public Map<String, JedisPool> getNodes() {
+		return primary.getNodes();
+	}
+
+	@Override
+	public void renewSlotCache() {
+		primary.renewSlotCache();
+	}
+
+	@Override
+	public void renewSlotCache(Jedis connection) {
+		primary.renewSlotCache(connection);
+	}
+
+	/**
+	 * slot的读节点
+	 * @param slot
+	 * @return 按ReadMode选中的节点和一个备选节点，没有备选节点时返回null
+	 */
+	String[] readNodes(int slot) {
+		SlotCacheConnectionHandler.SlotNodes slotNodes = primary.slotNodes(slot);
+		if(slotNodes == null)return null;
+		String node = selector.select(slotNodes.master, slotNodes.replicas);
+		String alternate = selector.alternate(slotNodes.master, slotNodes.replicas, node);
+		return alternate == null ? null : new String[]{node, alternate};
+	}
+
+	/**
+	 * 获取指定节点的读连接（主节点发送READONLY没有影响），使用完归还后调用settle
+	 * @param node host:port
+	 * @return
+	 */
+	Jedis getReadConnection(String node) {
+		Jedis jedis = getReadonlyConnection(node);
+		if(jedis == null)throw new JedisConnectionException("no reachable redis node[" + node + "]");
+		return jedis;
+	}
+
+	/**
+	 * 记录当前线程上一次取得的连接的结果（熔断）
+	 */
+	void settle() {
+		primary.settle();
+	}
+
+	/**
+	 * 只关闭读节点选择，连接池由主连接处理关闭
+	 */
+	@Override
+	public void close() {
+		selector.close();
+		super.close();
+	}
+
+	private Jedis getReadonlyConnection(String node) {
+		JedisPool pool = primary.nodePool(node);
+		if(pool == null)return null;
+		Jedis jedis = null;
+		try {
+			jedis = primary.borrow(node, pool);
+			if(!isReadonly(jedis)){
+				jedis.readonly();
+				markReadonly(jedis);
+			}
+			return jedis;
+		} catch (CircuitOpenException e) {
+			//从节点熔断，读主节点
+			return null;
+		} catch (DeadlineExceededException e) {
+			if(jedis != null)jedis.close();
+			throw e;
+		} catch (Exception e) {
+			if(jedis != null){
+				jedis.close();
+				primary.settle();
+			}
+			selector.markDown(node);
+			logger.warn("get readonly connection of node[{}] falid,read from master:{}", node, e.getMessage());
+			return null;
+		}
+	}
+
+	private boolean isReadonly(Jedis jedis) {
+		readonlyLock.lock();
+		try {
+			return readonlyConnections.containsKey(jedis);
+		} finally {
+			readonlyLock.unlock();
+		}
+	}
+
+	private void markReadonly(Jedis jedis) {
+		readonlyLock.lock();
+		try {
+			readonlyConnections.put(jedis, Boolean.TRUE);
+		} finally {
+			readonlyLock.unlock();
+		}
+	}
+}
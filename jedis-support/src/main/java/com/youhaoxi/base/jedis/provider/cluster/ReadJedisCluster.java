@@ -0,0 +1,59 @@
+package com.youhaoxi.base.jedis.provider.cluster;
+
+import com.youhaoxi.base.jedis.ReadMode;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.util.JedisClusterCRC16;
+
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * 只用于读命令的JedisCluster，按ReadMode选择读节点，同时提供字符串和二进制命令
+ * 与ExJedisCluster共用slot分布和节点连接池，关闭时不关闭连接池
+ */
+public class ReadJedisCluster extends JedisCluster {
+
+	/**
+	 *
+	 * @param groupName
+	 * @param readMode
+	 * @param cluster 加载了从节点的ExJedisCluster
+	 * @param maxAttempts
+	 */
+	public ReadJedisCluster(String groupName, ReadMode readMode, ExJedisCluster cluster, int maxAttempts) {
+		//不连接节点，使用cluster的连接处理
+		super(Collections.<HostAndPort>emptySet(), cluster.handler().timeout, maxAttempts, new GenericObjectPoolConfig());
+		//替换默认的连接处理
+		connectionHandler.close();
+		connectionHandler = new ReadConnectionHandler(groupName, readMode, cluster.handler());
+	}
+
+	/**
+	 * key所在slot的读节点
+	 * @param key
+	 * @return 按ReadMode选中的节点和一个备选节点，没有备选节点时返回null
+	 */
+	public String[] readNodes(String key) {
+		return ((ReadConnectionHandler) connectionHandler).readNodes(JedisClusterCRC16.getSlot(key));
+	}
+
+	/**
+	 * 在指定节点上执行读命令，节点不再持有key所在slot时抛出JedisMovedDataException
+	 * @param node host:port
+	 * @param action
+	 * @return
+	 */
+	public <T> T readOn(String node, Function<? super Jedis, T> action) {
+		ReadConnectionHandler handler = (ReadConnectionHandler) connectionHandler;
+		Jedis jedis = handler.getReadConnection(node);
+		try {
+			return action.apply(jedis);
+		} finally {
+			jedis.close();
+			handler.settle();
+		}
+	}
+}
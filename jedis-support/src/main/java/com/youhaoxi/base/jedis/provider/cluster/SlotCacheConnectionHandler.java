@@ -0,0 +1,384 @@
+package com.youhaoxi.base.jedis.provider.cluster;
+
+import com.youhaoxi.base.jedis.Deadline;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * slot路由缓存
+ *
+ * slot -> 节点表刷新时整体替换（copy-on-write），取连接时不加锁（JedisClusterInfoCache刷新期间读写锁会阻塞所有取连接）。
+ * CLUSTER SLOTS在后台线程执行，同时到达的刷新请求合并为一次：
+ * 收到MOVED时等待一次MOVED之后开始的刷新（优先从返回MOVED的节点获取，该节点已知slot的新主节点；
+ * 不超过读超时或Deadline剩余时间）再重试，其他线程继续按当前表路由；
+ * 收到ASK、节点连接异常时只在后台刷新。已知MOVED目标节点时（pipeline）直接更新该slot。
+ * 创建时不连接节点，首次加载也在后台执行（多个组、多个集群客户端并行），加载完成前的取连接等待首次加载。
+ * 读从节点时同时加载从节点，主从节点的连接池都在同一个JedisClusterInfoCache中，由读连接处理（ReadConnectionHandler）共用。
+ * 刷新成功后关闭不再被任何slot引用（已离开集群）的节点连接池，初始节点除外。
+ */
+class SlotCacheConnectionHandler extends JedisSlotBasedConnectionHandler {
+
+	protected static final Logger logger = LoggerFactory.getLogger(SlotCacheConnectionHandler.class);
+
+	private static final String[] NO_REPLICAS = new String[0];
+
+	//后台刷新的最小间隔
+	private static final long MIN_REFRESH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	//JedisClusterInfoCache的节点连接池和写锁，没有移除节点的方法
+	private static final Field NODES;
+
+	private static final Field WRITE_LOCK;
+
+	static {
+		try {
+			NODES = JedisClusterInfoCache.class.getDeclaredField("nodes");
+			NODES.setAccessible(true);
+			WRITE_LOCK = JedisClusterInfoCache.class.getDeclaredField("w");
+			WRITE_LOCK.setAccessible(true);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//slot -> 主从节点
+	private final AtomicReference<SlotNodes[]> slots = new AtomicReference<>(new SlotNodes[JedisCluster.HASHSLOTS]);
+
+	//已请求、尚未开始的刷新
+	private final AtomicReference<CompletableFuture<Void>> nextRefresh = new AtomicReference<>();
+
+	//下一次刷新优先使用的节点
+	private final AtomicReference<String> preferredNode = new AtomicReference<>();
+
+	//首次加载slot分布
+	private final CompletableFuture<Void> initialRefresh;
+
+	private volatile long lastRefreshNanos = System.nanoTime() - MIN_REFRESH_INTERVAL_NANOS;
+
+	private final ThreadPoolExecutor refresher;
+
+	//默认读超时（毫秒）
+	protected final int timeout;
+
+	//是否加载从节点（按ReadMode读从节点时）
+	private final boolean withReplicas;
+
+	//初始节点，不再被slot引用时也保留，所有节点不可用时从这些节点刷新
+	private final Set<String> seeds = new HashSet<>();
+
+	SlotCacheConnectionHandler(Set<HostAndPort> nodes, GenericObjectPoolConfig poolConfig, int timeout, boolean withReplicas) {
+		//不使用JedisClusterInfoCache的slot表，跳过父类的同步加载，只登记初始节点
+		super(Collections.<HostAndPort>emptySet(), poolConfig, timeout, timeout);
+		for (HostAndPort node : nodes) {
+			cache.setupNodeIfNotExist(node);
+			seeds.add(JedisClusterInfoCache.getNodeKey(node));
+		}
+		this.timeout = timeout;
+		this.withReplicas = withReplicas;
+		this.refresher = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread thread = new Thread(r, "redis-cluster-slots-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		initialRefresh = requestRefresh();
+	}
+
+	/**
+	 * slot所在的主从节点
+	 * @param slot
+	 * @return slot未分配时返回null
+	 */
+	SlotNodes slotNodes(int slot) {
+		SlotNodes slotNodes = slots.get()[slot];
+		if(slotNodes == null && !initialRefresh.isDone()){
+			await(initialRefresh);
+			slotNodes = slots.get()[slot];
+		}
+		return slotNodes;
+	}
+
+	/**
+	 * 节点的连接池
+	 * @param node host:port
+	 * @return 未知节点返回null
+	 */
+	JedisPool nodePool(String node) {
+		return cache.getNode(node);
+	}
+
+	/**
+	 * 等待首次加载slot分布完成
+	 * @throws JedisConnectionException 所有节点都不可用
+	 */
+	void awaitInitialSlots() {
+		try {
+			initialRefresh.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new JedisConnectionException("load cluster slots falid", e.getCause());
+		}
+	}
+
+	@Override
+	public Jedis getConnectionFromSlot(int slot) {
+		SlotNodes slotNodes = slotNodes(slot);
+		if(slotNodes == null)return super.getConnectionFromSlot(slot);
+		return slotNodes.pool.getResource();
+	}
+
+	/**
+	 * 节点连接异常（JedisCluster最后一次重试失败）后在后台刷新
+	 */
+	@Override
+	public void renewSlotCache() {
+		refreshInBackground();
+	}
+
+	/**
+	 * 收到MOVED后刷新，等待刷新完成后由JedisCluster重试
+	 */
+	@Override
+	public void renewSlotCache(Jedis connection) {
+		preferredNode.set(JedisClusterInfoCache.getNodeKey(connection));
+		awaitRefresh();
+	}
+
+	@Override
+	public void close() {
+		refresher.shutdownNow();
+		//未执行的刷新不再执行
+		CompletableFuture<Void> pending = nextRefresh.getAndSet(null);
+		if(pending != null)pending.completeExceptionally(new IllegalStateException("closed"));
+		super.close();
+	}
+
+	/**
+	 * 已知slot的新主节点（MOVED）时直接更新该slot，并在后台刷新完整的slot分布
+	 * @param slot
+	 * @param node
+	 */
+	void assignSlot(int slot, HostAndPort node) {
+		JedisPool pool = cache.setupNodeIfNotExist(node);
+		SlotNodes slotNodes = new SlotNodes(JedisClusterInfoCache.getNodeKey(node), pool, NO_REPLICAS);
+		while(true){
+			SlotNodes[] current = slots.get();
+			SlotNodes[] updated = current.clone();
+			updated[slot] = slotNodes;
+			if(slots.compareAndSet(current, updated))break;
+		}
+		refreshInBackground();
+	}
+
+	/**
+	 * 等待一次在调用之后开始的刷新，不超过读超时或Deadline剩余时间
+	 */
+	void awaitRefresh() {
+		await(requestRefresh());
+	}
+
+	private void await(CompletableFuture<Void> refresh) {
+		if(Deadline.isExpired())return;
+		long wait = Deadline.isSet() ? Deadline.remainingMillis() : timeout;
+		try {
+			refresh.get(wait, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			//按当前slot分布重试
+		}
+	}
+
+	/**
+	 * 在后台刷新，距上次刷新不足最小间隔时忽略
+	 */
+	void refreshInBackground() {
+		if(System.nanoTime() - lastRefreshNanos < MIN_REFRESH_INTERVAL_NANOS)return;
+		requestRefresh();
+	}
+
+	private CompletableFuture<Void> requestRefresh() {
+		while(true){
+			CompletableFuture<Void> refresh = nextRefresh.get();
+			if(refresh != null)return refresh;
+			refresh = new CompletableFuture<>();
+			if(nextRefresh.compareAndSet(null, refresh)){
+				try {
+					refresher.execute(this::runRefresh);
+				} catch (RejectedExecutionException e) {
+					//已关闭
+					nextRefresh.compareAndSet(refresh, null);
+					refresh.completeExceptionally(e);
+				}
+				return refresh;
+			}
+		}
+	}
+
+	private void runRefresh() {
+		CompletableFuture<Void> refresh = nextRefresh.getAndSet(null);
+		if(refresh == null)return;
+		//之后到达的请求由下一次刷新处理
+		lastRefreshNanos = System.nanoTime();
+		if(discoverSlots(preferredNode.getAndSet(null))){
+			refresh.complete(null);
+		}else{
+			refresh.completeExceptionally(new IllegalStateException("no reachable node"));
+		}
+	}
+
+	/**
+	 * 通过CLUSTER SLOTS获取slot分布，成功后关闭已离开集群的节点连接池
+	 * @param preferred 优先使用的节点，可以为null
+	 * @return 是否成功
+	 */
+	private boolean discoverSlots(String preferred) {
+		List<JedisPool> pools = cache.getShuffledNodesPool();
+		JedisPool preferredPool = preferred == null ? null : cache.getNode(preferred);
+		if(preferredPool != null){
+			pools.remove(preferredPool);
+			pools.add(0, preferredPool);
+		}
+		for (JedisPool pool : pools) {
+			try (Jedis jedis = pool.getResource()) {
+				slots.set(parseSlots(jedis.clusterSlots()));
+			} catch (Exception e) {
+				logger.debug("refresh cluster slots falid", e);
+				continue;
+			}
+			removeStaleNodes();
+			return true;
+		}
+		logger.warn("refresh cluster slots falid,no reachable node");
+		return false;
+	}
+
+	/**
+	 * 移除并关闭不再被任何slot引用的节点连接池（初始节点除外），
+	 * 避免读节点选择、连接池自适应调整、预热继续使用已离开集群的节点
+	 */
+	@SuppressWarnings("unchecked")
+	private void removeStaleNodes() {
+		Set<String> referenced = new HashSet<>(seeds);
+		SlotNodes last = null;
+		for (SlotNodes slotNodes : slots.get()) {
+			if(slotNodes == null || slotNodes == last)continue;
+			last = slotNodes;
+			referenced.add(slotNodes.master);
+			Collections.addAll(referenced, slotNodes.replicas);
+		}
+		Map<String, JedisPool> removed = new HashMap<>();
+		try {
+			Map<String, JedisPool> nodes = (Map<String, JedisPool>) NODES.get(cache);
+			Lock lock = (Lock) WRITE_LOCK.get(cache);
+			lock.lock();
+			try {
+				Iterator<Map.Entry<String, JedisPool>> iterator = nodes.entrySet().iterator();
+				while(iterator.hasNext()){
+					Map.Entry<String, JedisPool> entry = iterator.next();
+					if(referenced.contains(entry.getKey()))continue;
+					removed.put(entry.getKey(), entry.getValue());
+					iterator.remove();
+				}
+			} finally {
+				lock.unlock();
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		for (Map.Entry<String, JedisPool> entry : removed.entrySet()) {
+			try {
+				entry.getValue().close();
+				logger.info("redis node[{}] left the cluster,pool closed", entry.getKey());
+			} catch (Exception e) {
+				logger.warn("close pool of redis node[" + entry.getKey() + "] error", e);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private SlotNodes[] parseSlots(List<Object> slotInfos) {
+		SlotNodes[] result = new SlotNodes[JedisCluster.HASHSLOTS];
+		for (Object object : slotInfos) {
+			List<Object> slotInfo = (List<Object>) object;
+			if(slotInfo.size() < 3)continue;
+			HostAndPort master = hostAndPort((List<Object>) slotInfo.get(2));
+			if(master == null)continue;
+			String[] replicas = NO_REPLICAS;
+			if(withReplicas && slotInfo.size() > 3){
+				replicas = new String[slotInfo.size() - 3];
+				int count = 0;
+				for (int i = 3; i < slotInfo.size(); i++) {
+					HostAndPort replica = hostAndPort((List<Object>) slotInfo.get(i));
+					if(replica == null)continue;
+					cache.setupNodeIfNotExist(replica);
+					replicas[count++] = JedisClusterInfoCache.getNodeKey(replica);
+				}
+				if(count < replicas.length){
+					String[] copy = new String[count];
+					System.arraycopy(replicas, 0, copy, 0, count);
+					replicas = copy;
+				}
+			}
+			SlotNodes slotNodes = new SlotNodes(JedisClusterInfoCache.getNodeKey(master), cache.setupNodeIfNotExist(master), replicas);
+			int start = ((Long) slotInfo.get(0)).intValue();
+			int end = ((Long) slotInfo.get(1)).intValue();
+			for (int slot = start; slot <= end; slot++) {
+				result[slot] = slotNodes;
+			}
+		}
+		return result;
+	}
+
+	private HostAndPort hostAndPort(List<Object> hostInfo) {
+		if(hostInfo.size() < 2)return null;
+		String host = SafeEncoder.encode((byte[]) hostInfo.get(0));
+		if(host.isEmpty())return null;
+		return new HostAndPort(host, ((Long) hostInfo.get(1)).intValue());
+	}
+
+	static final class SlotNodes {
+		//主节点 host:port
+		final String master;
+		//主节点连接池
+		final JedisPool pool;
+		//从节点 host:port
+		final String[] replicas;
+
+		SlotNodes(String master, JedisPool pool, String[] replicas) {
+			this.master = master;
+			this.pool = pool;
+			this.replicas = replicas;
+		}
+	}
+}
@@ -0,0 +1,469 @@
+/**
+ *
+ */
+package com.youhaoxi.base.jedis.provider.sentinel;
+
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.ReadMode;
+import com.youhaoxi.base.jedis.provider.CircuitOpenException;
+import com.youhaoxi.base.jedis.provider.NodeReadProvider;
+import com.youhaoxi.base.jedis.provider.PooledJedisProvider;
+import com.youhaoxi.base.jedis.provider.ReadNodeSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.BinaryJedis;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 哨兵模式redis服务提供者
+ *
+ * servers为哨兵地址，通过哨兵获取主节点。每个哨兵一个线程订阅+switch-master，
+ * 收到切换消息后立即创建新主节点的连接池并替换，调用方不会被阻塞；
+ * 旧连接池在借出的连接全部归还（或超时）后销毁。另有定时任务向哨兵核对主从节点，防止漏掉切换消息：
+ * 查询所有可达的哨兵，只有多数哨兵（超过配置数量的一半）认可的主节点才会替换当前主节点，
+ * 避免被分区的哨兵返回的旧主节点覆盖+switch-master切换后的主节点。
+ */
+public class JedisSentinelProvider extends PooledJedisProvider<Jedis,BinaryJedis> implements NodeReadProvider {
+
+	protected static final Logger logger = LoggerFactory.getLogger(JedisSentinelProvider.class);
+
+	public static final String MODE = "sentinel";
+
+	private static final String SWITCH_MASTER_CHANNEL = "+switch-master";
+
+	private static final long CHECK_INTERVAL_MILLIS = 5000;
+
+	private static final long RESUBSCRIBE_DELAY_MILLIS = 500;
+
+	private static final long DRAIN_CHECK_MILLIS = 100;
+
+	private final String groupName;
+
+	private final String masterName;
+
+	private final JedisPoolConfig jedisPoolConfig;
+
+	private final List<HostAndPort> sentinels;
+
+	private final ReadMode readMode;
+
+	private volatile Topology topology;
+
+	private ReadNodeSelector readNodeSelector;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final List<SentinelListener> listeners = new ArrayList<>();
+
+	private volatile boolean running = true;
+
+	//切换主从节点的锁，不使用synchronized，避免虚拟线程被固定在载体线程上
+	private final ReentrantLock switchLock = new ReentrantLock();
+
+	public JedisSentinelProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout, ReadMode readMode, String masterName) {
+		super();
+		this.groupName = groupName;
+		this.masterName = masterName;
+		this.jedisPoolConfig = jedisPoolConfig;
+		this.timeout = timeout;
+		this.readMode = readMode == null ? ReadMode.MASTER_ONLY : readMode;
+		this.sentinels = new ArrayList<>(servers.length);
+		for (String server : servers) {
+			String[] addrs = server.split(":");
+			sentinels.add(new HostAndPort(addrs[0].trim(), Integer.parseInt(addrs[1].trim())));
+		}
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "redis-sentinel-check-" + groupName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		Topology discovered = discover(true);
+		if(discovered == null){
+			scheduler.shutdown();
+			throw new JedisException("can't get master[" + masterName + "] from sentinels:" + sentinels);
+		}
+		switchTo(discovered);
+		if(this.readMode != ReadMode.MASTER_ONLY){
+			readNodeSelector = new ReadNodeSelector(groupName, this.readMode, () -> topology.pools);
+		}
+
+		scheduler.scheduleWithFixedDelay(this::checkTopology, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		for (HostAndPort sentinel : sentinels) {
+			SentinelListener listener = new SentinelListener(sentinel);
+			listeners.add(listener);
+			listener.start();
+		}
+	}
+
+	@Override
+	protected Jedis borrow() {
+		Topology current = topology;
+		return circuitBreaker == null ? Deadline.getResource(current.masterPool) : circuitBreaker.getResource(current.master, current.masterPool);
+	}
+
+	@Override
+	protected void giveBack(Jedis connection) {
+		if(circuitBreaker != null)circuitBreaker.record(connection);
+		connection.close();
+	}
+
+	@Deprecated
+	@Override
+	public Jedis getRead() {
+		if(readNodeSelector == null)return get();
+		Jedis jedis = readContext.get();
+		if(jedis != null){
+			applyDeadline(jedis);
+			return jedis;
+		}
+		jedis = borrowReplica();
+		if(jedis == null)return get();
+		readContext.set(jedis);
+		applyDeadline(jedis);
+		return jedis;
+	}
+
+	@Deprecated
+	@Override
+	public BinaryJedis getBinaryRead() {
+		return getRead();
+	}
+
+	@Override
+	public <T> T executeRead(Function<Jedis, T> action) {
+		if(readNodeSelector == null)return execute(action);
+		return executeReplica(this::borrowReplica, action);
+	}
+
+	/**
+	 * 按ReadMode借用读节点的连接
+	 * @return 选中主节点、从节点熔断或不可用时返回null
+	 */
+	private Jedis borrowReplica() {
+		Topology current = topology;
+		String node = readNodeSelector.select(current.master, current.replicas);
+		if(current.master.equals(node))return null;
+		try {
+			JedisPool pool = current.pools.get(node);
+			return borrowWithPermit(() -> circuitBreaker == null ? Deadline.getResource(pool) : circuitBreaker.getResource(node, pool));
+		} catch (CircuitOpenException e) {
+			//从节点熔断，读主节点
+			return null;
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (JedisException e) {
+			//从节点不可用，读主节点
+			readNodeSelector.markDown(node);
+			logger.warn("get a jedis conn from replica[{}] falid,read from master:{}", node, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public String[] readNodes(String key) {
+		if(readNodeSelector == null)return null;
+		Topology current = topology;
+		String node = readNodeSelector.select(current.master, current.replicas);
+		String alternate = readNodeSelector.alternate(current.master, current.replicas, node);
+		return alternate == null ? null : new String[]{node, alternate};
+	}
+
+	@Override
+	public <T> T readOn(String node, Function<? super Jedis, T> action) {
+		//主从切换后节点可能已不在拓扑中
+		JedisPool pool = topology.pools.get(node);
+		if(pool == null)throw new JedisException("unknown redis node[" + node + "] of group[" + groupName + "]");
+		return executeOn(node, pool, action);
+	}
+
+	@Override
+	public Collection<JedisPool> pools() {
+		return topology.pools.values();
+	}
+
+	/**
+	 * 当前主节点
+	 * @return
+	 */
+	public HostAndPort getMaster() {
+		return HostAndPort.parseString(topology.master);
+	}
+
+	/**
+	 * 向所有哨兵查询主从节点，返回多数哨兵认可的主节点；主节点与当前相同时只需一个哨兵（更新从节点）
+	 * @param initial 首次加载，没有多数时使用认可哨兵最多的主节点
+	 * @return 全部哨兵不可用或没有多数时返回null
+	 */
+	private Topology discover(boolean initial) {
+		Map<String, Topology> answers = new LinkedHashMap<>();
+		Map<String, Integer> votes = new LinkedHashMap<>();
+		for (HostAndPort sentinel : sentinels) {
+			Topology answer = query(sentinel);
+			if(answer == null)continue;
+			answers.putIfAbsent(answer.master, answer);
+			votes.merge(answer.master, 1, Integer::sum);
+		}
+		String master = null;
+		int agreed = 0;
+		for (Map.Entry<String, Integer> entry : votes.entrySet()) {
+			if(entry.getValue() > agreed){
+				master = entry.getKey();
+				agreed = entry.getValue();
+			}
+		}
+		if(master == null)return null;
+		Topology current = topology;
+		if(!initial && agreed <= sentinels.size() / 2 && (current == null || !master.equals(current.master))){
+			logger.warn("master[{}] of group[{}] not agreed by most sentinels:{},keep {}", masterName, groupName, votes,
+					current == null ? null : current.master);
+			return null;
+		}
+		return answers.get(master);
+	}
+
+	/**
+	 * 向一个哨兵查询主从节点，不可用返回null
+	 */
+	private Topology query(HostAndPort sentinel) {
+		try (Jedis jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), timeout)) {
+			List<String> address = jedis.sentinelGetMasterAddrByName(masterName);
+			if(address == null || address.size() < 2)return null;
+			String master = address.get(0) + ":" + address.get(1);
+			List<String> replicas = new ArrayList<>();
+			if(readMode != ReadMode.MASTER_ONLY){
+				for (Map<String, String> slave : jedis.sentinelSlaves(masterName)) {
+					String flags = slave.get("flags");
+					if(flags == null || flags.contains("s_down") || flags.contains("o_down") || flags.contains("disconnected"))continue;
+					//正在同步的从节点数据不完整
+					if(!"ok".equals(slave.get("master-link-status")))continue;
+					replicas.add(slave.get("ip") + ":" + slave.get("port"));
+				}
+				Collections.sort(replicas);
+			}
+			return new Topology(master, replicas.toArray(new String[replicas.size()]), null, null);
+		} catch (Exception e) {
+			logger.warn("get master[{}] from sentinel[{}] falid:{}", masterName, sentinel, e.getMessage());
+			return null;
+		}
+	}
+
+	private void checkTopology() {
+		try {
+			Topology discovered = discover(false);
+			if(discovered != null)switchTo(discovered);
+		} catch (Exception e) {
+			logger.warn("check sentinel master[" + masterName + "] falid", e);
+		}
+	}
+
+	/**
+	 * 切换到新的主从节点，未变化的节点复用原连接池
+	 */
+	private void switchTo(Topology discovered) {
+		switchLock.lock();
+		try {
+			doSwitchTo(discovered);
+		} finally {
+			switchLock.unlock();
+		}
+	}
+
+	private void doSwitchTo(Topology discovered) {
+		if(!running)return;
+		Topology current = topology;
+		if(current != null && current.master.equals(discovered.master)
+				&& Arrays.equals(current.replicas, discovered.replicas)){
+			return;
+		}
+		Map<String, JedisPool> pools = new LinkedHashMap<>();
+		pools.put(discovered.master, reusePool(current, discovered.master));
+		for (String replica : discovered.replicas) {
+			pools.put(replica, reusePool(current, replica));
+		}
+		topology = new Topology(discovered.master, discovered.replicas, pools.get(discovered.master), pools);
+		if(current == null)return;
+
+		for (Map.Entry<String, JedisPool> entry : current.pools.entrySet()) {
+			if(pools.get(entry.getKey()) != entry.getValue()){
+				drain(entry.getKey(), entry.getValue());
+			}
+		}
+		if(!current.master.equals(discovered.master)){
+			logger.info("redis master[{}] of group[{}] switched:{} -> {}", masterName, groupName, current.master, discovered.master);
+		}
+	}
+
+	private JedisPool reusePool(Topology current, String node) {
+		JedisPool pool = current == null ? null : current.pools.get(node);
+		//原主节点变为从节点（或相反）时连接仍然可用，只有节点地址变化才新建连接池
+		if(pool != null)return pool;
+		HostAndPort hostAndPort = HostAndPort.parseString(node);
+		return new JedisPool(jedisPoolConfig, hostAndPort.getHost(), hostAndPort.getPort(), timeout);
+	}
+
+	/**
+	 * 等借出的连接归还后销毁连接池，最多等待2倍超时时间
+	 */
+	private void drain(String node, JedisPool pool) {
+		long deadline = System.currentTimeMillis() + Math.max(timeout * 2L, 1000);
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				if(pool.getNumActive() > 0 && System.currentTimeMillis() < deadline && !scheduler.isShutdown()){
+					scheduler.schedule(this, DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+					return;
+				}
+				pool.destroy();
+				logger.info("redis pool of node[{}] group[{}] destroyed", node, groupName);
+			}
+		};
+		scheduler.execute(task);
+	}
+
+	private void onSwitchMaster(String message) {
+		//<master name> <oldip> <oldport> <newip> <newport>
+		String[] parts = message.split(" ");
+		if(parts.length < 5 || !masterName.equals(parts[0]))return;
+		Topology current = topology;
+		String master = parts[3] + ":" + parts[4];
+		if(master.equals(current.master))return;
+		logger.info("received +switch-master of group[{}]:{}", groupName, message);
+		//先切换主节点，从节点在随后的核对中更新
+		List<String> replicas = new ArrayList<>();
+		for (String replica : current.replicas) {
+			if(!replica.equals(master))replicas.add(replica);
+		}
+		switchTo(new Topology(master, replicas.toArray(new String[replicas.size()]), null, null));
+		scheduler.execute(this::checkTopology);
+	}
+
+	@Override
+	public void destroy() throws Exception{
+		JedisProviderFactory.runDestroyHooks(groupName, this);
+		close();
+	}
+
+	@Override
+	public void close() throws Exception {
+		switchLock.lock();
+		try {
+			running = false;
+		} finally {
+			switchLock.unlock();
+		}
+		for (SentinelListener listener : listeners) {
+			listener.shutdown();
+		}
+		scheduler.shutdownNow();
+		if(readNodeSelector != null)readNodeSelector.close();
+		for (JedisPool pool : topology.pools.values()) {
+			pool.destroy();
+		}
+	}
+
+
+	@Override
+	public String mode() {
+		return MODE;
+	}
+
+	@Override
+	public String groupName() {
+		return groupName;
+	}
+
+	private static final class Topology {
+		final String master;
+		final String[] replicas;
+		final JedisPool masterPool;
+		//节点 -> 连接池，包括主节点
+		final Map<String, JedisPool> pools;
+
+		Topology(String master, String[] replicas, JedisPool masterPool, Map<String, JedisPool> pools) {
+			this.master = master;
+			this.replicas = replicas;
+			this.masterPool = masterPool;
+			this.pools = pools;
+		}
+	}
+
+	/**
+	 * 订阅单个哨兵的+switch-master，断开后快速重连
+	 */
+	private class SentinelListener extends Thread {
+
+		private final HostAndPort sentinel;
+
+		private volatile Jedis jedis;
+
+		SentinelListener(HostAndPort sentinel) {
+			super("redis-sentinel-listener-" + groupName + "-" + sentinel);
+			setDaemon(true);
+			this.sentinel = sentinel;
+		}
+
+		@Override
+		public void run() {
+			while(running){
+				try {
+					jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), timeout, 0);
+					jedis.subscribe(new JedisPubSub() {
+						@Override
+						public void onSubscribe(String channel, int subscribedChannels) {
+							//订阅断开期间可能错过切换消息，重新订阅后核对一次
+							scheduler.execute(JedisSentinelProvider.this::checkTopology);
+						}
+
+						@Override
+						public void onMessage(String channel, String message) {
+							onSwitchMaster(message);
+						}
+					}, SWITCH_MASTER_CHANNEL);
+				} catch (Exception e) {
+					if(!running)break;
+					logger.warn("subscribe sentinel[{}] falid,retry after {}ms:{}", sentinel, RESUBSCRIBE_DELAY_MILLIS, e.getMessage());
+					try {
+						Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+					} catch (InterruptedException ie) {
+						break;
+					}
+				} finally {
+					if(jedis != null)jedis.close();
+				}
+			}
+		}
+
+		void shutdown() {
+			Jedis current = jedis;
+			if(current != null){
+				try {
+					current.disconnect();
+				} catch (Exception e) {
+					//ignore
+				}
+			}
+			interrupt();
+		}
+	}
+}
@@ -3,27 +3,34 @@
  */
 package com.youhaoxi.base.jedis.provider.sharded;
 
-import com.youhaoxi.base.jedis.JedisProvider;
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.provider.PooledJedisProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.*;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Sharded;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * 标准（单服务器）redis服务提供者
+ * 分片redis服务提供者（客户端一致性hash）
+ *
+ * servers格式为host:port[:weight]，每个分片按权重在hash环上生成虚拟节点（160 * weight），
+ * 分片名为host:port，增减分片或调整顺序只影响相邻区间的key。
+ * key中{}包含的部分作为hash tag，相同tag的key在同一分片，多key命令和脚本需要使用hash tag。
  */
-public class JedisShardProvider implements JedisProvider<ShardedJedis,BinaryShardedJedis> {
+public class JedisShardProvider extends PooledJedisProvider<ShardedJedis,BinaryShardedJedis> {
 	
 	protected static final Logger logger = LoggerFactory.getLogger(JedisShardProvider.class);
 
 	
-	public static final String MODE = "standard";
+	public static final String MODE = "sharded";
 
-	private ThreadLocal<ShardedJedis> context = new ThreadLocal<>();
-	
 	private ShardedJedisPool jedisPool;
 	
 	private String groupName;
@@ -32,58 +39,63 @@ public class JedisShardProvider implements JedisProvider<ShardedJedis,BinaryShar
 	public JedisShardProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout) {
 		super();
 		this.groupName = groupName;
+		this.timeout = timeout;
 		List<JedisShardInfo> shards = buildShardInfos(servers,timeout);
-		jedisPool = new ShardedJedisPool(jedisPoolConfig, shards);
+		jedisPool = new ShardedJedisPool(jedisPoolConfig, shards, Sharded.DEFAULT_KEY_TAG_PATTERN);
+	}
+
+	/**
+	 * 与连接池相同的hash环（hash算法、hash tag），只用于计算key所属分片，不连接分片
+	 * @param shards
+	 * @return
+	 */
+	static Sharded<Jedis, JedisShardInfo> ring(List<JedisShardInfo> shards) {
+		return new Sharded<>(shards, Sharded.DEFAULT_KEY_TAG_PATTERN);
 	}
 	
-	private List<JedisShardInfo> buildShardInfos(String[] servers, int timeout){
+	/**
+	 * 解析分片配置
+	 * @param servers host:port[:weight]
+	 * @param timeout
+	 * @return
+	 */
+	public static List<JedisShardInfo> buildShardInfos(String[] servers, int timeout){
 		List<JedisShardInfo> infos = new ArrayList<>();
 		for (String server : servers) {
-			String[] addrs = server.split(":");
-			JedisShardInfo info = new JedisShardInfo(addrs[0], Integer.parseInt(addrs[1].trim()), timeout);
+			String[] addrs = server.trim().split(":");
+			int port = Integer.parseInt(addrs[1].trim());
+			int weight = addrs.length > 2 ? Integer.parseInt(addrs[2].trim()) : Sharded.DEFAULT_WEIGHT;
+			//分片名固定为host:port，虚拟节点位置不受配置顺序影响
+			JedisShardInfo info = new JedisShardInfo(addrs[0], addrs[0] + ":" + port, port, timeout, weight);
 			infos.add(info);
 		}
 		
 		return infos;
 	}
 
-	public ShardedJedis get() throws JedisException {
-		ShardedJedis jedis = context.get();
-        if(jedis != null)return jedis;
-        try {
-            jedis = jedisPool.getResource();
-        } catch (JedisException e) {
-            if(jedis!=null){
-            	jedis.close();
-            }
-            throw e;
-        }
-        context.set(jedis);
-        if(logger.isTraceEnabled()){
-        	logger.trace(">>get a jedis conn[{}]",jedis.toString());
-        }
-        return jedis;
-    }
- 
 	@Override
-	public BinaryShardedJedis getBinary() {
-		return get();
+	protected ShardedJedis borrow() {
+		return Deadline.getResource(jedisPool);
+	}
+
+	@Override
+	protected void giveBack(ShardedJedis connection) {
+		connection.close();
 	}
-	
-	public void release() {
-		ShardedJedis jedis = context.get();
-        if (jedis != null) {
-        	context.remove();
-        	jedis.close();
-        	if(logger.isTraceEnabled()){
-            	logger.trace("<<release a jedis conn[{}]",jedis.toString());
-            }
-        }
-    }
 
+	@Override
+	public Collection<ShardedJedisPool> pools() {
+		return Collections.singletonList(jedisPool);
+	}
 	
 	@Override
 	public void destroy() throws Exception{
+		JedisProviderFactory.runDestroyHooks(groupName, this);
+		close();
+	}
+
+	@Override
+	public void close() throws Exception {
 		jedisPool.destroy();
 	}
 
@@ -0,0 +1,154 @@
+package com.youhaoxi.base.jedis.provider.sharded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.Sharded;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.getJedisProvider;
+import static com.youhaoxi.base.jedis.JedisProviderFactory.isSharded;
+
+/**
+ * 分片在线迁移
+ *
+ * 增加（或移除）分片并更新组配置后执行：SCAN各分片的key，按当前hash环计算所属分片，
+ * 不在所属分片上的key通过MIGRATE迁移过去。目标分片已存在同名key时（迁移期间已写入新值）保留目标的值，删除源key。
+ * 迁移完成前尚未迁移的key在新分片上读不到，调用方应按缓存未命中处理。
+ *
+ * <pre>
+ * //移除分片时，把被移除的分片地址作为参数传入
+ * long migrated = new ShardRebalancer(groupName).rebalance("10.0.0.3:6379");
+ * </pre>
+ */
+public class ShardRebalancer {
+
+	protected static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+	private final String groupName;
+
+	private int batchSize = 100;
+
+	private int migrateTimeout = 5000;
+
+	public ShardRebalancer(String groupName) {
+		this.groupName = groupName;
+	}
+
+	/**
+	 * 每次SCAN/MIGRATE的key数量
+	 * @param batchSize
+	 * @return
+	 */
+	public ShardRebalancer setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * MIGRATE超时毫秒数
+	 * @param migrateTimeout
+	 * @return
+	 */
+	public ShardRebalancer setMigrateTimeout(int migrateTimeout) {
+		this.migrateTimeout = migrateTimeout;
+		return this;
+	}
+
+	/**
+	 * 执行迁移
+	 * @param removedServers 已从配置中移除、需要迁出数据的分片（host:port），可为空
+	 * @return 迁移的key数量
+	 */
+	public long rebalance(String... removedServers) {
+		if(!isSharded(groupName)){
+			throw new IllegalStateException("group[" + groupName + "] is not sharded mode");
+		}
+		//只在取分片配置时借用组的连接，SCAN/MIGRATE使用单独的连接，不长时间占用组的连接和并发许可
+		List<JedisShardInfo> shards = ((JedisShardProvider) getJedisProvider(groupName))
+				.execute(shardedJedis -> new ArrayList<>(shardedJedis.getAllShardInfo()));
+		Sharded<Jedis, JedisShardInfo> ring = JedisShardProvider.ring(shards);
+		//源分片：当前分片 + 已移除的分片
+		Map<String, Jedis> sources = new LinkedHashMap<>();
+		for (JedisShardInfo info : shards) {
+			sources.put(info.getName(), info.createResource());
+		}
+		for (JedisShardInfo info : JedisShardProvider.buildShardInfos(removedServers, migrateTimeout)) {
+			sources.putIfAbsent(info.getName(), info.createResource());
+		}
+		long migrated = 0;
+		try {
+			for (Map.Entry<String, Jedis> entry : sources.entrySet()) {
+				long count = migrateShard(ring, entry.getKey(), entry.getValue());
+				logger.info("rebalance shard[{}] of group[{}] OK,migrated:{}", entry.getKey(), groupName, count);
+				migrated += count;
+			}
+		} finally {
+			for (Jedis jedis : sources.values()) {
+				jedis.close();
+			}
+		}
+		return migrated;
+	}
+
+	private long migrateShard(Sharded<Jedis, JedisShardInfo> ring, String source, Jedis jedis) {
+		long migrated = 0;
+		ScanParams params = new ScanParams().count(batchSize);
+		String cursor = ScanParams.SCAN_POINTER_START;
+		do {
+			ScanResult<String> result = jedis.scan(cursor, params);
+			List<String> keys = new ArrayList<>();
+			List<JedisShardInfo> targets = new ArrayList<>();
+			for (String key : result.getResult()) {
+				JedisShardInfo target = ring.getShardInfo(key);
+				if(!source.equals(target.getName())){
+					keys.add(key);
+					targets.add(target);
+				}
+			}
+			if(!keys.isEmpty()){
+				migrated += migrate(jedis, keys, targets);
+			}
+			cursor = result.getStringCursor();
+		} while(!ScanParams.SCAN_POINTER_START.equals(cursor));
+		return migrated;
+	}
+
+	private long migrate(Jedis jedis, List<String> keys, List<JedisShardInfo> targets) {
+		Pipeline pipeline = jedis.pipelined();
+		List<Response<String>> responses = new ArrayList<>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			JedisShardInfo target = targets.get(i);
+			responses.add(pipeline.migrate(target.getHost(), target.getPort(), keys.get(i), target.getDb(), migrateTimeout));
+		}
+		pipeline.sync();
+
+		long migrated = 0;
+		List<String> stale = new ArrayList<>();
+		for (int i = 0; i < responses.size(); i++) {
+			try {
+				if("OK".equals(responses.get(i).get()))migrated++;
+			} catch (JedisDataException e) {
+				if(e.getMessage() != null && e.getMessage().startsWith("BUSYKEY")){
+					stale.add(keys.get(i));
+				}else{
+					logger.warn("migrate key[{}] to shard[{}] falid:{}", keys.get(i), targets.get(i).getName(), e.getMessage());
+				}
+			}
+		}
+		if(!stale.isEmpty()){
+			jedis.del(stale.toArray(new String[stale.size()]));
+		}
+		return migrated;
+	}
+}
@@ -3,7 +3,14 @@
  */
 package com.youhaoxi.base.jedis.provider.standard;
 
-import com.youhaoxi.base.jedis.JedisProvider;
+import com.youhaoxi.base.jedis.Deadline;
+import com.youhaoxi.base.jedis.DeadlineExceededException;
+import com.youhaoxi.base.jedis.JedisProviderFactory;
+import com.youhaoxi.base.jedis.ReadMode;
+import com.youhaoxi.base.jedis.provider.CircuitOpenException;
+import com.youhaoxi.base.jedis.provider.NodeReadProvider;
+import com.youhaoxi.base.jedis.provider.PooledJedisProvider;
+import com.youhaoxi.base.jedis.provider.ReadNodeSelector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.BinaryJedis;
@@ -12,67 +19,162 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.exceptions.JedisException;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
 /**
  * 标准（单服务器）redis服务提供者
+ *
+ * servers中第一个为主节点，其余为从节点，仅在ReadMode不是MASTER_ONLY时用于读命令
  */
-public class JedisStandardProvider implements JedisProvider<Jedis,BinaryJedis> {
+public class JedisStandardProvider extends PooledJedisProvider<Jedis,BinaryJedis> implements NodeReadProvider {
 	
 	protected static final Logger logger = LoggerFactory.getLogger(JedisStandardProvider.class);
 
 	
 	public static final String MODE = "standard";
-
-	private ThreadLocal<Jedis> context = new ThreadLocal<>();
 	
 	private JedisPool jedisPool;
 	
 	private String groupName;
+
+	private String master;
+
+	private String[] replicas;
+
+	//节点 -> 连接池，包括主节点
+	private Map<String, JedisPool> readPools;
+
+	private ReadNodeSelector readNodeSelector;
 	
 
 	public JedisStandardProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout) {
+		this(groupName, jedisPoolConfig, servers, timeout, ReadMode.MASTER_ONLY);
+	}
+
+	public JedisStandardProvider(String groupName, JedisPoolConfig jedisPoolConfig, String[] servers, int timeout, ReadMode readMode) {
 		super();
 		this.groupName = groupName;
+		this.timeout = timeout;
 		String[] addrs = servers[0].split(":");
 		jedisPool = new JedisPool(jedisPoolConfig, addrs[0], Integer.parseInt(addrs[1].trim()), timeout);
+		master = servers[0].trim();
+		if(readMode != null && readMode != ReadMode.MASTER_ONLY && servers.length > 1){
+			replicas = new String[servers.length - 1];
+			readPools = new LinkedHashMap<>();
+			readPools.put(master, jedisPool);
+			for (int i = 1; i < servers.length; i++) {
+				replicas[i - 1] = servers[i].trim();
+				addrs = servers[i].split(":");
+				readPools.put(replicas[i - 1], new JedisPool(jedisPoolConfig, addrs[0], Integer.parseInt(addrs[1].trim()), timeout));
+			}
+			readNodeSelector = new ReadNodeSelector(groupName, readMode, () -> readPools);
+		}
 	}
 
-	public Jedis get() throws JedisException {
-        Jedis jedis = context.get();
-        if(jedis != null)return jedis;
-        try {
-            jedis = jedisPool.getResource();
-        } catch (JedisException e) {
-            if(jedis!=null){
-            	jedis.close();
-            }
-            throw e;
-        }
-        context.set(jedis);
-        if(logger.isTraceEnabled()){
-        	logger.trace(">>get a jedis conn[{}],Host:{}",jedis.toString(),jedis.getClient().getHost());
-        }
-        return jedis;
-    }
- 
 	@Override
-	public BinaryJedis getBinary() {
-		return get();
+	protected Jedis borrow() {
+		return circuitBreaker == null ? Deadline.getResource(jedisPool) : circuitBreaker.getResource(master, jedisPool);
+	}
+
+	@Override
+	protected void giveBack(Jedis connection) {
+		if(circuitBreaker != null)circuitBreaker.record(connection);
+		connection.close();
+	}
+
+	@Deprecated
+	@Override
+	public Jedis getRead() {
+		if(readNodeSelector == null)return get();
+		Jedis jedis = readContext.get();
+		if(jedis != null){
+			applyDeadline(jedis);
+			return jedis;
+		}
+		jedis = borrowReplica();
+		if(jedis == null)return get();
+		readContext.set(jedis);
+		applyDeadline(jedis);
+		if(logger.isTraceEnabled()){
+			logger.trace(">>get a read jedis conn[{}],Host:{}",jedis.toString(),jedis.getClient().getHost());
+		}
+		return jedis;
+	}
+
+	@Deprecated
+	@Override
+	public BinaryJedis getBinaryRead() {
+		return getRead();
 	}
-	
-	public void release() {
-		Jedis jedis = context.get();
-        if (jedis != null) {
-        	context.remove();
-        	jedis.close();
-        	if(logger.isTraceEnabled()){
-            	logger.trace("<<release a jedis conn[{}]",jedis.toString());
-            }
-        }
-    }
 
+	@Override
+	public <T> T executeRead(Function<Jedis, T> action) {
+		if(readNodeSelector == null)return execute(action);
+		return executeReplica(this::borrowReplica, action);
+	}
+
+	/**
+	 * 按ReadMode借用读节点的连接
+	 * @return 选中主节点、从节点熔断或不可用时返回null
+	 */
+	private Jedis borrowReplica() {
+		String node = readNodeSelector.select(master, replicas);
+		if(master.equals(node))return null;
+		try {
+			JedisPool pool = readPools.get(node);
+			return borrowWithPermit(() -> circuitBreaker == null ? Deadline.getResource(pool) : circuitBreaker.getResource(node, pool));
+		} catch (CircuitOpenException e) {
+			//从节点熔断，读主节点
+			return null;
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (JedisException e) {
+			//从节点不可用，读主节点
+			readNodeSelector.markDown(node);
+			logger.warn("get a jedis conn from replica[{}] falid,read from master:{}", node, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public String[] readNodes(String key) {
+		if(readNodeSelector == null)return null;
+		String node = readNodeSelector.select(master, replicas);
+		String alternate = readNodeSelector.alternate(master, replicas, node);
+		return alternate == null ? null : new String[]{node, alternate};
+	}
+
+	@Override
+	public <T> T readOn(String node, Function<? super Jedis, T> action) {
+		JedisPool pool = readPools.get(node);
+		if(pool == null)throw new JedisException("unknown redis node[" + node + "] of group[" + groupName + "]");
+		return executeOn(node, pool, action);
+	}
+	
+	
+	@Override
+	public Collection<JedisPool> pools() {
+		return readPools == null ? Collections.singletonList(jedisPool) : readPools.values();
+	}
 	
 	@Override
 	public void destroy() throws Exception{
+		JedisProviderFactory.runDestroyHooks(groupName, this);
+		close();
+	}
+
+	@Override
+	public void close() throws Exception {
+		if(readNodeSelector != null){
+			readNodeSelector.close();
+			for (JedisPool pool : readPools.values()) {
+				if(pool != jedisPool)pool.destroy();
+			}
+		}
 		jedisPool.destroy();
 	}
 
@@ -0,0 +1,136 @@
+package com.youhaoxi.base.jedis.script;
+
+import com.google.common.hash.Hashing;
+import redis.clients.jedis.BinaryScriptingCommands;
+import redis.clients.jedis.ScriptingCommands;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static com.youhaoxi.base.jedis.JedisProviderFactory.*;
+
+/**
+ * lua脚本
+ *
+ * 本地计算并缓存SHA1，通过EVALSHA执行；服务端返回NOSCRIPT时自动SCRIPT LOAD后重试。
+ * 集群模式下按KEYS路由到对应节点，所有KEYS必须在同一个slot（可使用{hashtag}）；
+ * 分片模式下按第一个KEY路由到对应分片，所有KEYS必须在同一个分片（使用{hashtag}）
+ */
+public class RedisScript {
+
+	private final String name;
+
+	private final String source;
+
+	private final String sha1;
+
+	private final byte[] sourceBytes;
+
+	private final byte[] sha1Bytes;
+
+	public RedisScript(String name, String source) {
+		this.name = name;
+		this.source = source;
+		this.sha1 = Hashing.sha1().hashString(source, StandardCharsets.UTF_8).toString();
+		this.sourceBytes = SafeEncoder.encode(source);
+		this.sha1Bytes = SafeEncoder.encode(sha1);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+
+	/**
+	 * 执行脚本
+	 * @param groupName 组名
+	 * @param keys KEYS
+	 * @param args ARGV
+	 * @return 脚本返回值
+	 */
+	public Object eval(String groupName, List<String> keys, List<String> args) {
+		final List<String> scriptKeys = keys == null ? Collections.<String>emptyList() : keys;
+		final List<String> scriptArgs = args == null ? Collections.<String>emptyList() : args;
+		if (isCluster(groupName)) {
+			if(scriptKeys.isEmpty()){
+				throw new IllegalArgumentException("script[" + name + "] without keys can't be routed in cluster mode");
+			}
+			try {
+				return getJedisClusterScriptingCommands(groupName).evalsha(sha1, scriptKeys, scriptArgs);
+			} catch (JedisNoScriptException e) {
+				getJedisClusterScriptingCommands(groupName).scriptLoad(source, scriptKeys.get(0));
+				return getJedisClusterScriptingCommands(groupName).evalsha(sha1, scriptKeys, scriptArgs);
+			}
+		}
+		if (isSharded(groupName)) {
+			if(scriptKeys.isEmpty()){
+				throw new IllegalArgumentException("script[" + name + "] without keys can't be routed in sharded mode");
+			}
+			return executeOnShard(groupName, scriptKeys.get(0), shard -> evalsha(shard, scriptKeys, scriptArgs));
+		}
+		return getJedisProvider(groupName).execute(client -> evalsha((ScriptingCommands) client, scriptKeys, scriptArgs));
+	}
+
+	private Object evalsha(ScriptingCommands commands, List<String> keys, List<String> args) {
+		try {
+			return commands.evalsha(sha1, keys, args);
+		} catch (JedisNoScriptException e) {
+			commands.scriptLoad(source);
+			return commands.evalsha(sha1, keys, args);
+		}
+	}
+
+	/**
+	 * 执行脚本（二进制参数，适合序列化后的对象）
+	 * @param groupName 组名
+	 * @param keys KEYS
+	 * @param args ARGV
+	 * @return 脚本返回值
+	 */
+	public Object evalBinary(String groupName, List<byte[]> keys, List<byte[]> args) {
+		final List<byte[]> scriptKeys = keys == null ? Collections.<byte[]>emptyList() : keys;
+		final List<byte[]> scriptArgs = args == null ? Collections.<byte[]>emptyList() : args;
+		if (isCluster(groupName)) {
+			if(scriptKeys.isEmpty()){
+				throw new IllegalArgumentException("script[" + name + "] without keys can't be routed in cluster mode");
+			}
+			try {
+				return getJedisClusterBinaryScriptingCommands(groupName).evalsha(sha1Bytes, scriptKeys, scriptArgs);
+			} catch (JedisNoScriptException e) {
+				getJedisClusterBinaryScriptingCommands(groupName).scriptLoad(sourceBytes, scriptKeys.get(0));
+				return getJedisClusterBinaryScriptingCommands(groupName).evalsha(sha1Bytes, scriptKeys, scriptArgs);
+			}
+		}
+		if (isSharded(groupName)) {
+			if(scriptKeys.isEmpty()){
+				throw new IllegalArgumentException("script[" + name + "] without keys can't be routed in sharded mode");
+			}
+			return executeOnShard(groupName, scriptKeys.get(0), shard -> evalshaBinary(shard, scriptKeys, scriptArgs));
+		}
+		return getJedisProvider(groupName).execute(client -> evalshaBinary((BinaryScriptingCommands) client, scriptKeys, scriptArgs));
+	}
+
+	private Object evalshaBinary(BinaryScriptingCommands commands, List<byte[]> keys, List<byte[]> args) {
+		try {
+			return commands.evalsha(sha1Bytes, keys, args);
+		} catch (JedisNoScriptException e) {
+			commands.scriptLoad(sourceBytes);
+			return commands.evalsha(sha1Bytes, keys, args);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + sha1 + ")";
+	}
+}
@@ -0,0 +1,74 @@
+package com.youhaoxi.base.jedis.script;
+
+import com.google.common.io.CharStreams;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * lua脚本注册中心
+ *
+ * 脚本默认从classpath的lua目录加载，如 getScript("hash_compare_and_set") 对应 lua/hash_compare_and_set.lua，
+ * 加载后缓存脚本及其SHA1
+ */
+public class RedisScriptRegistry {
+
+	public static final String SCRIPT_LOCATION = "lua/";
+
+	private static final String SCRIPT_SUFFIX = ".lua";
+
+	private static final Map<String, RedisScript> scripts = new ConcurrentHashMap<>();
+
+	/**
+	 * 获取脚本，未注册时从classpath加载
+	 * @param name 脚本名（不含目录和后缀）
+	 * @return
+	 */
+	public static RedisScript getScript(String name) {
+		RedisScript script = scripts.get(name);
+		if(script != null)return script;
+		return scripts.computeIfAbsent(name, n -> new RedisScript(n, load(SCRIPT_LOCATION + n + SCRIPT_SUFFIX)));
+	}
+
+	/**
+	 * 注册（或覆盖）脚本
+	 * @param name 脚本名
+	 * @param source 脚本内容
+	 * @return
+	 */
+	public static RedisScript register(String name, String source) {
+		RedisScript script = new RedisScript(name, source);
+		scripts.put(name, script);
+		return script;
+	}
+
+	public static Object eval(String name, String groupName, List<String> keys, List<String> args) {
+		return getScript(name).eval(groupName, keys, args);
+	}
+
+	public static Object evalBinary(String name, String groupName, List<byte[]> keys, List<byte[]> args) {
+		return getScript(name).evalBinary(groupName, keys, args);
+	}
+
+	private static String load(String path) {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if(classLoader == null)classLoader = RedisScriptRegistry.class.getClassLoader();
+		try (InputStream in = classLoader.getResourceAsStream(path)) {
+			if(in == null){
+				throw new IllegalArgumentException("script not found in classpath:" + path);
+			}
+			try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+				return CharStreams.toString(reader);
+			}
+		} catch (IllegalArgumentException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.youhaoxi.base.jedis.util;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 配置来源，ResourceUtils从这里读取配置
+ */
+public interface ConfigSource {
+
+	/**
+	 * 读取全部配置
+	 * @return 名称（如文件名） -> 配置，按查找顺序排列
+	 * @throws IOException
+	 */
+	Map<String, Properties> load() throws IOException;
+
+	/**
+	 * 开始监听配置变更，变更时调用listener；不支持监听时忽略
+	 * @param listener
+	 */
+	default void watch(Runnable listener) {}
+
+	/**
+	 * 停止监听
+	 */
+	default void close() {}
+}
@@ -0,0 +1,124 @@
+package com.youhaoxi.base.jedis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 目录下的.properties文件（按文件名排序查找），通过WatchService监听文件变更
+ *
+ * 编辑器保存一次可能产生多个事件，收到事件后等待一小段时间，合并为一次变更通知。
+ */
+public class DirectoryConfigSource implements ConfigSource {
+
+	protected static final Logger logger = LoggerFactory.getLogger(DirectoryConfigSource.class);
+
+	//合并变更事件的等待毫秒数
+	private static final long SETTLE_MILLIS = 200;
+
+	private final File dir;
+
+	private volatile WatchService watchService;
+
+	public DirectoryConfigSource(File dir) {
+		this.dir = dir;
+	}
+
+	@Override
+	public Map<String, Properties> load() throws IOException {
+		File[] propFiles = dir.listFiles(f -> f.getName().endsWith(".properties"));
+		Map<String, Properties> result = new LinkedHashMap<>();
+		if(propFiles == null)return result;
+		Arrays.sort(propFiles, Comparator.comparing(File::getName));
+		for (File file : propFiles) {
+			try (FileReader reader = new FileReader(file)) {
+				Properties p = new Properties();
+				p.load(reader);
+				result.put(file.getName(), p);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void watch(Runnable listener) {
+		if(watchService != null)return;
+		try {
+			WatchService service = FileSystems.getDefault().newWatchService();
+			dir.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			watchService = service;
+		} catch (IOException e) {
+			logger.warn("watch config dir[" + dir + "] falid", e);
+			return;
+		}
+		Thread thread = new Thread(() -> run(listener), "redis-config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("watching config dir[{}]", dir);
+	}
+
+	@Override
+	public void close() {
+		WatchService service = watchService;
+		if(service == null)return;
+		try {
+			service.close();
+		} catch (IOException e) {
+			logger.debug("close watch service error", e);
+		}
+	}
+
+	private void run(Runnable listener) {
+		WatchService service = watchService;
+		try {
+			while(true){
+				WatchKey key = service.take();
+				boolean changed = isPropertiesChanged(key);
+				key.reset();
+				if(!changed)continue;
+				//合并短时间内的后续事件
+				Thread.sleep(SETTLE_MILLIS);
+				WatchKey next;
+				while((next = service.poll()) != null){
+					next.pollEvents();
+					next.reset();
+				}
+				try {
+					listener.run();
+				} catch (Exception e) {
+					logger.warn("handle config change error", e);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			//已关闭
+		}
+	}
+
+	private boolean isPropertiesChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if(event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| (context instanceof Path && context.toString().endsWith(".properties"))){
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
@@ -1,87 +1,220 @@
 /**
- * 
+ *
  */
 package com.youhaoxi.base.jedis.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
-import java.io.FileReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
+ * 配置读取
+ *
+ * 默认读取classpath根目录下的.properties文件，可通过setConfigSource替换来源；
+ * 调用watch后配置文件变更时重新加载，并通知变更监听（参数为值发生变化的key）。
  * @description <br>
  */
 public class ResourceUtils {
 
-	static Map<String, String> cache = new HashMap<>();
+	protected static final Logger logger = LoggerFactory.getLogger(ResourceUtils.class);
+
+	private static volatile ConfigSource source;
+
+	private static volatile Snapshot snapshot;
 
-	static List<Properties> properties = new ArrayList<Properties>();
+	private static final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
 
-	static Map<String, Properties> props = new HashMap<>();
-	
-	static boolean inited;
+	private static final AtomicBoolean watching = new AtomicBoolean();
 
-	private synchronized static void load() {
+	private static final ReentrantLock lock = new ReentrantLock();
+
+	private static Snapshot load() {
+		lock.lock();
 		try {
-      if(!properties.isEmpty())return;
+			if(snapshot != null)return snapshot;
+			try {
+				snapshot = new Snapshot(source().load());
+			} catch (Exception e) {
+				snapshot = new Snapshot(new LinkedHashMap<>());
+				throw new RuntimeException(e);
+			}
+			return snapshot;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static Snapshot snapshot() {
+		Snapshot current = snapshot;
+		return current == null ? load() : current;
+	}
+
+	private static ConfigSource source() {
+		if(source == null){
 			File dir = new File(Thread.currentThread().getContextClassLoader().getResource("").getPath());
+			source = new DirectoryConfigSource(dir);
+		}
+		return source;
+	}
 
-			File[] propFiles = dir.listFiles(f -> f.getName().endsWith(".properties"));
+	/**
+	 * 替换配置来源并重新加载
+	 * @param configSource
+	 */
+	public static void setConfigSource(ConfigSource configSource) {
+		ConfigSource previous;
+		lock.lock();
+		try {
+			previous = source;
+			source = configSource;
+		} finally {
+			lock.unlock();
+		}
+		if(previous != null && previous != configSource)previous.close();
+		if(watching.get())configSource.watch(ResourceUtils::reloadQuietly);
+		reload();
+	}
 
-			for (File file : propFiles) {
-				try (
-						FileReader reader = new FileReader(file);
-				) {
-					Properties p = new Properties();
-					p.load(reader);
-					properties.add(p);
-					props.put(file.getName(), p);
+	/**
+	 * 监听配置来源的变更，重复调用只监听一次
+	 */
+	public static void watch() {
+		if(!watching.compareAndSet(false, true))return;
+		snapshot();
+		source().watch(ResourceUtils::reloadQuietly);
+	}
+
+	/**
+	 * 添加配置变更监听
+	 * @param listener 参数为值发生变化（包括新增、删除）的key
+	 */
+	public static void addChangeListener(Consumer<Set<String>> listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeChangeListener(Consumer<Set<String>> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 重新加载配置，通知变更监听
+	 * @return 值发生变化的key
+	 */
+	public static Set<String> reload() {
+		Set<String> changed;
+		lock.lock();
+		try {
+			Snapshot previous = snapshot;
+			Snapshot loaded;
+			try {
+				loaded = new Snapshot(source().load());
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			snapshot = loaded;
+			changed = previous == null ? Collections.emptySet() : diff(previous.effective(), loaded.effective());
+		} finally {
+			lock.unlock();
+		}
+		if(!changed.isEmpty()){
+			logger.info("config reloaded,changed keys:{}", changed);
+			for (Consumer<Set<String>> listener : listeners) {
+				try {
+					listener.accept(changed);
+				} catch (Exception e) {
+					logger.warn("config change listener error", e);
 				}
 			}
-			inited = true;
+		}
+		return changed;
+	}
+
+	private static void reloadQuietly() {
+		try {
+			reload();
 		} catch (Exception e) {
-			inited = true;
-			throw new RuntimeException(e);
+			//保留原有配置
+			logger.warn("reload config falid", e);
 		}
 	}
 
-	public static Map<String, Properties> getAllProperties() {
-		if (!inited) load();
+	private static Set<String> diff(Map<String, String> previous, Map<String, String> current) {
+		Set<String> changed = new HashSet<>();
+		for (Map.Entry<String, String> entry : current.entrySet()) {
+			if(!entry.getValue().equals(previous.get(entry.getKey())))changed.add(entry.getKey());
+		}
+		for (String key : previous.keySet()) {
+			if(!current.containsKey(key))changed.add(key);
+		}
+		return changed;
+	}
 
-		return props;
+	public static Map<String, Properties> getAllProperties() {
+		return snapshot().props;
 	}
 
 	public static Properties getProperties(String filename) {
-		if (!inited) load();
-
-		return props.get(filename);
+		return snapshot().props.get(filename);
 	}
 
 	public static String get(String key, String... defaults) {
-		if(!inited)load();
-		if (cache.containsKey(key)) {
-			return cache.get(key);
+		Snapshot current = snapshot();
+		String value = current.cache.get(key);
+		if (value != null) {
+			return value;
 		}
 
-		String value = null;
-		for (Properties prop : properties) {
+		for (Properties prop : current.props.values()) {
 			value = prop.getProperty(key);
 			if (value != null) {
-				cache.put(key, value);
+				current.cache.put(key, value);
 				return value;
 			}
 		}
-		
+
 		value = System.getProperty(key);
 		if(value != null){
-			cache.put(key, value);
+			current.cache.put(key, value);
 			return value;
 		}
 
 		if (defaults != null && defaults.length > 0) {
 			return defaults[0];
 		}
-		
+
 		return null;
 	}
 
+	/**
+	 * 一次加载的配置，重新加载时整体替换
+	 */
+	private static final class Snapshot {
+		final Map<String, Properties> props;
+		final Map<String, String> cache = new ConcurrentHashMap<>();
+
+		Snapshot(Map<String, Properties> props) {
+			this.props = props;
+		}
+
+		/**
+		 * 按查找顺序生效的值
+		 */
+		Map<String, String> effective() {
+			Map<String, String> result = new HashMap<>();
+			for (Properties prop : props.values()) {
+				for (String name : prop.stringPropertyNames()) {
+					result.putIfAbsent(name, prop.getProperty(name));
+				}
+			}
+			return result;
+		}
+	}
+
 }
@@ -0,0 +1,10 @@
+-- 设置新值并返回旧值，保留原有过期时间（GETSET会清除过期时间）
+-- KEYS[1]=key ARGV[1]=value
+local ttl = redis.call('PTTL', KEYS[1])
+local old = redis.call('GET', KEYS[1])
+if ttl > 0 then
+  redis.call('SET', KEYS[1], ARGV[1], 'PX', ttl)
+else
+  redis.call('SET', KEYS[1], ARGV[1])
+end
+return old
@@ -0,0 +1,15 @@
+-- 哈希域比较并设置
+-- KEYS[1]=key ARGV=field,absent,expect,update
+-- absent为1表示期望域不存在（忽略expect），为0时比较expect；返回1设置成功，0当前值与期望不符
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+local matched
+if ARGV[2] == '1' then
+  matched = current == false
+else
+  matched = current == ARGV[3]
+end
+if matched then
+  redis.call('HSET', KEYS[1], ARGV[1], ARGV[4])
+  return 1
+end
+return 0
@@ -0,0 +1,14 @@
+-- 固定窗口限流
+-- KEYS[1]=key ARGV=limit,windowMillis,permits
+-- 返回 {是否允许, 当前计数, 可重试等待毫秒}
+local limit = tonumber(ARGV[1])
+local permits = tonumber(ARGV[3])
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+if current + permits > limit then
+  local ttl = redis.call('PTTL', KEYS[1])
+  if ttl < 0 then ttl = tonumber(ARGV[2]) end
+  return {0, current, ttl}
+end
+current = redis.call('INCRBY', KEYS[1], permits)
+if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end
+return {1, current, 0}
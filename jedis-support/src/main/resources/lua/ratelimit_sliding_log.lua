@@ -0,0 +1,23 @@
+-- 滑动日志限流
+-- KEYS[1]=key ARGV=limit,windowMillis,permits,requestId
+-- 使用redis服务端时间，各客户端时钟不一致时窗口一致（写命令在TIME之后，按命令复制）
+-- 返回 {是否允许, 窗口内计数, 可重试等待毫秒}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3])
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+if count + permits > limit then
+  local wait = window
+  local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+  if oldest[2] then wait = tonumber(oldest[2]) + window - now end
+  return {0, count, wait}
+end
+for i = 1, permits do
+  redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i)
+end
+redis.call('PEXPIRE', KEYS[1], window)
+return {1, count + permits, 0}
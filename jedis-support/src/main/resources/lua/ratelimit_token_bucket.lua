@@ -0,0 +1,29 @@
+-- 令牌桶限流
+-- KEYS[1]=key ARGV=capacity,tokensPerMillis,permits,ttlMillis
+-- 使用redis服务端时间，各客户端时钟不一致时补充速度一致（写命令在TIME之后，按命令复制）
+-- 返回 {是否允许, 剩余令牌, 可重试等待毫秒}
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3])
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil or ts == nil then tokens = capacity; ts = now end
+if now > ts then
+  tokens = math.min(capacity, tokens + (now - ts) * rate)
+  ts = now
+end
+local allowed = 0
+local wait = 0
+if tokens >= permits then
+  tokens = tokens - permits
+  allowed = 1
+else
+  wait = math.ceil((permits - tokens) / rate)
+end
+redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return {allowed, math.floor(tokens), wait}
@@ -1,5 +1,7 @@
 package com.youhaoxi.base.spring;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -15,6 +17,7 @@ public class InstanceFactory {
 	private static InstanceProvider instanceProvider;
 	private static Long timeStarting = System.currentTimeMillis();
 	private static AtomicBoolean initialized = new AtomicBoolean(false);
+	private static CountDownLatch initializedLatch = new CountDownLatch(1);
 
 	/**
 	 * 设置实例提供者。
@@ -23,6 +26,7 @@ public class InstanceFactory {
 	public static void setInstanceProvider(InstanceProvider provider) {
 		instanceProvider = provider;
 		initialized.set(true);
+		initializedLatch.countDown();
 	}
 
 	/**
@@ -69,11 +73,15 @@ public class InstanceFactory {
 	/**
 	 * 这是一个阻塞方法，直到context初始化完成
 	 */
-	public synchronized static void waitUtilInitialized(){
+	public static void waitUtilInitialized(){
 		if(initialized.get())return;
 		while(true){
-			if(initialized.get())break;
-			try {Thread.sleep(1000);} catch (Exception e) {}
+			try {
+				if(initializedLatch.await(1, TimeUnit.SECONDS))break;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Spring Initialize interrupted");
+			}
 			long waiting = System.currentTimeMillis() - timeStarting;
 			if(waiting >60 * 1000)throw new RuntimeException("Spring Initialize failture");
 			System.out.println("Spring Initializing >>>>>"+waiting + " s");